@@ -0,0 +1,130 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.checkIn.CheckIn;
+import com.example.locationsystem.checkIn.CheckInDao;
+import com.example.locationsystem.checkIn.CheckInIngester;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sustained check-in load on {@link CheckInIngester} from 8 threads. The DAO stands in for MySQL with a cost of
+ * {@code statementMicros} per insert plus {@code rowMicros} per row, so the numbers show what batching and coalescing
+ * buy rather than the speed of a particular database. {@code users} sets how often the same user checks in again
+ * before a flush: with 1 000 users most check-ins are coalesced, with 1 000 000 almost none are.
+ * <p>
+ * The score is accepted check-ins per second, with the rates of {@code rejected} check-ins and of rows {@code written}
+ * reported next to it. End-to-end lag is left to the {@code check-in.lag} timer of a running instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class CheckInIngestBenchmark {
+
+    @Param({"1000", "1000000"})
+    int users;
+
+    @Param({"1", "100", "500"})
+    int batchSize;
+
+    @Param("500")
+    long statementMicros;
+
+    @Param("5")
+    long rowMicros;
+
+    CheckInIngester ingester;
+    AtomicLong written = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        CheckInDao checkInDao = new SimulatedCheckInDao();
+        ingester = new CheckInIngester(checkInDao, new SimpleMeterRegistry(), 4, 50_000, batchSize,
+            Duration.ofMillis(100));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+
+        ingester.shutdown();
+    }
+
+    @Benchmark
+    public void checkIn(Counters counters) {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            ingester.submit(new CheckIn((long) random.nextInt(users), (long) random.nextInt(100_000),
+                new Timestamp(System.currentTimeMillis())));
+        } catch (RejectedExecutionException e) {
+            counters.rejected++;
+        }
+        counters.written = written.get() / counters.threads;
+    }
+
+    /**
+     * Rows are written by the ingester's threads, so each benchmark thread reports an equal share of them and the
+     * shares add up to the total.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long rejected;
+        public long written;
+
+        int threads;
+
+        @Setup(Level.Iteration)
+        public void reset(BenchmarkParams params) {
+
+            rejected = 0;
+            written = 0;
+            threads = params.getThreads();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+
+        written.set(0);
+    }
+
+    private final class SimulatedCheckInDao implements CheckInDao {
+
+        @Override
+        public void saveCheckIns(List<CheckIn> checkIns) {
+
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(statementMicros + rowMicros * checkIns.size()));
+            written.addAndGet(checkIns.size());
+        }
+    }
+}
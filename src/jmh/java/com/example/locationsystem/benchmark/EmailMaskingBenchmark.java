@@ -0,0 +1,39 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.util.EmailUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EmailUtil#hideEmail}, which runs for every user returned by the user endpoints, for a typical address, a long
+ * one and one too short to mask.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailMaskingBenchmark {
+
+    @Param({"john.smith@example.com", "a.very.long.mailbox.name.used.for.testing@subdomain.example.com", "j@x.io"})
+    String email;
+
+    EmailUtil emailUtil = new EmailUtil();
+
+    @Benchmark
+    public String hideEmail() {
+
+        return emailUtil.hideEmail(email);
+    }
+}
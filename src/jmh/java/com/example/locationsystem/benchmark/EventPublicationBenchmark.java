@@ -0,0 +1,93 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.event.ObjectChangeEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.event.EventListener;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing an {@link ObjectChangeEvent} through {@link ApplicationEventPublisher} to {@code listeners}
+ * {@code @EventListener} beans, against calling the same listeners directly. The listeners only look at the object
+ * type and count, like the index and cache listeners do before their real work, so the difference is the cost of
+ * Spring's dispatch. The application has five such listeners.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventPublicationBenchmark {
+
+    @Param({"1", "5"})
+    int listeners;
+
+    AnnotationConfigApplicationContext context;
+    List<CountingListener> direct;
+    ObjectChangeEvent event;
+
+    @Setup
+    public void setup() {
+
+        context = new AnnotationConfigApplicationContext();
+        direct = new ArrayList<>();
+        for (int i = 0; i < listeners; i++) {
+            CountingListener listener = new CountingListener();
+            direct.add(listener);
+            context.registerBean("listener" + i, CountingListener.class, () -> listener);
+        }
+        context.refresh();
+        event = new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.LOCATION,
+            ObjectChangeEvent.ActionType.CREATED, new Timestamp(System.currentTimeMillis()), 1L);
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        context.close();
+    }
+
+    @Benchmark
+    public void publish() {
+
+        context.publishEvent(event);
+    }
+
+    @Benchmark
+    public void direct() {
+
+        for (int i = 0; i < direct.size(); i++) {
+            direct.get(i).onObjectChange(event);
+        }
+    }
+
+    public static class CountingListener {
+
+        long locations;
+
+        @EventListener(ObjectChangeEvent.class)
+        public void onObjectChange(ObjectChangeEvent event) {
+
+            if (event.getObjectType() == ObjectChangeEvent.ObjectType.LOCATION) {
+                locations++;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.location.Location;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes a {@code List<Location>} response with an {@link ObjectMapper} built the way Spring Boot builds the one
+ * behind its message converters, through the mapper itself as a converter does and through an {@link ObjectWriter}
+ * prepared for the list type. Every other location has coordinates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationJsonBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int size;
+
+    ObjectMapper objectMapper;
+    ObjectWriter listWriter;
+    List<Location> locations;
+
+    @Setup
+    public void setup() {
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(new TypeReference<List<Location>>() {
+        });
+        Random random = new Random(42);
+        locations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Location location = new Location("Location " + i, "Street " + random.nextInt(1000) + ", Kyiv",
+                (long) random.nextInt(100_000));
+            location.setId((long) i + 1);
+            if (i % 2 == 0) {
+                location.setLatitude(45 + random.nextDouble() * 10);
+                location.setLongitude(20 + random.nextDouble() * 10);
+            }
+            locations.add(location);
+        }
+    }
+
+    @Benchmark
+    public byte[] objectMapper() throws IOException {
+
+        return objectMapper.writeValueAsBytes(locations);
+    }
+
+    @Benchmark
+    public byte[] typedWriter() throws IOException {
+
+        return listWriter.writeValueAsBytes(locations);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.location.LocationSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type-ahead queries over {@value #LOCATIONS} locations named and addressed from small word lists, so common grams
+ * have posting lists of hundreds of thousands of ids. Each query is typed one keystroke at a time, from two characters
+ * up to the whole word. {@code visible} is the share of locations the user may see, applied as a filter the way
+ * {@code AccessControlIndex.canView} is; {@code among} checks a visible set of {@value #VISIBLE} ids instead, and
+ * {@code scan} lower-cases and searches every text, which is the in-memory equivalent of a {@code LIKE '%q%'} scan.
+ * {@code among} does not depend on {@code visible}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class LocationSearchBenchmark {
+
+    static final int LOCATIONS = 1_000_000;
+    static final int VISIBLE = 5_000;
+    static final int LIMIT = 100;
+
+    static final String[] NAME_WORDS = {"Home", "Office", "Coffee", "House", "Park", "Gym", "Garden", "Market",
+        "Library", "Museum", "School", "Station", "Bakery", "Cinema", "Theatre", "Harbour", "Bridge", "Tower"};
+    static final String[] STREETS = {"Khreshchatyk", "Sahaidachnoho", "Volodymyrska", "Velyka Vasylkivska",
+        "Antonovycha", "Horodotska", "Shevchenka", "Franka", "Lesi Ukrainky", "Hrushevskoho", "Bandery", "Zelena"};
+    static final String[] QUERIES = {"coffee", "station", "horodotska", "hrushevskoho 4", "museum 12", "ukrainky"};
+
+    @Param({"1.0", "0.01"})
+    double visible;
+
+    LocationSearchIndex index;
+    String[] texts;
+    long[] visibleIds;
+    List<String> keystrokes;
+    int visibleModulo;
+    int next;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42);
+        texts = new String[LOCATIONS];
+        index = new LocationSearchIndex();
+        index.rebuild(() -> {
+            for (int i = 0; i < LOCATIONS; i++) {
+                String name = NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + random.nextInt(100);
+                String address = STREETS[random.nextInt(STREETS.length)] + " St, " + (1 + random.nextInt(200));
+                texts[i] = name + "\n" + address;
+                index.put(i, name, address);
+            }
+        });
+        visibleIds = new long[VISIBLE];
+        for (int i = 0; i < VISIBLE; i++) {
+            visibleIds[i] = random.nextInt(LOCATIONS);
+        }
+        visibleModulo = (int) Math.round(1 / visible);
+        keystrokes = new ArrayList<>();
+        for (String query : QUERIES) {
+            for (int length = 2; length <= query.length(); length++) {
+                keystrokes.add(query.substring(0, length));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Long> index() {
+
+        return index.search(nextQuery(), id -> id % visibleModulo == 0, LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> among() {
+
+        return index.searchAmong(nextQuery(), visibleIds, LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> scan() {
+
+        String query = nextQuery();
+        List<Long> found = new ArrayList<>();
+        for (int i = 0; i < LOCATIONS && found.size() < LIMIT; i++) {
+            if (i % visibleModulo == 0 && texts[i].toLowerCase(Locale.ROOT).contains(query)) {
+                found.add((long) i);
+            }
+        }
+        return found;
+    }
+
+    private String nextQuery() {
+
+        String query = keystrokes.get(next);
+        next = (next + 1) % keystrokes.size();
+        return query;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.metrics.MethodTimer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of timing a call through {@link MethodTimer} with the percentiles configured in {@code application.properties},
+ * against the same call made directly. The target returns an already completed future, so the numbers are the
+ * overhead alone; a DAO call that reaches MySQL takes hundreds of microseconds. Run from 4 threads, as timers are
+ * shared by every request thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    public interface Lookup {
+
+        CompletableFuture<Long> find(Long id);
+    }
+
+    Lookup direct;
+    Lookup timed;
+
+    @Setup
+    public void setup() {
+
+        CompletableFuture<Long> found = CompletableFuture.completedFuture(1L);
+        direct = id -> found;
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+
+                return DistributionStatisticConfig.builder()
+                    .percentiles(0.5, 0.99, 0.999)
+                    .build()
+                    .merge(config);
+            }
+        });
+        timed = MethodTimer.timed(Lookup.class, direct, "dao.calls", meterRegistry);
+    }
+
+    @Benchmark
+    public CompletableFuture<Long> direct() {
+
+        return direct.find(1L);
+    }
+
+    @Benchmark
+    public CompletableFuture<Long> timed() {
+
+        return timed.find(1L);
+    }
+}
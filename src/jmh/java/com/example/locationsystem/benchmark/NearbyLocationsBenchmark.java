@@ -0,0 +1,106 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.location.NearbyLocationIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Radius queries over {@value #POINTS} locations spread over a 10 by 10 degree area in Europe (about 1.3 points per
+ * km²), through {@link NearbyLocationIndex} and through a scan that measures every point, which is what a query
+ * without the index has to do. Query centers are drawn from the same area; the scan does not depend on
+ * {@code precision}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class NearbyLocationsBenchmark {
+
+    static final int POINTS = 1_000_000;
+    static final int QUERIES = 1024;
+    static final double MIN_LATITUDE = 45;
+    static final double MIN_LONGITUDE = 20;
+    static final double SPAN = 10;
+    static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    @Param({"1000", "10000", "50000"})
+    double radius;
+
+    @Param({"4", "5", "6"})
+    int precision;
+
+    NearbyLocationIndex index;
+    double[] latitudes;
+    double[] longitudes;
+    double[] queryLatitudes;
+    double[] queryLongitudes;
+    int query;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42);
+        latitudes = new double[POINTS];
+        longitudes = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            latitudes[i] = MIN_LATITUDE + random.nextDouble() * SPAN;
+            longitudes[i] = MIN_LONGITUDE + random.nextDouble() * SPAN;
+        }
+        index = new NearbyLocationIndex(precision);
+        index.rebuild(() -> {
+            for (int i = 0; i < POINTS; i++) {
+                index.put(i, latitudes[i], longitudes[i]);
+            }
+        });
+        queryLatitudes = new double[QUERIES];
+        queryLongitudes = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queryLatitudes[i] = MIN_LATITUDE + random.nextDouble() * SPAN;
+            queryLongitudes[i] = MIN_LONGITUDE + random.nextDouble() * SPAN;
+        }
+    }
+
+    @Benchmark
+    public List<Long> index() {
+
+        int i = query++ & (QUERIES - 1);
+        return index.findWithin(queryLatitudes[i], queryLongitudes[i], radius, id -> true, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Long> scan() {
+
+        int q = query++ & (QUERIES - 1);
+        List<Long> found = new ArrayList<>();
+        for (int i = 0; i < POINTS; i++) {
+            if (distanceMeters(queryLatitudes[q], queryLongitudes[q], latitudes[i], longitudes[i]) <= radius) {
+                found.add((long) i);
+            }
+        }
+        return found;
+    }
+
+    private static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.user.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU time a login or registration spends in {@link PasswordHasher}, for a few values of
+ * {@code password.bcrypt.strength}, next to checking a legacy SHA-256 hash. Runs on the calling thread, so it leaves
+ * out the wait for the hashing pool as well as the database; login latency as a whole is measured as described in the
+ * README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+    private static final String LEGACY_HASH = "c4bbcb1fbec99d65bf59d85c8cb62ee2db963f0fe106f483d9afa73bd4e39a8a";
+
+    @Param({"4", "10", "12"})
+    int strength;
+
+    PasswordHasher passwordHasher;
+    String hash;
+
+    @Setup
+    public void setup() {
+
+        passwordHasher = new PasswordHasher(strength, Runnable::run);
+        hash = passwordHasher.hash(PASSWORD).join();
+    }
+
+    @Benchmark
+    public String hash() {
+
+        return passwordHasher.hash(PASSWORD).join();
+    }
+
+    @Benchmark
+    public boolean verify() {
+
+        return passwordHasher.matches(PASSWORD, hash).join();
+    }
+
+    @Benchmark
+    public boolean verifyLegacy() {
+
+        return passwordHasher.matches(PASSWORD, LEGACY_HASH).join();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.location.Location;
+import com.example.locationsystem.location.LocationRowMapper;
+import com.example.locationsystem.user.User;
+import com.example.locationsystem.user.UserRowMapper;
+import com.example.locationsystem.userAccess.UserAccess;
+import com.example.locationsystem.userAccess.UserAccessRowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the index-based row mappers with a per-call {@link BeanPropertyRowMapper}, which is how the DAOs mapped
+ * rows before. Rows come from in-memory {@link CachedRowSet}s so no database is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    @Param({"1", "100", "10000"})
+    int rows;
+
+    CachedRowSet locations;
+    CachedRowSet users;
+    CachedRowSet accesses;
+
+    @Setup
+    public void setup() throws SQLException {
+
+        locations = rowSet(new String[]{"id", "name", "address", "user_id", "latitude", "longitude"},
+            new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.DOUBLE, Types.DOUBLE});
+        users = rowSet(new String[]{"id", "name", "password", "username"},
+            new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR});
+        accesses = rowSet(new String[]{"id", "title", "location_id", "user_id"},
+            new int[]{Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.BIGINT});
+    }
+
+    @Benchmark
+    public List<Location> locationBeanPropertyRowMapper() throws SQLException {
+
+        return map(locations, BeanPropertyRowMapper.newInstance(Location.class));
+    }
+
+    @Benchmark
+    public List<Location> locationRowMapper() throws SQLException {
+
+        return map(locations, LocationRowMapper.INSTANCE);
+    }
+
+    @Benchmark
+    public List<User> userBeanPropertyRowMapper() throws SQLException {
+
+        return map(users, BeanPropertyRowMapper.newInstance(User.class));
+    }
+
+    @Benchmark
+    public List<User> userRowMapper() throws SQLException {
+
+        return map(users, UserRowMapper.INSTANCE);
+    }
+
+    @Benchmark
+    public List<UserAccess> userAccessBeanPropertyRowMapper() throws SQLException {
+
+        return map(accesses, BeanPropertyRowMapper.newInstance(UserAccess.class));
+    }
+
+    @Benchmark
+    public List<UserAccess> userAccessRowMapper() throws SQLException {
+
+        return map(accesses, UserAccessRowMapper.INSTANCE);
+    }
+
+    private static <T> List<T> map(CachedRowSet rowSet, RowMapper<T> rowMapper) throws SQLException {
+
+        rowSet.beforeFirst();
+        return new RowMapperResultSetExtractor<>(rowMapper, rowSet.size()).extractData(rowSet);
+    }
+
+    private CachedRowSet rowSet(String[] columns, int[] types) throws SQLException {
+
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            metaData.setColumnName(i + 1, columns[i]);
+            metaData.setColumnLabel(i + 1, columns[i]);
+            metaData.setColumnType(i + 1, types[i]);
+        }
+
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        for (int row = 1; row <= rows; row++) {
+            rowSet.moveToInsertRow();
+            for (int i = 0; i < columns.length; i++) {
+                if (types[i] == Types.BIGINT) {
+                    rowSet.updateLong(i + 1, row);
+                } else if (types[i] == Types.DOUBLE) {
+                    rowSet.updateDouble(i + 1, row / 1000.0);
+                } else {
+                    rowSet.updateString(i + 1, columns[i] + row);
+                }
+            }
+            rowSet.insertRow();
+            rowSet.moveToCurrentRow();
+        }
+        return rowSet;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.locationsystem.benchmark;
+
+import com.example.locationsystem.auth.SessionStore;
+import com.example.locationsystem.auth.UserIdArgumentResolver;
+import com.example.locationsystem.location.LocationController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-call work of the removed {@code CookieAspect} (cookie read, {@code Long.parseLong} and a walk over
+ * {@link Method#getParameters()}) with {@link UserIdArgumentResolver}. The AOP proxy itself is not part of the legacy
+ * numbers, so they are a lower bound for the old path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserIdResolutionBenchmark {
+
+    Method handlerMethod;
+    MethodParameter userIdParameter;
+    UserIdArgumentResolver resolver;
+    MockHttpServletRequest legacyRequest;
+    ServletWebRequest sessionRequest;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+
+        handlerMethod = LocationController.class.getMethod("showLocations", Long.class);
+        userIdParameter = new MethodParameter(handlerMethod, 0);
+        userIdParameter.initParameterNameDiscovery(new DefaultParameterNameDiscoverer());
+
+        SessionStore sessionStore = new SessionStore(Duration.ofMinutes(30), 100_000);
+        resolver = new UserIdArgumentResolver(sessionStore);
+
+        legacyRequest = new MockHttpServletRequest();
+        legacyRequest.setCookies(new Cookie("user", "100"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(SessionStore.COOKIE_NAME, sessionStore.createSession(100L)));
+        sessionRequest = new ServletWebRequest(request);
+    }
+
+    @Benchmark
+    public Object[] legacyAspect() {
+
+        Cookie userCookie = WebUtils.getCookie(legacyRequest, "user");
+        long userId = Long.parseLong(userCookie.getValue());
+
+        Parameter[] parameters = handlerMethod.getParameters();
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter parameter = parameters[i];
+            if (parameter.getType().equals(Long.class) && parameter.getName().equals("userId")) {
+                args[i] = userId;
+            }
+        }
+        return args;
+    }
+
+    @Benchmark
+    public Long argumentResolver() {
+
+        return resolver.resolveArgument(userIdParameter, null, sessionRequest, null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.locationsystem.acl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * With {@code acl.consistency-check=true}, callers of the {@link AccessControlIndex} also run the SQL that authorizes
+ * the same request and go by its answer, while any disagreement is logged and counted in
+ * {@code acl.consistency.mismatch}.
+ */
+@Component
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AccessControlConsistencyCheck {
+
+    MeterRegistry meterRegistry;
+    boolean enabled;
+
+    public AccessControlConsistencyCheck(
+        MeterRegistry meterRegistry,
+        @Value("${acl.consistency-check:false}") boolean enabled
+    ) {
+
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Compares the index answer with the SQL one and returns the latter. {@code notFound} is how the SQL path turns a
+     * request away; any other failure is passed on without comparing.
+     */
+    public <T> CompletableFuture<T> verify(
+        String check,
+        boolean indexAllowed,
+        CompletableFuture<T> sqlAnswer,
+        Class<? extends RuntimeException> notFound
+    ) {
+
+        return sqlAnswer.handle((result, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause != null && !notFound.isInstance(cause)) {
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+            boolean sqlAllowed = cause == null;
+            if (indexAllowed != sqlAllowed) {
+                meterRegistry.counter("acl.consistency.mismatch", "check", check).increment();
+                log.error("Access control index mismatch for check={}: index={}, sql={}", check, indexAllowed,
+                    sqlAllowed ? result : cause.getMessage());
+            }
+            if (!sqlAllowed) {
+                throw new CompletionException(cause);
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.locationsystem.acl;
+
+import com.example.locationsystem.userAccess.UserAccess;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of who owns which location and who has which access to it, used to answer permission checks
+ * without a query. Ids are MySQL {@code INT}s, so a (user, location) pair is packed into one {@code long} key, and an
+ * access is stored as {@code accessId << 8 | titleCode} with titles interned in a small table.
+ * <p>
+ * Every mutator is idempotent, so a write that lands in the database while {@link #rebuild} is reading it and is then
+ * applied again gives the same result. Until the first rebuild completes {@link #isReady()} is {@code false} and
+ * callers are expected to ask the database instead.
+ */
+@Component
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AccessControlIndex {
+
+    static final String ADMIN = "ADMIN";
+    static final String READ = "READ";
+
+    private static final long NONE = -1L;
+    private static final int TITLE_BITS = 8;
+    private static final int MAX_TITLES = 1 << TITLE_BITS;
+
+    Lock readLock;
+    Lock writeLock;
+
+    LongOpenHashSet users = new LongOpenHashSet();
+    Long2LongOpenHashMap owners = new Long2LongOpenHashMap();
+    Long2LongOpenHashMap accesses = new Long2LongOpenHashMap();
+    Long2ObjectOpenHashMap<LongOpenHashSet> usersByLocation = new Long2ObjectOpenHashMap<>();
+    Long2ObjectOpenHashMap<LongOpenHashSet> locationsByUser = new Long2ObjectOpenHashMap<>();
+    Long2ObjectOpenHashMap<LongOpenHashSet> locationsByOwner = new Long2ObjectOpenHashMap<>();
+    List<String> titles = new ArrayList<>();
+    Map<String, Integer> titleCodes = new HashMap<>();
+
+    @NonFinal
+    volatile boolean ready;
+    @NonFinal
+    boolean titlesOverflowed;
+
+    public AccessControlIndex() {
+
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+        owners.defaultReturnValue(NONE);
+        accesses.defaultReturnValue(NONE);
+        titleCode(ADMIN);
+        titleCode(READ);
+    }
+
+    public boolean isReady() {
+
+        return ready;
+    }
+
+    /**
+     * Clears the index and refills it through {@code loader}, which calls the mutators below. Checks made meanwhile see
+     * {@link #isReady()} as {@code false}; writes wait for the rebuild and are applied on top of it.
+     */
+    public void rebuild(Runnable loader) {
+
+        writeLock.lock();
+        try {
+            ready = false;
+            users.clear();
+            owners.clear();
+            accesses.clear();
+            usersByLocation.clear();
+            locationsByUser.clear();
+            locationsByOwner.clear();
+            loader.run();
+            ready = !titlesOverflowed;
+            log.info("Access control index built: users={}, locations={}, accesses={}", users.size(), owners.size(),
+                accesses.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to build access control index", e);
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Owned or shared with any title, as in {@code FIND_LOCATION_IN_USER_LOCATIONS}.
+     */
+    public boolean canView(long userId, long locationId) {
+
+        readLock.lock();
+        try {
+            return owners.get(locationId) == userId || accesses.containsKey(key(userId, locationId));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Mirrors {@code FIND_NOT_SHARED_TO_USER_LOCATION}: the sharer owns the location or is its admin, the target user
+     * exists and does not already have admin or read access to it.
+     */
+    public boolean canShare(long ownerId, long locationId, long userId) {
+
+        readLock.lock();
+        try {
+            boolean sharerAllowed = manages(ownerId, locationId);
+            String targetTitle = title(accesses.get(key(userId, locationId)));
+            return sharerAllowed && users.contains(userId) && !ADMIN.equals(targetTitle) && !READ.equals(targetTitle);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Owner or admin of the location, as in {@code FIND_MANAGED_LOCATION}.
+     */
+    public boolean canManage(long userId, long locationId) {
+
+        readLock.lock();
+        try {
+            return manages(userId, locationId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * The access of {@code userId} to a location owned by {@code ownerId}, as in {@code FIND_USER_ACCESS}, or
+     * {@code null}.
+     */
+    public UserAccess findAccess(long ownerId, long locationId, long userId) {
+
+        readLock.lock();
+        try {
+            long access = accesses.get(key(userId, locationId));
+            if (access == NONE || owners.get(locationId) != ownerId) {
+                return null;
+            }
+            UserAccess userAccess = new UserAccess(title(access), userId, locationId);
+            userAccess.setId(access >>> TITLE_BITS);
+            return userAccess;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Users with any access to the location, which leaves out its owner, as in {@code FIND_USERS_ON_LOCATION_PAGE}.
+     */
+    public long[] findUsersWithAccess(long locationId) {
+
+        readLock.lock();
+        try {
+            LongOpenHashSet userIds = usersByLocation.get(locationId);
+            return userIds == null ? new long[0] : userIds.toLongArray();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Number of locations the user owns or has any access to, which is the size of {@link #findVisibleLocations}.
+     */
+    public int countVisibleLocations(long userId) {
+
+        readLock.lock();
+        try {
+            LongOpenHashSet owned = locationsByOwner.get(userId);
+            LongOpenHashSet shared = locationsByUser.get(userId);
+            return (owned == null ? 0 : owned.size()) + (shared == null ? 0 : shared.size());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Locations the user owns or has any access to, as in {@code FIND_USER_LOCATIONS_PAGE}, in no particular order. A
+     * location the user owns and also has an access to is listed twice.
+     */
+    public long[] findVisibleLocations(long userId) {
+
+        readLock.lock();
+        try {
+            LongOpenHashSet owned = locationsByOwner.get(userId);
+            LongOpenHashSet shared = locationsByUser.get(userId);
+            long[] locationIds = new long[(owned == null ? 0 : owned.size()) + (shared == null ? 0 : shared.size())];
+            int i = 0;
+            if (owned != null) {
+                for (LongIterator it = owned.iterator(); it.hasNext(); ) {
+                    locationIds[i++] = it.nextLong();
+                }
+            }
+            if (shared != null) {
+                for (LongIterator it = shared.iterator(); it.hasNext(); ) {
+                    locationIds[i++] = it.nextLong();
+                }
+            }
+            return locationIds;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public void addUser(long userId) {
+
+        writeLock.lock();
+        try {
+            users.add(userId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Accesses of the user are removed with it, like the {@code ON DELETE CASCADE} on {@code accesses.user_id}.
+     */
+    public void removeUser(long userId) {
+
+        writeLock.lock();
+        try {
+            users.remove(userId);
+            LongOpenHashSet locationIds = locationsByUser.remove(userId);
+            if (locationIds != null) {
+                for (LongIterator it = locationIds.iterator(); it.hasNext(); ) {
+                    long locationId = it.nextLong();
+                    accesses.remove(key(userId, locationId));
+                    removeFrom(usersByLocation, locationId, userId);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void addLocation(long locationId, long ownerId) {
+
+        writeLock.lock();
+        try {
+            long previousOwner = owners.put(locationId, ownerId);
+            if (previousOwner != NONE && previousOwner != ownerId) {
+                removeFrom(locationsByOwner, previousOwner, locationId);
+            }
+            addTo(locationsByOwner, ownerId, locationId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Accesses to the location are removed with it, like the {@code ON DELETE CASCADE} on
+     * {@code accesses.location_id}. Returns the users those accesses belonged to, as {@link #findUsersWithAccess}
+     * would have just before.
+     */
+    public long[] removeLocation(long locationId) {
+
+        writeLock.lock();
+        try {
+            long ownerId = owners.remove(locationId);
+            if (ownerId != NONE) {
+                removeFrom(locationsByOwner, ownerId, locationId);
+            }
+            LongOpenHashSet userIds = usersByLocation.remove(locationId);
+            if (userIds == null) {
+                return new long[0];
+            }
+            for (LongIterator it = userIds.iterator(); it.hasNext(); ) {
+                long userId = it.nextLong();
+                accesses.remove(key(userId, locationId));
+                removeFrom(locationsByUser, userId, locationId);
+            }
+            return userIds.toLongArray();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void putAccess(long accessId, long userId, long locationId, String title) {
+
+        writeLock.lock();
+        try {
+            accesses.put(key(userId, locationId), accessId << TITLE_BITS | titleCode(title));
+            addTo(usersByLocation, locationId, userId);
+            addTo(locationsByUser, userId, locationId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies {@code CHANGE_USER_ACCESS}: admin becomes read, read becomes admin, other titles stay.
+     */
+    public void changeAccess(long userId, long locationId) {
+
+        writeLock.lock();
+        try {
+            long key = key(userId, locationId);
+            long access = accesses.get(key);
+            if (access == NONE) {
+                return;
+            }
+            String title = title(access);
+            String changed = ADMIN.equals(title) ? READ : READ.equals(title) ? ADMIN : title;
+            accesses.put(key, (access >>> TITLE_BITS) << TITLE_BITS | titleCode(changed));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean manages(long userId, long locationId) {
+
+        return owners.get(locationId) == userId || ADMIN.equals(title(accesses.get(key(userId, locationId))));
+    }
+
+    private static long key(long userId, long locationId) {
+
+        return userId << 32 | (locationId & 0xFFFFFFFFL);
+    }
+
+    private String title(long access) {
+
+        return access == NONE ? null : titles.get((int) (access & (MAX_TITLES - 1)));
+    }
+
+    private int titleCode(String title) {
+
+        Integer code = titleCodes.get(title);
+        if (code == null) {
+            if (titles.size() == MAX_TITLES) {
+                log.error("More than {} distinct access titles, access control index disabled", MAX_TITLES);
+                titlesOverflowed = true;
+                ready = false;
+                return 0;
+            }
+            code = titles.size();
+            titles.add(title);
+            titleCodes.put(title, code);
+        }
+        return code;
+    }
+
+    private static void addTo(Long2ObjectOpenHashMap<LongOpenHashSet> index, long key, long value) {
+
+        LongOpenHashSet values = index.get(key);
+        if (values == null) {
+            values = new LongOpenHashSet();
+            index.put(key, values);
+        }
+        values.add(value);
+    }
+
+    private static void removeFrom(Long2ObjectOpenHashMap<LongOpenHashSet> index, long key, long value) {
+
+        LongOpenHashSet values = index.get(key);
+        if (values != null && values.remove(value) && values.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
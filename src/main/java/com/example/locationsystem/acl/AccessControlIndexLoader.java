@@ -0,0 +1,53 @@
+package com.example.locationsystem.acl;
+
+import com.example.locationsystem.shard.Shard;
+import com.example.locationsystem.shard.Shards;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.example.locationsystem.acl.AccessControlQueries.*;
+
+/**
+ * Fills the {@link AccessControlIndex} once the application is up. The JDBC data source is used in every DAO mode,
+ * except that with sharding every shard is read instead.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AccessControlIndexLoader {
+
+    JdbcTemplate jdbcTemplate;
+    AccessControlIndex accessControlIndex;
+    ObjectProvider<Shards> shards;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+
+        long start = System.nanoTime();
+        Shards sharded = shards.getIfAvailable();
+        List<JdbcTemplate> sources = sharded == null ? Collections.singletonList(jdbcTemplate) :
+            sharded.all().stream().map(Shard::getJdbcTemplate).collect(Collectors.toList());
+        accessControlIndex.rebuild(() -> {
+            sources.forEach(source -> source.query(FIND_ALL_USER_IDS, (RowCallbackHandler) rs ->
+                accessControlIndex.addUser(rs.getLong(1))));
+            sources.forEach(source -> source.query(FIND_ALL_LOCATION_OWNERS, (RowCallbackHandler) rs ->
+                accessControlIndex.addLocation(rs.getLong(1), rs.getLong(2))));
+            sources.forEach(source -> source.query(FIND_ALL_USER_ACCESSES, (RowCallbackHandler) rs ->
+                accessControlIndex.putAccess(rs.getLong(1), rs.getLong(4), rs.getLong(3), rs.getString(2))));
+        });
+        log.info("Access control index loaded in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+}
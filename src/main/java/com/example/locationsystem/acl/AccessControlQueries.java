@@ -0,0 +1,12 @@
+package com.example.locationsystem.acl;
+
+final class AccessControlQueries {
+
+    static final String FIND_ALL_USER_IDS = "SELECT id FROM users";
+    static final String FIND_ALL_LOCATION_OWNERS = "SELECT id, user_id FROM locations";
+    static final String FIND_ALL_USER_ACCESSES = "SELECT id, title, location_id, user_id FROM accesses";
+
+    private AccessControlQueries() {
+
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.locationsystem.acl;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AccessControlService {
+
+    CompletableFuture<Void> checkCanManage(Long userId, Long locationId);
+
+    CompletableFuture<Void> checkCanView(Long userId, Long locationId);
+}
@@ -0,0 +1,71 @@
+package com.example.locationsystem.acl;
+
+import com.example.locationsystem.location.LocationDao;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.util.FutureUtil.failed;
+
+/**
+ * Answers permission checks from the {@link AccessControlIndex}, falling back to the DAO queries until the index is
+ * loaded. Sharing and changing an access are authorized the same way in {@code UserAccessServiceImpl}. See
+ * {@link AccessControlConsistencyCheck} for {@code acl.consistency-check}.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AccessControlServiceImpl implements AccessControlService {
+
+    AccessControlIndex accessControlIndex;
+    LocationDao locationDao;
+    AccessControlConsistencyCheck consistencyCheck;
+
+    @Override
+    public CompletableFuture<Void> checkCanManage(Long userId, Long locationId) {
+
+        Supplier<CompletableFuture<Void>> sql = () -> locationDao.findManagedLocation(userId, locationId)
+            .thenApply(location -> null);
+        if (!accessControlIndex.isReady()) {
+            return sql.get();
+        }
+
+        boolean allowed = accessControlIndex.canManage(userId, locationId);
+        if (consistencyCheck.isEnabled()) {
+            return consistencyCheck.verify("manage", allowed, sql.get(), LocationNotFoundException.class);
+        }
+        if (!allowed) {
+            log.warn("Managed location not found by user id={} and location id={}", userId, locationId);
+            return failed(new LocationNotFoundException("Location not found"));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> checkCanView(Long userId, Long locationId) {
+
+        Supplier<CompletableFuture<Void>> sql = () -> locationDao.findLocationInUserLocations(userId, locationId)
+            .thenApply(location -> null);
+        if (!accessControlIndex.isReady()) {
+            return sql.get();
+        }
+
+        boolean allowed = accessControlIndex.canView(userId, locationId);
+        if (consistencyCheck.isEnabled()) {
+            return consistencyCheck.verify("view", allowed, sql.get(), LocationNotFoundException.class);
+        }
+        if (!allowed) {
+            log.warn("Location not found by user id={} and location id={}", userId, locationId);
+            return failed(new LocationNotFoundException("Location not found"));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
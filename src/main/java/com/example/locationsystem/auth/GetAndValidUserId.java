@@ -1,10 +1,14 @@
-package com.example.locationsystem.aspect;
+package com.example.locationsystem.auth;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Marks a handler method whose {@code Long userId} parameter is filled from the session cookie by
+ * {@link UserIdArgumentResolver}.
+ */
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.METHOD})
 public @interface GetAndValidUserId {
@@ -0,0 +1,94 @@
+package com.example.locationsystem.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory sessions keyed by an opaque random token. Entries expire after {@code session.ttl} of inactivity and the
+ * least recently used ones are evicted once {@code session.max-size} is reached. The tokens of each user are tracked
+ * as well, so all sessions of a deleted user can be dropped at once.
+ */
+@Component
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SessionStore {
+
+    public static final String COOKIE_NAME = "session";
+
+    private static final int TOKEN_BYTES = 32;
+
+    SecureRandom secureRandom = new SecureRandom();
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    Cache<String, Long> sessions;
+    ConcurrentMap<Long, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+
+    public SessionStore(
+        @Value("${session.ttl:30m}") Duration ttl,
+        @Value("${session.max-size:100000}") long maxSize
+    ) {
+
+        this.sessions = Caffeine.newBuilder()
+            .expireAfterAccess(ttl)
+            .maximumSize(maxSize)
+            .executor(Runnable::run)
+            .removalListener((String token, Long userId, RemovalCause cause) -> forget(userId, token))
+            .build();
+    }
+
+    public String createSession(Long userId) {
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String token = encoder.encodeToString(bytes);
+        tokensByUser.compute(userId, (id, tokens) -> {
+            Set<String> userTokens = tokens != null ? tokens : ConcurrentHashMap.newKeySet();
+            userTokens.add(token);
+            return userTokens;
+        });
+        sessions.put(token, userId);
+        log.info("Session created for user id={}", userId);
+        return token;
+    }
+
+    public Long findUserId(String token) {
+
+        return sessions.getIfPresent(token);
+    }
+
+    public void invalidate(String token) {
+
+        sessions.invalidate(token);
+    }
+
+    public void invalidateUser(Long userId) {
+
+        Set<String> tokens = tokensByUser.remove(userId);
+        if (tokens != null) {
+            sessions.invalidateAll(tokens);
+            log.info("{} sessions of user id={} invalidated", tokens.size(), userId);
+        }
+    }
+
+    private void forget(Long userId, String token) {
+
+        if (userId != null) {
+            tokensByUser.computeIfPresent(userId, (id, tokens) -> {
+                tokens.remove(token);
+                return tokens.isEmpty() ? null : tokens;
+            });
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.locationsystem.auth;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+/**
+ * Injects the logged-in user's id into {@code Long userId} parameters of methods annotated with
+ * {@link GetAndValidUserId}. Spring caches {@link #supportsParameter} per handler parameter, so the reflective check
+ * runs once per method and each request only costs a cookie read and a session lookup.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UserIdArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String USER_ID_PARAMETER = "userId";
+
+    SessionStore sessionStore;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+
+        return parameter.hasMethodAnnotation(GetAndValidUserId.class)
+            && parameter.getParameterType().equals(Long.class)
+            && USER_ID_PARAMETER.equals(parameter.getParameterName());
+    }
+
+    @Override
+    public Long resolveArgument(
+        MethodParameter parameter,
+        ModelAndViewContainer mavContainer,
+        NativeWebRequest webRequest,
+        WebDataBinderFactory binderFactory
+    ) {
+
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        Cookie sessionCookie = request == null ? null : WebUtils.getCookie(request, SessionStore.COOKIE_NAME);
+        if (sessionCookie == null) {
+            throw new NotLoggedInException("Not logged in");
+        }
+
+        Long userId = sessionStore.findUserId(sessionCookie.getValue());
+        if (userId == null) {
+            throw new NotLoggedInException("Not logged in");
+        }
+        return userId;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.locationsystem.checkIn;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * A user reporting that they are at a location at {@code checkedInAt}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckIn {
+
+    private Long userId;
+
+    private Long locationId;
+
+    private Timestamp checkedInAt;
+}
@@ -0,0 +1,8 @@
+package com.example.locationsystem.checkIn;
+
+import java.util.List;
+
+public interface CheckInDao {
+
+    void saveCheckIns(List<CheckIn> checkIns);
+}
@@ -0,0 +1,198 @@
+package com.example.locationsystem.checkIn;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffers check-ins and writes them in multi-row inserts, so a high check-in rate costs MySQL one statement per
+ * {@code check-in.batch-size} rows instead of one per request.
+ * <p>
+ * Users are spread over {@code check-in.partitions} partitions by a hash of their id. Each partition keeps at most one
+ * pending check-in per user, in arrival order: a check-in of a user who already has one waiting replaces it, since
+ * only where they are now matters. A partition is written every {@code check-in.flush-interval}, or as soon as a batch
+ * fills, and partitions are written in parallel by a pool of one thread per partition. When a partition already holds
+ * {@code check-in.partition-capacity} users, check-ins of other users are rejected and the client is told to retry.
+ * A batch that fails to insert is logged and discarded rather than retried, as with the history.
+ */
+@Component
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CheckInIngester {
+
+    CheckInDao checkInDao;
+    int batchSize;
+    int partitionCapacity;
+    Partition[] partitions;
+    AtomicInteger pending = new AtomicInteger();
+    ScheduledExecutorService writers;
+
+    Counter acceptedCounter;
+    Counter coalescedCounter;
+    Counter rejectedCounter;
+    Counter failedCounter;
+    DistributionSummary batchSizeSummary;
+    Timer lagTimer;
+
+    public CheckInIngester(
+        CheckInDao checkInDao,
+        MeterRegistry meterRegistry,
+        @Value("${check-in.partitions:4}") int partitions,
+        @Value("${check-in.partition-capacity:50000}") int partitionCapacity,
+        @Value("${check-in.batch-size:500}") int batchSize,
+        @Value("${check-in.flush-interval:100ms}") Duration flushInterval
+    ) {
+
+        this.checkInDao = checkInDao;
+        this.batchSize = batchSize;
+        this.partitionCapacity = partitionCapacity;
+
+        this.acceptedCounter = meterRegistry.counter("check-in.accepted");
+        this.coalescedCounter = meterRegistry.counter("check-in.coalesced");
+        this.rejectedCounter = meterRegistry.counter("check-in.rejected");
+        this.failedCounter = meterRegistry.counter("check-in.failed");
+        this.batchSizeSummary = DistributionSummary.builder("check-in.batch.size").register(meterRegistry);
+        this.lagTimer = Timer.builder("check-in.lag")
+            .description("Time from the check-in being accepted to its row being written")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        Gauge.builder("check-in.pending", pending, AtomicInteger::get).register(meterRegistry);
+
+        this.partitions = new Partition[partitions];
+        this.writers = Executors.newScheduledThreadPool(partitions, new CustomizableThreadFactory("check-in-writer-"));
+        long intervalMillis = flushInterval.toMillis();
+        for (int i = 0; i < partitions; i++) {
+            Partition partition = new Partition();
+            this.partitions[i] = partition;
+            writers.scheduleWithFixedDelay(partition::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queues a check-in whose {@code checkedInAt} is the time it was accepted. Throws
+     * {@link RejectedExecutionException} when its partition is full.
+     */
+    public void submit(CheckIn checkIn) {
+
+        Partition partition = partitions[Math.floorMod(HashCommon.long2int(HashCommon.mix(checkIn.getUserId())),
+            partitions.length)];
+        partition.offer(checkIn);
+    }
+
+    /**
+     * Writes everything pending. Returns only after check-ins queued before the call are in the database.
+     */
+    public void flush() {
+
+        for (Partition partition : partitions) {
+            partition.flush();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+
+        writers.shutdown();
+        writers.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    private final class Partition {
+
+        final Long2ObjectLinkedOpenHashMap<CheckIn> pendingByUser = new Long2ObjectLinkedOpenHashMap<>();
+        final Object writeLock = new Object();
+        boolean flushScheduled;
+
+        void offer(CheckIn checkIn) {
+
+            boolean flushNow = false;
+            synchronized (this) {
+                if (pendingByUser.containsKey(checkIn.getUserId().longValue())) {
+                    pendingByUser.put(checkIn.getUserId().longValue(), checkIn);
+                    coalescedCounter.increment();
+                } else if (pendingByUser.size() >= partitionCapacity) {
+                    rejectedCounter.increment();
+                    log.warn("Check-in partition is full, check-in of user id={} rejected", checkIn.getUserId());
+                    throw new RejectedExecutionException("Too many pending check-ins");
+                } else {
+                    pendingByUser.put(checkIn.getUserId().longValue(), checkIn);
+                    pending.incrementAndGet();
+                    if (pendingByUser.size() >= batchSize && !flushScheduled) {
+                        flushScheduled = true;
+                        flushNow = true;
+                    }
+                }
+            }
+            acceptedCounter.increment();
+            if (flushNow) {
+                try {
+                    writers.execute(this::flush);
+                } catch (RejectedExecutionException e) {
+                    synchronized (this) {
+                        flushScheduled = false;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Takes the pending check-ins and writes them in batches. Only one flush of a partition runs at a time, so
+         * rows of a user are written in the order they were taken.
+         */
+        void flush() {
+
+            synchronized (writeLock) {
+                List<CheckIn> taken;
+                synchronized (this) {
+                    flushScheduled = false;
+                    if (pendingByUser.isEmpty()) {
+                        return;
+                    }
+                    taken = new ArrayList<>(pendingByUser.values());
+                    pendingByUser.clear();
+                    pending.addAndGet(-taken.size());
+                }
+                for (int from = 0; from < taken.size(); from += batchSize) {
+                    write(taken.subList(from, Math.min(from + batchSize, taken.size())));
+                }
+            }
+        }
+
+        private void write(List<CheckIn> batch) {
+
+            try {
+                checkInDao.saveCheckIns(batch);
+            } catch (RuntimeException e) {
+                failedCounter.increment(batch.size());
+                log.error("Failed to insert {} check-ins", batch.size(), e);
+                return;
+            }
+
+            batchSizeSummary.record(batch.size());
+            long now = System.currentTimeMillis();
+            for (CheckIn checkIn : batch) {
+                lagTimer.record(now - checkIn.getCheckedInAt().getTime(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
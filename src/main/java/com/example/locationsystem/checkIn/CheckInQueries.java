@@ -0,0 +1,14 @@
+package com.example.locationsystem.checkIn;
+
+final class CheckInQueries {
+
+    /**
+     * Sent as a JDBC batch of up to {@code check-in.batch-size} rows, which {@code rewriteBatchedStatements} turns into
+     * a multi-row insert. The text is the same for every batch size, so the server prepares it once per connection.
+     */
+    static final String SAVE_CHECK_IN = "INSERT INTO check_ins(user_id,location_id,checked_in_at) VALUES (?,?,?)";
+
+    private CheckInQueries() {
+
+    }
+}
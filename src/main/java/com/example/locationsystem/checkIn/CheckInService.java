@@ -0,0 +1,8 @@
+package com.example.locationsystem.checkIn;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface CheckInService {
+
+    CompletableFuture<Void> checkIn(Long userId, Long locationId);
+}
@@ -0,0 +1,35 @@
+package com.example.locationsystem.checkIn;
+
+import com.example.locationsystem.acl.AccessControlService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A user can check in at a location they own or that is shared with them. The check-in is only queued here, see
+ * {@link CheckInIngester}.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CheckInServiceImpl implements CheckInService {
+
+    AccessControlService accessControlService;
+    CheckInIngester checkInIngester;
+
+    @Override
+    public CompletableFuture<Void> checkIn(Long userId, Long locationId) {
+
+        return accessControlService.checkCanView(userId, locationId)
+            .thenRun(() -> {
+                checkInIngester.submit(new CheckIn(userId, locationId, new Timestamp(System.currentTimeMillis())));
+                log.debug("Check-in of user id={} at location id={} queued", userId, locationId);
+            });
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.locationsystem.checkIn;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static com.example.locationsystem.checkIn.CheckInQueries.*;
+
+/**
+ * Used in every DAO mode; check-ins are written from the ingester's own threads and, like the history, stay on the
+ * primary when sharding is on.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JdbcCheckInDao implements CheckInDao {
+
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void saveCheckIns(List<CheckIn> checkIns) {
+
+        jdbcTemplate.batchUpdate(SAVE_CHECK_IN, checkIns, checkIns.size(), (ps, checkIn) -> {
+            ps.setLong(1, checkIn.getUserId());
+            ps.setLong(2, checkIn.getLocationId());
+            ps.setTimestamp(3, checkIn.getCheckedInAt());
+        });
+        log.debug("{} check-ins inserted", checkIns.size());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.locationsystem.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fixed-size executors with a bounded queue that reject with a {@link RejectedExecutionException} once the queue is
+ * full, and report {@code <metricPrefix>.rejected}, {@code .queue.size} and {@code .active}.
+ */
+@Log4j2
+final class BoundedExecutors {
+
+    private BoundedExecutors() {
+
+    }
+
+    static ThreadPoolTaskExecutor boundedExecutor(
+        String description,
+        String threadNamePrefix,
+        int poolSize,
+        int queueCapacity,
+        String metricPrefix,
+        Tags tags,
+        MeterRegistry meterRegistry
+    ) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+
+        Counter rejected = Counter.builder(metricPrefix + ".rejected")
+            .tags(tags)
+            .register(meterRegistry);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            log.warn("Task rejected by {}, queue size={}", description, pool.getQueue().size());
+            throw new RejectedExecutionException(description + " is saturated");
+        });
+
+        Gauge.builder(metricPrefix + ".queue.size", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+            .tags(tags)
+            .register(meterRegistry);
+        Gauge.builder(metricPrefix + ".active", executor, ThreadPoolTaskExecutor::getActiveCount)
+            .tags(tags)
+            .register(meterRegistry);
+        return executor;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.locationsystem.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static com.example.locationsystem.config.BoundedExecutors.boundedExecutor;
+
+/**
+ * Pool that reads the request bodies of bulk imports between batches, so a slow upload blocks one of these threads
+ * rather than a DAO executor thread.
+ */
+@Configuration
+public class BulkImportConfig {
+
+    public static final String BULK_READ_EXECUTOR = "bulkReadExecutor";
+
+    @Bean(BULK_READ_EXECUTOR)
+    public ThreadPoolTaskExecutor bulkReadExecutor(
+        @Value("${location.bulk.reader.pool-size:4}") int poolSize,
+        @Value("${location.bulk.reader.queue-capacity:100}") int queueCapacity,
+        MeterRegistry meterRegistry
+    ) {
+
+        return boundedExecutor("bulk read executor", "bulk-read-", poolSize, queueCapacity, "bulk.read.executor",
+            Tags.empty(), meterRegistry);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.locationsystem.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.example.locationsystem.config.BoundedExecutors.boundedExecutor;
+
+/**
+ * Bounded executors for the blocking JDBC calls of each DAO, so one saturated DAO can not starve the others and
+ * overload turns into a fast rejection instead of an ever-growing queue.
+ * Pool sizes are expected to add up to the connection pool size. Each task records how long it waited in the queue and
+ * how long it ran, so a slow DAO call can be told apart from a saturated pool.
+ */
+@Configuration
+public class DaoExecutorConfig {
+
+    public static final String LOCATION_DAO_EXECUTOR = "locationDaoExecutor";
+    public static final String USER_DAO_EXECUTOR = "userDaoExecutor";
+    public static final String USER_ACCESS_DAO_EXECUTOR = "userAccessDaoExecutor";
+
+    @Bean(LOCATION_DAO_EXECUTOR)
+    public ThreadPoolTaskExecutor locationDaoExecutor(
+        @Value("${dao.executor.location.pool-size:8}") int poolSize,
+        @Value("${dao.executor.location.queue-capacity:200}") int queueCapacity,
+        MeterRegistry meterRegistry
+    ) {
+
+        return daoExecutor("location", poolSize, queueCapacity, meterRegistry);
+    }
+
+    @Bean(USER_DAO_EXECUTOR)
+    public ThreadPoolTaskExecutor userDaoExecutor(
+        @Value("${dao.executor.user.pool-size:6}") int poolSize,
+        @Value("${dao.executor.user.queue-capacity:200}") int queueCapacity,
+        MeterRegistry meterRegistry
+    ) {
+
+        return daoExecutor("user", poolSize, queueCapacity, meterRegistry);
+    }
+
+    @Bean(USER_ACCESS_DAO_EXECUTOR)
+    public ThreadPoolTaskExecutor userAccessDaoExecutor(
+        @Value("${dao.executor.user-access.pool-size:6}") int poolSize,
+        @Value("${dao.executor.user-access.queue-capacity:200}") int queueCapacity,
+        MeterRegistry meterRegistry
+    ) {
+
+        return daoExecutor("userAccess", poolSize, queueCapacity, meterRegistry);
+    }
+
+    private ThreadPoolTaskExecutor daoExecutor(
+        String name,
+        int poolSize,
+        int queueCapacity,
+        MeterRegistry meterRegistry
+    ) {
+
+        ThreadPoolTaskExecutor executor = boundedExecutor(name + " DAO executor", name + "-dao-", poolSize,
+            queueCapacity, "dao.executor", Tags.of("dao", name), meterRegistry);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+
+        Timer queueWait = Timer.builder("dao.executor.queue.wait")
+            .tag("dao", name)
+            .register(meterRegistry);
+        Timer execution = Timer.builder("dao.executor.execution")
+            .tag("dao", name)
+            .register(meterRegistry);
+        executor.setTaskDecorator(task -> {
+            long queuedAt = System.nanoTime();
+            return () -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    execution.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        });
+        return executor;
+    }
+}
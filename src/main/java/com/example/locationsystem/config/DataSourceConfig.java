@@ -0,0 +1,76 @@
+package com.example.locationsystem.config;
+
+import com.example.locationsystem.replica.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The primary pool is configured from {@code spring.datasource.*} as before. Each URL in
+ * {@code datasource.replicas.urls} gets a read-only pool with the same settings, and the
+ * {@link ReplicaRoutingDataSource} in front of them is the application's data source. Without replica URLs
+ * everything goes to the primary.
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public ReplicaRoutingDataSource dataSource(
+        HikariDataSource primaryDataSource,
+        @Value("${datasource.replicas.urls:}") List<String> replicaUrls,
+        @Value("${datasource.replicas.connection-timeout:250ms}") Duration connectionTimeout,
+        @Value("${datasource.replicas.health-check-interval:5s}") Duration healthCheckInterval,
+        MeterRegistry meterRegistry
+    ) {
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (!url.trim().isEmpty()) {
+                replicas.add(replica(primaryDataSource, url.trim(), replicas.size(), connectionTimeout,
+                    meterRegistry));
+            }
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, healthCheckInterval);
+    }
+
+    /**
+     * A replica that is down at startup does not fail it, and a replica that stops answering gives up after
+     * {@code connectionTimeout} so the read can move to the primary quickly. Only the primary pool is a bean, so
+     * replicas report their {@code hikaricp.*} metrics, connection acquire time included, through their own tracker.
+     */
+    private static HikariDataSource replica(HikariDataSource primary, String url, int index,
+                                            Duration connectionTimeout, MeterRegistry meterRegistry) {
+
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName("replica-" + index);
+        config.setJdbcUrl(url);
+        config.setReadOnly(true);
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.locationsystem.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static com.example.locationsystem.config.BoundedExecutors.boundedExecutor;
+
+/**
+ * Small CPU-bound pool for password hashing, kept apart from the DAO executors so a burst of logins can not take
+ * threads away from queries.
+ */
+@Configuration
+public class PasswordHashingConfig {
+
+    public static final String PASSWORD_HASH_EXECUTOR = "passwordHashExecutor";
+
+    @Bean(PASSWORD_HASH_EXECUTOR)
+    public ThreadPoolTaskExecutor passwordHashExecutor(
+        @Value("${password.hashing.pool-size:2}") int poolSize,
+        @Value("${password.hashing.queue-capacity:100}") int queueCapacity,
+        MeterRegistry meterRegistry
+    ) {
+
+        return boundedExecutor("password hash executor", "password-hash-", poolSize, queueCapacity,
+            "password.hash.executor", Tags.empty(), meterRegistry);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.locationsystem.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Non-blocking data access, enabled with {@code dao.mode=r2dbc}. The R2DBC DAOs then replace the JDBC ones, while
+ * Flyway and the rest of the application keep using the regular JDBC data source.
+ */
+@Configuration
+@ConditionalOnProperty(name = "dao.mode", havingValue = "r2dbc")
+public class R2dbcConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(
+        @Value("${dao.r2dbc.url}") String url,
+        @Value("${spring.datasource.username}") String username,
+        @Value("${spring.datasource.password}") String password,
+        @Value("${dao.r2dbc.pool-size:20}") int poolSize
+    ) {
+
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+            .option(ConnectionFactoryOptions.USER, username)
+            .option(ConnectionFactoryOptions.PASSWORD, password)
+            .build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+            .maxSize(poolSize)
+            .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+
+        return DatabaseClient.create(connectionFactory);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.locationsystem.config;
+
+import com.example.locationsystem.location.JdbcLocationDao;
+import com.example.locationsystem.replica.ReplicaRouter;
+import com.example.locationsystem.shard.Shard;
+import com.example.locationsystem.shard.ShardIdGenerator;
+import com.example.locationsystem.shard.ShardMap;
+import com.example.locationsystem.shard.Shards;
+import com.example.locationsystem.user.JdbcUserDao;
+import com.example.locationsystem.userAccess.JdbcUserAccessDao;
+import com.example.locationsystem.util.EmailUtil;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * With {@code dao.mode=sharded} users, locations and accesses are spread over the databases in
+ * {@code datasource.shards.urls}. Shards are numbered by their position in the list, so new shards go at the end.
+ * Each one gets a pool with the settings of the primary pool, is migrated on startup, and gets its own JDBC DAOs. The
+ * primary keeps everything that is not sharded, such as the history.
+ */
+@Configuration
+@ConditionalOnProperty(name = "dao.mode", havingValue = "sharded")
+public class ShardConfig {
+
+    /**
+     * Tables only the shards have, on top of the common migrations.
+     */
+    static final String SHARD_MIGRATIONS = "classpath:db/shard";
+
+    @Bean
+    public Shards shards(
+        HikariDataSource primaryDataSource,
+        @Value("${datasource.shards.urls}") List<String> urls,
+        @Value("${datasource.shards.virtual-nodes:64}") int virtualNodes,
+        @Value("${datasource.shards.id-block-size:100}") int idBlockSize,
+        ReplicaRouter replicaRouter,
+        EmailUtil emailUtil,
+        @Qualifier(DaoExecutorConfig.LOCATION_DAO_EXECUTOR) Executor locationDaoExecutor,
+        @Qualifier(DaoExecutorConfig.USER_DAO_EXECUTOR) Executor userDaoExecutor,
+        @Qualifier(DaoExecutorConfig.USER_ACCESS_DAO_EXECUTOR) Executor userAccessDaoExecutor,
+        MeterRegistry meterRegistry
+    ) {
+
+        List<String> shardUrls = urls.stream().map(String::trim).filter(url -> !url.isEmpty())
+            .collect(Collectors.toList());
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        List<Shard> shards = new ArrayList<>();
+        for (int index = 0; index < shardUrls.size(); index++) {
+            HikariDataSource dataSource = shardDataSource(primaryDataSource, shardUrls.get(index), index,
+                meterRegistry);
+            dataSources.add(dataSource);
+            Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration", SHARD_MIGRATIONS)
+                .load()
+                .migrate();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            shards.add(new Shard(index, jdbcTemplate,
+                new ShardIdGenerator(jdbcTemplate, index, idBlockSize),
+                new JdbcLocationDao(jdbcTemplate, replicaRouter, locationDaoExecutor),
+                new JdbcUserDao(jdbcTemplate, replicaRouter, emailUtil, userDaoExecutor),
+                new JdbcUserAccessDao(jdbcTemplate, replicaRouter, userAccessDaoExecutor)));
+        }
+        return new Shards(new ShardMap(shards.size(), virtualNodes), shards, dataSources);
+    }
+
+    private static HikariDataSource shardDataSource(
+        HikariDataSource primary,
+        String url,
+        int index,
+        MeterRegistry meterRegistry
+    ) {
+
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName("shard-" + index);
+        config.setJdbcUrl(url);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.locationsystem.event;
+
+/**
+ * What an {@link ObjectChangeEvent} can carry besides the id of the changed object.
+ */
+public interface ChangedEntity {
+
+}
@@ -0,0 +1,164 @@
+package com.example.locationsystem.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends history events to a local {@link EventLog} on the request path and forwards them to the {@code history}
+ * table in batches from a background thread. The sequence of the next record to forward is kept in a checkpoint file
+ * that is replaced only after a batch is inserted, so a crash or a failed insert replays the batch: delivery is
+ * at least once. Segments below the checkpoint are deleted. Enabled with {@code history.log.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "history.log.enabled", havingValue = "true")
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class DurableHistoryWriter implements HistoryRecorder {
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    EventLog eventLog;
+    EventDao eventDao;
+    int batchSize;
+    Path checkpointFile;
+    ScheduledExecutorService scheduler;
+
+    Counter appendFailedCounter;
+    Counter forwardFailedCounter;
+
+    @NonFinal
+    volatile long checkpoint;
+
+    public DurableHistoryWriter(
+        EventDao eventDao,
+        MeterRegistry meterRegistry,
+        @Value("${history.log.directory:history-log}") String directory,
+        @Value("${history.log.segment-size:4MB}") DataSize segmentSize,
+        @Value("${history.log.fsync:INTERVAL}") EventLog.FsyncPolicy fsyncPolicy,
+        @Value("${history.log.fsync-interval:1s}") Duration fsyncInterval,
+        @Value("${history.log.batch-size:500}") int batchSize,
+        @Value("${history.log.forward-interval:200ms}") Duration forwardInterval
+    ) throws IOException {
+
+        this.eventDao = eventDao;
+        this.batchSize = batchSize;
+        this.eventLog = new EventLog(Paths.get(directory), (int) segmentSize.toBytes(), fsyncPolicy);
+        this.checkpointFile = Paths.get(directory, CHECKPOINT_FILE);
+        this.checkpoint = Math.max(readCheckpoint(), eventLog.firstSequence());
+
+        this.appendFailedCounter = meterRegistry.counter("history.log.append.failed");
+        this.forwardFailedCounter = meterRegistry.counter("history.log.forward.failed");
+        Gauge.builder("history.log.backlog", this, writer -> writer.eventLog.nextSequence() - writer.checkpoint)
+            .description("Events appended to the local log but not yet in the history table")
+            .register(meterRegistry);
+
+        this.scheduler = Executors.newScheduledThreadPool(2, new CustomizableThreadFactory("history-log-"));
+        long forwardMillis = forwardInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::forwardQuietly, forwardMillis, forwardMillis, TimeUnit.MILLISECONDS);
+        if (fsyncPolicy == EventLog.FsyncPolicy.INTERVAL) {
+            long fsyncMillis = fsyncInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(eventLog::force, fsyncMillis, fsyncMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void enqueue(ObjectChangeEvent event) {
+
+        try {
+            eventLog.append(event);
+        } catch (IOException | RuntimeException e) {
+            appendFailedCounter.increment();
+            log.error("Failed to append event with object type={}, action type={}, object id={} to event log",
+                event.getObjectType().name(), event.getActionType().name(), event.getObjectId(), e);
+        }
+    }
+
+    @Override
+    public void flush() {
+
+        forward();
+    }
+
+    /**
+     * Forwards everything appended so far, one batch at a time, advancing the checkpoint after each insert.
+     */
+    public synchronized void forward() {
+
+        try {
+            while (checkpoint < eventLog.nextSequence()) {
+                EventLog.Batch batch = eventLog.read(checkpoint, batchSize);
+                if (!batch.getEvents().isEmpty()) {
+                    eventDao.insertEvents(batch.getEvents());
+                }
+                writeCheckpoint(batch.getNextSequence());
+                checkpoint = batch.getNextSequence();
+                eventLog.deleteSegmentsBefore(checkpoint);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        forwardQuietly();
+        eventLog.close();
+    }
+
+    private void forwardQuietly() {
+
+        try {
+            forward();
+        } catch (RuntimeException e) {
+            forwardFailedCounter.increment();
+            log.error("Failed to forward event log from sequence={}, will retry", checkpoint, e);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        String content = new String(Files.readAllBytes(checkpointFile), StandardCharsets.US_ASCII).trim();
+        try {
+            return Long.parseLong(content);
+        } catch (NumberFormatException e) {
+            log.warn("Event log checkpoint '{}' is unreadable, forwarding from the oldest segment", content);
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+
+        Path temp = checkpointFile.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        Files.write(temp, Long.toString(sequence).getBytes(StandardCharsets.US_ASCII));
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
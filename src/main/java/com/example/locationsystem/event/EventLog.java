@@ -0,0 +1,270 @@
+package com.example.locationsystem.event;
+
+import lombok.AccessLevel;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of {@link ObjectChangeEvent}s in fixed-size memory-mapped segment files named after the sequence
+ * number of their first record. Every record is {@value #RECORD_SIZE} bytes:
+ * <pre>
+ *  0  int   CRC32 of bytes 4..23
+ *  4  byte  object type ordinal
+ *  5  byte  action type ordinal
+ *  6  short reserved
+ *  8  long  event time, epoch millis
+ * 16  long  object id
+ * </pre>
+ * Segments are preallocated with zeros, so on startup the last segment is scanned up to the first record whose CRC does
+ * not match, which also drops a record torn by a crash.
+ */
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class EventLog implements Closeable {
+
+    public enum FsyncPolicy {
+        /**
+         * Force every record to disk before {@link #append} returns.
+         */
+        ALWAYS,
+        /**
+         * Leave forcing to the caller, see {@link #force()}.
+         */
+        INTERVAL,
+        /**
+         * Let the OS write pages back whenever it likes; survives a process crash but not a power loss.
+         */
+        NONE
+    }
+
+    static final int RECORD_SIZE = 24;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final ObjectChangeEvent.ObjectType[] OBJECT_TYPES = ObjectChangeEvent.ObjectType.values();
+    private static final ObjectChangeEvent.ActionType[] ACTION_TYPES = ObjectChangeEvent.ActionType.values();
+
+    final Path directory;
+    final int recordsPerSegment;
+    final FsyncPolicy fsyncPolicy;
+    final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    MappedByteBuffer active;
+    long activeBase;
+    volatile long nextSequence;
+
+    public EventLog(Path directory, int segmentSize, FsyncPolicy fsyncPolicy) throws IOException {
+
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment size must hold at least one record");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.recordsPerSegment = segmentSize / RECORD_SIZE;
+        this.fsyncPolicy = fsyncPolicy;
+        recover();
+    }
+
+    /**
+     * Sequence number the next appended record gets; every record below it can be read.
+     */
+    public long nextSequence() {
+
+        return nextSequence;
+    }
+
+    /**
+     * Sequence number of the oldest record still on disk.
+     */
+    public synchronized long firstSequence() throws IOException {
+
+        TreeMap<Long, Path> segments = segments();
+        return segments.isEmpty() ? activeBase : segments.firstKey();
+    }
+
+    public synchronized long append(ObjectChangeEvent event) throws IOException {
+
+        if (nextSequence - activeBase == recordsPerSegment) {
+            roll();
+        }
+
+        ((Buffer) record).clear();
+        record.putInt(0)
+            .put((byte) event.getObjectType().ordinal())
+            .put((byte) event.getActionType().ordinal())
+            .putShort((short) 0)
+            .putLong(event.getEventTime().getTime())
+            .putLong(event.getObjectId());
+        record.putInt(0, checksum(record.array()));
+        ((Buffer) record).flip();
+
+        ((Buffer) active).position((int) (nextSequence - activeBase) * RECORD_SIZE);
+        active.put(record);
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            active.force();
+        }
+        return nextSequence++;
+    }
+
+    public synchronized void force() {
+
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    /**
+     * Reads up to {@code max} records starting at {@code from}, stopping at the end of its segment. Records that fail
+     * their CRC are skipped and logged.
+     */
+    public Batch read(long from, int max) throws IOException {
+
+        long base = from - from % recordsPerSegment;
+        long end;
+        ByteBuffer segment;
+        synchronized (this) {
+            end = Math.min(Math.min(nextSequence, base + recordsPerSegment), from + max);
+            segment = base == activeBase ? active.duplicate() : null;
+        }
+        if (from >= end) {
+            return new Batch(new ArrayList<>(), from);
+        }
+        if (segment == null) {
+            segment = map(segmentPath(base), FileChannel.MapMode.READ_ONLY);
+        }
+
+        List<ObjectChangeEvent> events = new ArrayList<>((int) (end - from));
+        byte[] bytes = new byte[RECORD_SIZE];
+        for (long sequence = from; sequence < end; sequence++) {
+            ((Buffer) segment).position((int) (sequence - base) * RECORD_SIZE);
+            segment.get(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt(0) != checksum(bytes)) {
+                log.error("Event log record with sequence={} is corrupt and skipped", sequence);
+                continue;
+            }
+            events.add(new ObjectChangeEvent(this, OBJECT_TYPES[buffer.get(4)], ACTION_TYPES[buffer.get(5)],
+                new Timestamp(buffer.getLong(8)), buffer.getLong(16)));
+        }
+        return new Batch(events, end);
+    }
+
+    /**
+     * Deletes segments whose records are all below {@code sequence}. The segment being appended to is kept.
+     */
+    public synchronized void deleteSegmentsBefore(long sequence) throws IOException {
+
+        for (Long base : segments().headMap(activeBase).keySet()) {
+            if (base + recordsPerSegment <= sequence) {
+                Files.deleteIfExists(segmentPath(base));
+                log.info("Event log segment with base sequence={} compacted", base);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+
+        force();
+        active = null;
+    }
+
+    private void recover() throws IOException {
+
+        TreeMap<Long, Path> segments = segments();
+        if (segments.isEmpty()) {
+            open(0);
+            nextSequence = 0;
+            return;
+        }
+
+        long base = segments.lastKey();
+        open(base);
+        byte[] bytes = new byte[RECORD_SIZE];
+        int valid = 0;
+        while (valid < recordsPerSegment) {
+            ((Buffer) active).position(valid * RECORD_SIZE);
+            active.get(bytes);
+            if (ByteBuffer.wrap(bytes).getInt(0) != checksum(bytes)) {
+                break;
+            }
+            valid++;
+        }
+        nextSequence = base + valid;
+        log.info("Event log recovered, segments={}, next sequence={}", segments.size(), nextSequence);
+    }
+
+    private void roll() throws IOException {
+
+        active.force();
+        open(activeBase + recordsPerSegment);
+    }
+
+    private void open(long base) throws IOException {
+
+        active = map(segmentPath(base), FileChannel.MapMode.READ_WRITE);
+        activeBase = base;
+    }
+
+    private MappedByteBuffer map(Path path, FileChannel.MapMode mode) throws IOException {
+
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_WRITE
+            ? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+            : new StandardOpenOption[]{StandardOpenOption.READ};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, (long) recordsPerSegment * RECORD_SIZE);
+        }
+    }
+
+    private TreeMap<Long, Path> segments() throws IOException {
+
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+            SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length())), path);
+            }
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long base) {
+
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+    }
+
+    private static int checksum(byte[] bytes) {
+
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 4, RECORD_SIZE - 4);
+        return (int) checksum.getValue();
+    }
+
+    @Value
+    public static class Batch {
+
+        List<ObjectChangeEvent> events;
+        /**
+         * Sequence to read from next; past any skipped records.
+         */
+        long nextSequence;
+    }
+}
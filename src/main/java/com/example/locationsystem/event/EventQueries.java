@@ -0,0 +1,11 @@
+package com.example.locationsystem.event;
+
+final class EventQueries {
+
+    static final String INSERT_EVENT = "INSERT INTO history (object_type, action_type, event_time, object_id) " +
+        "VALUES (?, ?, ?, ?)";
+
+    private EventQueries() {
+
+    }
+}
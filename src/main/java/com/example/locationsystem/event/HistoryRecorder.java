@@ -0,0 +1,15 @@
+package com.example.locationsystem.event;
+
+/**
+ * Takes history events off the request path. {@link HistoryWriter} buffers them in memory;
+ * {@link DurableHistoryWriter} appends them to a local {@link EventLog} first.
+ */
+public interface HistoryRecorder {
+
+    void enqueue(ObjectChangeEvent event);
+
+    /**
+     * Writes every event enqueued before the call to the {@code history} table.
+     */
+    void flush();
+}
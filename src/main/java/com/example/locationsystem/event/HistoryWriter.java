@@ -0,0 +1,202 @@
+package com.example.locationsystem.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffers history events and writes them in JDBC batches from a single background thread, so requests no longer wait
+ * for the history insert. A batch is written every {@code history.writer.flush-interval}, or as soon as
+ * {@code history.writer.batch-size} events are queued.
+ * <p>
+ * The queue holds at most {@code history.writer.capacity} events. When it is full, {@code DROP} discards the new event
+ * and {@code BLOCK} makes the publishing thread wait up to {@code history.writer.block-timeout} before discarding it.
+ * {@code BLOCK} is refused when {@code dao.mode} is {@code r2dbc}, where events are published from the R2DBC event
+ * loop and waiting there would stall every query.
+ * A batch that fails to insert is logged and discarded rather than retried.
+ */
+@Component
+@ConditionalOnProperty(name = "history.log.enabled", havingValue = "false", matchIfMissing = true)
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class HistoryWriter implements HistoryRecorder {
+
+    public enum FullPolicy {
+        DROP,
+        BLOCK
+    }
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    EventDao eventDao;
+    int capacity;
+    int batchSize;
+    FullPolicy fullPolicy;
+    long blockTimeoutNanos;
+    boolean flushOnShutdown;
+
+    Queue<ObjectChangeEvent> queue = new ConcurrentLinkedQueue<>();
+    AtomicInteger size = new AtomicInteger();
+    AtomicBoolean flushScheduled = new AtomicBoolean();
+    ScheduledExecutorService scheduler;
+
+    Counter droppedCounter;
+    Counter failedCounter;
+    DistributionSummary batchSizeSummary;
+    Timer lagTimer;
+
+    public HistoryWriter(
+        EventDao eventDao,
+        MeterRegistry meterRegistry,
+        @Value("${history.writer.capacity:10000}") int capacity,
+        @Value("${history.writer.batch-size:100}") int batchSize,
+        @Value("${history.writer.flush-interval:200ms}") Duration flushInterval,
+        @Value("${history.writer.full-policy:DROP}") FullPolicy fullPolicy,
+        @Value("${history.writer.block-timeout:1s}") Duration blockTimeout,
+        @Value("${history.writer.flush-on-shutdown:true}") boolean flushOnShutdown,
+        @Value("${dao.mode:jdbc}") String daoMode
+    ) {
+
+        if (fullPolicy == FullPolicy.BLOCK && "r2dbc".equals(daoMode)) {
+            throw new IllegalArgumentException("history.writer.full-policy=BLOCK would block the R2DBC event loop, "
+                + "use DROP with dao.mode=r2dbc");
+        }
+
+        this.eventDao = eventDao;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.fullPolicy = fullPolicy;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.flushOnShutdown = flushOnShutdown;
+
+        this.droppedCounter = meterRegistry.counter("history.writer.dropped");
+        this.failedCounter = meterRegistry.counter("history.writer.failed");
+        this.batchSizeSummary = DistributionSummary.builder("history.writer.batch.size").register(meterRegistry);
+        this.lagTimer = Timer.builder("history.writer.lag")
+            .description("Time from the change to its history row being written")
+            .register(meterRegistry);
+        Gauge.builder("history.writer.queue.size", size, AtomicInteger::get).register(meterRegistry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("history-writer-"));
+        long intervalMillis = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void enqueue(ObjectChangeEvent event) {
+
+        if (!reserveSlot()) {
+            droppedCounter.increment();
+            log.warn("History queue is full, event with object type={}, action type={}, object id={} dropped",
+                event.getObjectType().name(), event.getActionType().name(), event.getObjectId());
+            return;
+        }
+        queue.offer(event);
+
+        if (size.get() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far. Synchronized so a caller returns only after events queued before the call are
+     * in the database, even if the background thread picked some of them up.
+     */
+    @Override
+    public synchronized void flush() {
+
+        flushScheduled.set(false);
+        List<ObjectChangeEvent> batch = new ArrayList<>(batchSize);
+        ObjectChangeEvent event;
+        while ((event = queue.poll()) != null) {
+            size.decrementAndGet();
+            batch.add(event);
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        if (flushOnShutdown) {
+            flush();
+        } else if (size.get() > 0) {
+            log.warn("{} history events discarded on shutdown", size.get());
+        }
+    }
+
+    private boolean reserveSlot() {
+
+        long deadline = 0;
+        while (true) {
+            int current = size.get();
+            if (current < capacity) {
+                if (size.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+                continue;
+            }
+            if (fullPolicy == FullPolicy.DROP) {
+                return false;
+            }
+            if (deadline == 0) {
+                deadline = System.nanoTime() + blockTimeoutNanos;
+            } else if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
+
+    private void write(List<ObjectChangeEvent> batch) {
+
+        try {
+            eventDao.insertEvents(batch);
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to insert {} history events", batch.size(), e);
+            return;
+        }
+
+        batchSizeSummary.record(batch.size());
+        long now = System.currentTimeMillis();
+        for (ObjectChangeEvent event : batch) {
+            lagTimer.record(now - event.getEventTime().getTime(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.locationsystem.event;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.util.List;
+
+import static com.example.locationsystem.event.EventQueries.*;
+
+/**
+ * Used in the sharded DAO mode too, where the history stays on the primary.
+ */
+@Component
+@ConditionalOnExpression("'${dao.mode:jdbc}' != 'r2dbc'")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JdbcEventDao implements EventDao {
+
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertEvents(List<ObjectChangeEvent> events) {
+
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getObjectType().name());
+            ps.setString(2, event.getActionType().name());
+            ps.setTimestamp(3, event.getEventTime());
+            if (event.getObjectId() != null) {
+                ps.setLong(4, event.getObjectId());
+            } else {
+                ps.setNull(4, Types.INTEGER);
+            }
+        });
+        log.info("{} events inserted", events.size());
+    }
+
+}
@@ -11,11 +11,18 @@ import java.sql.Timestamp;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class ObjectChangeEvent extends ApplicationEvent {
 
+    /**
+     * Stored by ordinal in the {@link EventLog}, so new constants go at the end.
+     */
     public enum ActionType {
         CREATED,
-        DELETED
+        DELETED,
+        UPDATED
     }
 
+    /**
+     * Stored by ordinal in the {@link EventLog}, so new constants go at the end.
+     */
     public enum ObjectType {
         USER,
         LOCATION,
@@ -26,6 +33,10 @@ public class ObjectChangeEvent extends ApplicationEvent {
     ActionType actionType;
     Timestamp eventTime;
     Long objectId;
+    /**
+     * The changed object when listeners need more than its id, {@code null} otherwise.
+     */
+    ChangedEntity entity;
 
     public ObjectChangeEvent(
         Object source,
@@ -35,10 +46,23 @@ public class ObjectChangeEvent extends ApplicationEvent {
         Long objectId
     ) {
 
+        this(source, objectType, actionType, eventTime, objectId, null);
+    }
+
+    public ObjectChangeEvent(
+        Object source,
+        ObjectType objectType,
+        ActionType actionType,
+        Timestamp eventTime,
+        Long objectId,
+        ChangedEntity entity
+    ) {
+
         super(source);
         this.objectType = objectType;
         this.actionType = actionType;
         this.eventTime = eventTime;
         this.objectId = objectId;
+        this.entity = entity;
     }
 }
@@ -11,12 +11,11 @@ import org.springframework.stereotype.Component;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class ObjectChangeHistoryListener {
 
-    EventDao eventDao;
+    HistoryRecorder historyRecorder;
 
     @EventListener(ObjectChangeEvent.class)
     public void insertEvent(ObjectChangeEvent event) {
 
-        eventDao.insertEvent(event.getObjectType(), event.getActionType(), event.getEventTime(), event.getObjectId());
+        historyRecorder.enqueue(event);
     }
 }
-
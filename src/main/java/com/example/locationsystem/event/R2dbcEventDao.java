@@ -0,0 +1,55 @@
+package com.example.locationsystem.event;
+
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static com.example.locationsystem.event.EventQueries.*;
+
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "r2dbc")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class R2dbcEventDao implements EventDao {
+
+    DatabaseClient databaseClient;
+
+    /**
+     * Called from the history writer thread, never from the driver's event loop, so waiting for the batch is fine.
+     */
+    @Override
+    public void insertEvents(List<ObjectChangeEvent> events) {
+
+        databaseClient.inConnectionMany(connection -> {
+                Statement statement = connection.createStatement(INSERT_EVENT);
+                for (int i = 0; i < events.size(); i++) {
+                    if (i > 0) {
+                        statement.add();
+                    }
+                    ObjectChangeEvent event = events.get(i);
+                    statement.bind(0, event.getObjectType().name())
+                        .bind(1, event.getActionType().name())
+                        .bind(2, event.getEventTime().toLocalDateTime());
+                    if (event.getObjectId() != null) {
+                        statement.bind(3, event.getObjectId());
+                    } else {
+                        statement.bindNull(3, Long.class);
+                    }
+                }
+                return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+            })
+            .then()
+            .block();
+        log.info("{} events inserted", events.size());
+    }
+}
@@ -81,4 +81,28 @@ public class ControllerExceptions {
             super(message);
         }
     }
+
+    public static class MalformedBulkRequestException extends RuntimeException {
+
+        public MalformedBulkRequestException(String message) {
+
+            super(message);
+        }
+    }
+
+    public static class InvalidNearbyQueryException extends RuntimeException {
+
+        public InvalidNearbyQueryException(String message) {
+
+            super(message);
+        }
+    }
+
+    public static class InvalidSearchQueryException extends RuntimeException {
+
+        public InvalidSearchQueryException(String message) {
+
+            super(message);
+        }
+    }
 }
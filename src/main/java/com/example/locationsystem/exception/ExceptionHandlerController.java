@@ -1,25 +1,46 @@
 package com.example.locationsystem.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.web.servlet.error.ErrorAttributes;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import com.example.locationsystem.exception.ControllerExceptions.*;
 
+/**
+ * Maps exceptions to responses and counts them in {@code http.server.errors} by exception and status. The exception is
+ * also left on the request, so {@code http.server.requests} carries it in its {@code exception} tag.
+ */
 @RestControllerAdvice
 @Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class ExceptionHandlerController {
 
+    MeterRegistry meterRegistry;
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Void> handleValidationException(MethodArgumentNotValidException ex) {
+    public ResponseEntity<Void> handleValidationException(
+        MethodArgumentNotValidException ex,
+        HttpServletRequest request
+    ) {
+
+        count(request, ex, HttpStatus.BAD_REQUEST);
 
         List<ObjectError> errors = ex.getBindingResult().getAllErrors();
         String errorMessage = errors.stream()
@@ -35,12 +56,37 @@ public class ExceptionHandlerController {
     @ExceptionHandler({AlreadyExistsException.class,
         InvalidLoginOrPasswordException.class, LocationNotFoundException.class, UserNotFoundException.class,
         LocationOrUserNotFoundException.class, UserAccessNotFoundException.class, NotLoggedInException.class,
-        UserSaveException.class, LocationSaveException.class, UserAccessSaveException.class})
-    public ResponseEntity<Void> handleControllerException(RuntimeException e) {
+        UserSaveException.class, LocationSaveException.class, UserAccessSaveException.class,
+        MalformedBulkRequestException.class, InvalidNearbyQueryException.class,
+        InvalidSearchQueryException.class})
+    public ResponseEntity<Void> handleControllerException(RuntimeException e, HttpServletRequest request) {
+
+        count(request, e, HttpStatus.BAD_REQUEST);
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("errorMessage", e.getMessage());
         return ResponseEntity.badRequest().headers(headers).build();
     }
-}
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> handleRejectedExecutionException(
+        RejectedExecutionException e,
+        HttpServletRequest request
+    ) {
+
+        count(request, e, HttpStatus.SERVICE_UNAVAILABLE);
+        log.warn("Request rejected: {}", e.getMessage());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("errorMessage", "Service is busy, try again later");
+        headers.add(HttpHeaders.RETRY_AFTER, "1");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).headers(headers).build();
+    }
+
+    private void count(HttpServletRequest request, Exception e, HttpStatus status) {
+
+        request.setAttribute(ErrorAttributes.ERROR_ATTRIBUTE, e);
+        meterRegistry.counter("http.server.errors", "exception", e.getClass().getSimpleName(),
+            "status", String.valueOf(status.value())).increment();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.locationsystem.location;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one row of a bulk location import. Rows are numbered from 1 in the order they appear in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkLocationResult {
+
+    private int row;
+
+    private String name;
+
+    private Status status;
+
+    private Long id;
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID
+    }
+}
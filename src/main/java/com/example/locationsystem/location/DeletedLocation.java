@@ -0,0 +1,23 @@
+package com.example.locationsystem.location;
+
+import com.example.locationsystem.event.ChangedEntity;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * The entity of a location {@code DELETED} event.
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class DeletedLocation implements ChangedEntity {
+
+    Location location;
+    /**
+     * The owner and every user the location was shared with, taken from the access control index as the location
+     * was removed from it, or {@code null} when the index was not ready and could not tell.
+     */
+    long[] userIds;
+}
@@ -0,0 +1,315 @@
+package com.example.locationsystem.location;
+
+import com.example.locationsystem.config.DaoExecutorConfig;
+import com.example.locationsystem.replica.ReplicaRouter;
+import com.example.locationsystem.util.SqlUtil;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.location.LocationQueries.*;
+import static com.example.locationsystem.util.SqlUtil.insert;
+import static com.example.locationsystem.util.SqlUtil.placeholders;
+import static com.example.locationsystem.util.SqlUtil.deleteReturningId;
+
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "jdbc", matchIfMissing = true)
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JdbcLocationDao implements LocationDao {
+
+    JdbcTemplate jdbcTemplate;
+    ReplicaRouter replicaRouter;
+
+    @Qualifier(DaoExecutorConfig.LOCATION_DAO_EXECUTOR)
+    Executor executor;
+
+    @Override
+    public CompletableFuture<List<Location>> findUserLocations(Long userId, long afterId, int limit) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(userId, () -> {
+            List<Location> locations = jdbcTemplate.query(FIND_USER_LOCATIONS_PAGE,
+                LocationRowMapper.INSTANCE, userId, afterId, limit, userId, afterId, limit, limit);
+            log.info("{} user locations by user id={} after id={} found", locations.size(), userId, afterId);
+            return locations;
+        }), executor);
+    }
+
+    /**
+     * Reads the rows through a MySQL streaming result set (fetch size {@code Integer.MIN_VALUE}), so they are handed
+     * to {@code consumer} as they arrive. If the consumer throws, the query is cancelled before the result set is
+     * closed; otherwise closing it would read every remaining row first.
+     */
+    @Override
+    public CompletableFuture<Long> streamUserLocations(Long userId, Consumer<Location> consumer) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(userId, () ->
+            jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(STREAM_USER_LOCATIONS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(Integer.MIN_VALUE);
+                    ps.setLong(1, userId);
+                    ps.setLong(2, userId);
+                    ps.setLong(3, userId);
+                    long rows = 0;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        try {
+                            while (rs.next()) {
+                                consumer.accept(LocationRowMapper.INSTANCE.mapRow(rs, (int) rows));
+                                rows++;
+                            }
+                        } catch (RuntimeException e) {
+                            ps.cancel();
+                            throw e;
+                        }
+                    }
+                    log.info("{} user locations by user id={} streamed", rows, userId);
+                    return rows;
+                }
+            })), executor);
+    }
+
+    @Override
+    public CompletableFuture<Location> findLocationInUserLocations(Long userId, Long locationId) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(userId, () ->
+            jdbcTemplate.query(FIND_LOCATION_IN_USER_LOCATIONS,
+                    LocationRowMapper.INSTANCE, userId, locationId, userId, locationId)
+                .stream()
+                .peek(loc -> log.info("Location found in user locations by user id={} and location id={}",
+                    userId, locationId))
+                .findFirst()
+                .orElseThrow(() -> {
+                        log.warn("Location not found in user locations by user id={} and location id={}", userId,
+                            locationId);
+                        throw new LocationNotFoundException("Location not found");
+                    }
+                )), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Location>> findLocationByNameAndUserId(String name, Long userId) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(userId, () ->
+            jdbcTemplate.query(FIND_LOCATION_BY_NAME_AND_USER_ID,
+                    LocationRowMapper.INSTANCE, name, userId)
+                .stream()
+                .peek(location -> log.info("Location found by name={} and user id={}", name, userId))
+                .findFirst()), executor);
+    }
+
+    @Override
+    public CompletableFuture<Location> saveLocation(Location location) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                location.setId(insert(jdbcTemplate, location.getId(), SAVE_LOCATION, location.getName(),
+                    location.getAddress(), location.getUserId(), location.getLatitude(), location.getLongitude()));
+                replicaRouter.stickToPrimary(location.getUserId());
+                log.info("Location saved={}", location);
+                return location;
+            } catch (DataAccessException e) {
+                if (SqlUtil.isDuplicateKey(e)) {
+                    log.warn("Location with name={} already exists for user id={}", location.getName(),
+                        location.getUserId());
+                    throw new AlreadyExistsException("Location with that name already exists");
+                }
+                throw new LocationSaveException("Failed to save location");
+            }
+        }, executor);
+    }
+
+    /**
+     * Runs the batch in a transaction, so a name taken meanwhile rolls all of it back and the locations are then
+     * inserted one by one, skipping those whose name is taken.
+     */
+    @Override
+    public CompletableFuture<List<Location>> saveLocations(List<Location> locations) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            List<Location> saved;
+            try {
+                saved = jdbcTemplate.execute((ConnectionCallback<List<Location>>) connection ->
+                    insertBatch(connection, locations));
+            } catch (DataAccessException e) {
+                if (!SqlUtil.isDuplicateKey(e)) {
+                    throw new LocationSaveException("Failed to save locations");
+                }
+                log.warn("Batch of {} locations hit an existing name, saving them one by one", locations.size());
+                saved = insertEach(locations);
+            }
+            saved.stream().map(Location::getUserId).distinct().forEach(replicaRouter::stickToPrimary);
+            log.info("{} of {} locations saved", saved.size(), locations.size());
+            return saved;
+        }, executor);
+    }
+
+    private static List<Location> insertBatch(Connection connection, List<Location> locations) throws SQLException {
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement ps = connection.prepareStatement(SAVE_LOCATION, Statement.RETURN_GENERATED_KEYS)) {
+            for (Location location : locations) {
+                ps.setObject(1, location.getId());
+                ps.setString(2, location.getName());
+                ps.setString(3, location.getAddress());
+                ps.setLong(4, location.getUserId());
+                ps.setObject(5, location.getLatitude());
+                ps.setObject(6, location.getLongitude());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            long[] ids = new long[locations.size()];
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length && rs.next(); i++) {
+                    ids[i] = rs.getLong(1);
+                }
+            }
+            connection.commit();
+            for (int i = 0; i < ids.length; i++) {
+                if (locations.get(i).getId() == null) {
+                    locations.get(i).setId(ids[i]);
+                }
+            }
+            return locations;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private List<Location> insertEach(List<Location> locations) {
+
+        List<Location> saved = new ArrayList<>(locations.size());
+        for (Location location : locations) {
+            try {
+                location.setId(insert(jdbcTemplate, location.getId(), SAVE_LOCATION, location.getName(),
+                    location.getAddress(), location.getUserId(), location.getLatitude(), location.getLongitude()));
+                saved.add(location);
+            } catch (DataAccessException e) {
+                if (!SqlUtil.isDuplicateKey(e)) {
+                    throw new LocationSaveException("Failed to save locations");
+                }
+                log.warn("Location with name={} already exists for user id={}", location.getName(),
+                    location.getUserId());
+            }
+        }
+        return saved;
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> findLocationNamesByUserId(Long userId, Collection<String> names) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            Object[] args = new Object[names.size() + 1];
+            args[0] = userId;
+            int i = 1;
+            for (String name : names) {
+                args[i++] = name;
+            }
+            Set<String> found = new HashSet<>(jdbcTemplate.queryForList(
+                String.format(FIND_LOCATION_NAMES_BY_USER_ID, placeholders(names.size())), String.class, args));
+            log.info("{} of {} location names found by user id={}", found.size(), names.size(), userId);
+            return found;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Location> findManagedLocation(Long userId, Long locationId) {
+
+        return CompletableFuture.supplyAsync(() ->
+            jdbcTemplate.query(FIND_MANAGED_LOCATION,
+                    LocationRowMapper.INSTANCE, locationId, userId, userId)
+                .stream()
+                .peek(loc -> log.info("Found managed location by user id={} and location id={}", userId, locationId))
+                .findFirst()
+                .orElseThrow(() -> {
+                    log.warn("Managed location not found by user id={} and location id={}", userId, locationId);
+                    throw new LocationNotFoundException("Location not found");
+                }), executor);
+    }
+
+    @Override
+    public CompletableFuture<Location> findNotSharedToUserLocation(Long ownerId, Long locId, Long userId) {
+
+        return CompletableFuture.supplyAsync(() ->
+            jdbcTemplate.query(FIND_NOT_SHARED_TO_USER_LOCATION,
+                    LocationRowMapper.INSTANCE, locId, ownerId, ownerId, userId, userId)
+                .stream()
+                .peek(loc -> log.info("Found not shared to user location by owner id={}, location id={}, user id={}",
+                    ownerId, locId, userId))
+                .findFirst()
+                .orElseThrow(() -> {
+                    log.warn("Location or user not found by owner id={}, location id={}, user to share id={}",
+                        ownerId, locId, userId);
+                    throw new LocationOrUserNotFoundException("Location or user not found");
+                }), executor);
+    }
+
+    @Override
+    public CompletableFuture<Long> deleteLocation(String name, Long userId) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            Long locationId = deleteReturningId(jdbcTemplate, DELETE_LOCATION, name, userId);
+            if (locationId == null) {
+                log.warn("Location not found by name={} and user id={}", name, userId);
+                throw new LocationNotFoundException("Location not found");
+            }
+            replicaRouter.stickToPrimary(userId);
+            log.info("Location deleted by location name={} and user id={}", name, userId);
+            return locationId;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Location> findLocationById(Long id) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(() ->
+            jdbcTemplate.query(FIND_LOCATION_BY_ID,
+                    LocationRowMapper.INSTANCE, id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> {
+                    log.warn("Location not found by id={}", id);
+                    throw new LocationNotFoundException("Location not found");
+                })), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Location>> findLocationsByIds(Collection<Long> ids) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(() -> {
+            List<Location> locations = jdbcTemplate.query(String.format(FIND_LOCATIONS_BY_IDS,
+                placeholders(ids.size())), LocationRowMapper.INSTANCE, ids.toArray());
+            log.info("{} of {} locations found by ids", locations.size(), ids.size());
+            return locations;
+        }), executor);
+    }
+}
@@ -1,14 +1,17 @@
 package com.example.locationsystem.location;
 
+import com.example.locationsystem.event.ChangedEntity;
 import lombok.Data;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
 
 @Data
 @RequiredArgsConstructor
-public class Location {
+public class Location implements ChangedEntity {
 
     private Long id;
 
@@ -23,6 +26,17 @@ public class Location {
     @NonNull
     private Long userId;
 
+    /**
+     * Optional, in degrees. Only locations with both coordinates are found by {@code /location/nearby}.
+     */
+    @DecimalMin("-90")
+    @DecimalMax("90")
+    private Double latitude;
+
+    @DecimalMin("-180")
+    @DecimalMax("180")
+    private Double longitude;
+
     public Location() {
 
     }
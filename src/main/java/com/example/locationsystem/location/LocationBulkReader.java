@@ -0,0 +1,104 @@
+package com.example.locationsystem.location;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+/**
+ * Reads the body of a bulk location import one row at a time, so a large request is never held in memory. JSON bodies
+ * are an array of location objects; CSV bodies start with a header row naming the columns ({@code name,address},
+ * optionally followed by {@code latitude,longitude}).
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LocationBulkReader {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+    ObjectMapper objectMapper;
+    CsvMapper csvMapper;
+
+    public LocationBulkReader(ObjectMapper objectMapper) {
+
+        this.objectMapper = objectMapper;
+        this.csvMapper = CsvMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    }
+
+    public Rows read(InputStream body, MediaType contentType) throws IOException {
+
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            return new Rows(csvMapper.readerFor(Location.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(body));
+        }
+        return new Rows(objectMapper.readerFor(Location.class).readValues(body));
+    }
+
+    /**
+     * Rows of the request body. {@link #next()} returns {@code null} for a row that is well-formed but cannot be mapped
+     * to a location, and throws {@link MalformedBulkRequestException} when the body itself cannot be parsed any
+     * further.
+     */
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class Rows implements Iterator<Location>, Closeable {
+
+        MappingIterator<Location> iterator;
+
+        Rows(MappingIterator<Location> iterator) {
+
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            try {
+                return iterator.hasNext();
+            } catch (RuntimeException e) {
+                throw malformed();
+            }
+        }
+
+        @Override
+        public Location next() {
+
+            try {
+                return iterator.next();
+            } catch (RuntimeJsonMappingException e) {
+                return null;
+            } catch (RuntimeException e) {
+                throw malformed();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            iterator.close();
+        }
+
+        private MalformedBulkRequestException malformed() {
+
+            JsonLocation location = iterator.getCurrentLocation();
+            return new MalformedBulkRequestException("Malformed request body at line " + location.getLineNr());
+        }
+    }
+}
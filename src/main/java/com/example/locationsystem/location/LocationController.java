@@ -1,17 +1,28 @@
 package com.example.locationsystem.location;
 
-import com.example.locationsystem.aspect.GetAndValidUserId;
+import com.example.locationsystem.acl.AccessControlService;
+import com.example.locationsystem.auth.GetAndValidUserId;
+import com.example.locationsystem.checkIn.CheckInService;
+import com.example.locationsystem.presence.PresenceHub;
 import com.example.locationsystem.user.UserService;
+import com.example.locationsystem.userAccess.BulkShareRequest;
 import com.example.locationsystem.userAccess.UserAccess;
 import com.example.locationsystem.userAccess.UserAccessService;
+import com.example.locationsystem.util.Page;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -24,18 +35,70 @@ import com.example.locationsystem.exception.ControllerExceptions.*;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class LocationController {
 
+    static final String NEXT_CURSOR_HEADER = "nextCursor";
+
     UserService userService;
     LocationService locationService;
     UserAccessService userAccessService;
+    AccessControlService accessControlService;
+    LocationBulkReader locationBulkReader;
+    LocationExporter locationExporter;
+    PresenceHub presenceHub;
+    CheckInService checkInService;
 
     @GetAndValidUserId
     @GetMapping("")
-    public CompletableFuture<ResponseEntity<List<Location>>> showLocations(Long userId) {
+    public CompletableFuture<ResponseEntity<List<Location>>> showLocations(
+        Long userId,
+        @RequestParam(required = false) Long afterId,
+        @RequestParam(defaultValue = "${location.page.default-size:100}") int limit
+    ) {
+
+        return locationService.findUserLocations(userId, afterId, limit)
+            .thenApply(LocationController::pageResponse);
+    }
+
+    /**
+     * Visible locations within {@code radius} meters of the point, nearest first.
+     */
+    @GetAndValidUserId
+    @GetMapping("/nearby")
+    public CompletableFuture<ResponseEntity<List<Location>>> showNearbyLocations(
+        Long userId,
+        @RequestParam double lat,
+        @RequestParam double lon,
+        @RequestParam double radius,
+        @RequestParam(defaultValue = "${location.page.default-size:100}") int limit
+    ) {
 
-        return locationService.findAllUserLocations(userId)
+        return locationService.findNearbyLocations(userId, lat, lon, radius, limit)
             .thenApply(ResponseEntity::ok);
     }
 
+    /**
+     * Visible locations whose name or address contains {@code q}, see {@link LocationSearchIndex}, by ascending id.
+     */
+    @GetAndValidUserId
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<List<Location>>> searchLocations(
+        Long userId,
+        @RequestParam String q,
+        @RequestParam(defaultValue = "${location.page.default-size:100}") int limit
+    ) {
+
+        return locationService.searchLocations(userId, q, limit)
+            .thenApply(ResponseEntity::ok);
+    }
+
+    @GetAndValidUserId
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportLocations(Long userId) {
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> locationExporter.export(userId, out));
+    }
+
     @GetAndValidUserId
     @PostMapping("/add")
     public CompletableFuture<ResponseEntity<Location>> addLocation(
@@ -43,27 +106,62 @@ public class LocationController {
         @Valid @RequestBody Location location
     ) {
 
-        return locationService.findLocationByNameAndUserId(location.getName(), userId)
-            .thenCompose(locExists -> {
-                if (locExists.isPresent()) {
-                    log.warn("Add location failed. Location with that name already exists. Location name={}",
-                        location.getName());
-                    throw new AlreadyExistsException("Location with that name already exists");
+        return locationService.saveLocation(location, userId)
+            .thenApply(ResponseEntity::ok);
+    }
+
+    @GetAndValidUserId
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, LocationBulkReader.TEXT_CSV_VALUE})
+    public CompletableFuture<ResponseEntity<List<BulkLocationResult>>> addLocations(
+        Long userId,
+        @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+        InputStream body
+    ) throws IOException {
+
+        LocationBulkReader.Rows rows = locationBulkReader.read(body, contentType);
+        return locationService.saveLocations(rows, userId)
+            .whenComplete((results, e) -> {
+                try {
+                    rows.close();
+                } catch (IOException ex) {
+                    log.warn("Failed to close bulk request body: {}", ex.getMessage());
                 }
-                return locationService.saveLocation(location, userId)
-                    .thenApply(ResponseEntity::ok);
-            });
+            })
+            .thenApply(ResponseEntity::ok);
     }
 
     @GetAndValidUserId
     @GetMapping("/{locationId}/")
     public CompletableFuture<ResponseEntity<List<Long>>> showFriendsOnLocation(
-        Long userId, @PathVariable Long locationId
+        Long userId, @PathVariable Long locationId,
+        @RequestParam(required = false) Long afterId,
+        @RequestParam(defaultValue = "${location.page.default-size:100}") int limit
     ) {
 
-        return locationService.findLocationInUserLocations(userId, locationId)
-            .thenCompose(location -> userService.findAllUsersOnLocation(locationId, userId))
-            .thenApply(ResponseEntity::ok);
+        return userService.findUsersOnLocation(locationId, userId, afterId, limit)
+            .thenApply(LocationController::pageResponse);
+    }
+
+    /**
+     * The users of {@code GET /location/{locationId}/} as a Server-Sent Events stream, see {@link PresenceHub}.
+     */
+    @GetAndValidUserId
+    @GetMapping(value = "/{locationId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToFriendsOnLocation(Long userId, @PathVariable Long locationId) {
+
+        return presenceHub.subscribe(userId, locationId);
+    }
+
+    /**
+     * Records that the user is at the location. The check-in is written asynchronously, so the response is
+     * {@code 202 Accepted}; {@code 503} with {@code Retry-After} means the ingester is full.
+     */
+    @GetAndValidUserId
+    @PostMapping("/{locationId}/check-in")
+    public CompletableFuture<ResponseEntity<Void>> checkIn(Long userId, @PathVariable Long locationId) {
+
+        return checkInService.checkIn(userId, locationId)
+            .thenApply(queued -> ResponseEntity.accepted().build());
     }
 
     @GetAndValidUserId
@@ -73,9 +171,21 @@ public class LocationController {
         @RequestBody UserAccess userAccess
     ) {
 
-        return locationService.findNotSharedToUserLocation(userId, userAccess.getLocationId(), userAccess.getUserId())
-            .thenCompose(location -> userAccessService.saveUserAccess(userAccess)
-                .thenApply(ResponseEntity::ok));
+        return userAccessService.shareUserAccess(userAccess, userId)
+            .thenApply(ResponseEntity::ok);
+    }
+
+    @GetAndValidUserId
+    @PostMapping("/share/bulk")
+    public CompletableFuture<ResponseEntity<List<UserAccess>>> shareLocationInBulk(
+        Long userId,
+        @Valid @RequestBody BulkShareRequest request
+    ) {
+
+        return accessControlService.checkCanManage(userId, request.getLocationId())
+            .thenCompose(allowed -> userAccessService.shareLocation(request.getLocationId(), request.getTitle(),
+                request.getUserIds()))
+            .thenApply(ResponseEntity::ok);
     }
 
     @GetAndValidUserId
@@ -84,8 +194,7 @@ public class LocationController {
         Long userId, @RequestBody UserAccess userAccess
     ) {
 
-        return userAccessService.findUserAccess(userAccess, userId)
-            .thenCompose(userAccessService::changeUserAccess)
+        return userAccessService.changeUserAccess(userAccess, userId)
             .thenApply(ResponseEntity::ok);
     }
 
@@ -98,6 +207,16 @@ public class LocationController {
         return locationService.deleteLocation(name, userId)
             .thenApply(deleted -> ResponseEntity.ok().build());
     }
-}
 
+    /**
+     * Sends the page items as the body and the cursor of the next page, if any, in the {@code nextCursor} header.
+     */
+    private static <T> ResponseEntity<List<T>> pageResponse(Page<T> page) {
 
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getItems());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.locationsystem.location;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Writes the locations visible to a user as NDJSON, one object per line, while the DAO streams them from the database.
+ * Only the current row and an output buffer of {@code location.export.buffer-size} are held in memory. When the client
+ * goes away the failed write aborts the query and its connection is released.
+ */
+@Component
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LocationExporter {
+
+    LocationService locationService;
+    ObjectMapper objectMapper;
+    ObjectWriter locationWriter;
+    int bufferSize;
+
+    public LocationExporter(
+        LocationService locationService,
+        ObjectMapper objectMapper,
+        @Value("${location.export.buffer-size:64KB}") DataSize bufferSize
+    ) {
+
+        this.locationService = locationService;
+        this.objectMapper = objectMapper;
+        this.locationWriter = objectMapper.writerFor(Location.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.bufferSize = (int) bufferSize.toBytes();
+    }
+
+    public void export(Long userId, OutputStream out) throws IOException {
+
+        try (JsonGenerator generator = objectMapper.getFactory()
+            .createGenerator(new BufferedOutputStream(out, bufferSize))
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .setRootValueSeparator(null)) {
+            long rows = locationService.exportUserLocations(userId, location -> {
+                try {
+                    locationWriter.writeValue(generator, location);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).join();
+            log.info("{} locations exported for user id={}", rows, userId);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                log.warn("Location export for user id={} aborted: {}", userId, e.getCause().getMessage());
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.locationsystem.location;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * An in-memory index over every location, held in a state object of type {@code S} behind a read-write lock.
+ * <p>
+ * A rebuild fills a new state while the lock is free. Changes made meanwhile are not applied to the old state but
+ * buffered, and once the new state is complete it replaces the old one and the buffered changes are replayed on it in
+ * order. The change listeners, which run on DAO executor threads or the R2DBC event loop, therefore never wait for the
+ * table to be read. A row read before a change and the change itself may both reach the new state, so changes must be
+ * idempotent.
+ */
+@Log4j2
+abstract class LocationIndex<S> {
+
+    private final String name;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    private S state;
+    private List<Consumer<S>> pending;
+    private volatile boolean ready;
+
+    LocationIndex(String name) {
+
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.name = name;
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+        this.state = newState();
+    }
+
+    /**
+     * {@code false} until the first rebuild completes and while a later one runs, when callers are expected to ask
+     * the database instead.
+     */
+    public boolean isReady() {
+
+        return ready;
+    }
+
+    /**
+     * Starts buffering changes and returns the rebuild to add every location to.
+     */
+    Rebuild startRebuild() {
+
+        writeLock.lock();
+        try {
+            if (pending != null) {
+                throw new IllegalStateException(name + " index is already being rebuilt");
+            }
+            ready = false;
+            pending = new ArrayList<>();
+        } finally {
+            writeLock.unlock();
+        }
+        return new StateRebuild();
+    }
+
+    /**
+     * Replaces the content with what {@code loader} puts through the mutators of the index.
+     */
+    public void rebuild(Runnable loader) {
+
+        Rebuild rebuild = startRebuild();
+        try {
+            loader.run();
+        } catch (RuntimeException e) {
+            rebuild.abort(e);
+            throw e;
+        }
+        rebuild.finish();
+    }
+
+    abstract S newState();
+
+    /**
+     * Adds a location read from the table to a state being rebuilt, which nothing else sees yet.
+     */
+    abstract void load(S building, Location location);
+
+    /**
+     * Called on the new state under the write lock before it is published.
+     */
+    void loaded(S built) {
+
+    }
+
+    abstract int size(S state);
+
+    public int size() {
+
+        return read(this::size);
+    }
+
+    /**
+     * Applies a change now or, during a rebuild, once the new state is in place.
+     */
+    void update(Consumer<S> change) {
+
+        writeLock.lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            } else {
+                change.accept(state);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    <T> T read(Function<S, T> query) {
+
+        readLock.lock();
+        try {
+            return query.apply(state);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * A rebuild in progress. Locations are added from one thread, then it is either finished or aborted.
+     */
+    interface Rebuild {
+
+        void add(Location location);
+
+        /**
+         * Replays the buffered changes on the new content, publishes it and marks the index ready.
+         */
+        void finish();
+
+        /**
+         * Keeps the old content, with the buffered changes applied, and leaves the index not ready.
+         */
+        void abort(RuntimeException e);
+    }
+
+    private final class StateRebuild implements Rebuild {
+
+        private final S building = newState();
+
+        @Override
+        public void add(Location location) {
+
+            load(building, location);
+        }
+
+        @Override
+        public void finish() {
+
+            int replayed;
+            int locations;
+            writeLock.lock();
+            try {
+                replayed = pending.size();
+                pending.forEach(change -> change.accept(building));
+                pending = null;
+                loaded(building);
+                locations = size(building);
+                state = building;
+                ready = true;
+            } finally {
+                writeLock.unlock();
+            }
+            log.info("{} index built: locations={}, changes replayed={}", name, locations, replayed);
+        }
+
+        @Override
+        public void abort(RuntimeException e) {
+
+            writeLock.lock();
+            try {
+                pending.forEach(change -> change.accept(state));
+                pending = null;
+            } finally {
+                writeLock.unlock();
+            }
+            log.error("Failed to build {} index", name, e);
+        }
+    }
+}
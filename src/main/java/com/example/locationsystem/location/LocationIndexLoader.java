@@ -0,0 +1,62 @@
+package com.example.locationsystem.location;
+
+import com.example.locationsystem.shard.Shard;
+import com.example.locationsystem.shard.Shards;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Rebuilds every {@link LocationIndex} once the application is up, streaming the table once for all of them from the
+ * JDBC data source or, with sharding, from every shard.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LocationIndexLoader {
+
+    /**
+     * The only query that reads the whole table. It is not in {@code LocationQueries}, whose queries are checked to
+     * use an index.
+     */
+    static final String FIND_ALL_LOCATIONS = "SELECT id, name, address, user_id, latitude, longitude FROM locations";
+
+    JdbcTemplate jdbcTemplate;
+    List<LocationIndex<?>> indexes;
+    ObjectProvider<Shards> shards;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+
+        long start = System.nanoTime();
+        Shards sharded = shards.getIfAvailable();
+        List<JdbcTemplate> sources = sharded == null ? Collections.singletonList(jdbcTemplate) :
+            sharded.all().stream().map(Shard::getJdbcTemplate).collect(Collectors.toList());
+        List<LocationIndex.Rebuild> rebuilds = indexes.stream()
+            .map(LocationIndex::startRebuild)
+            .collect(Collectors.toList());
+        try {
+            sources.forEach(source -> source.query(FIND_ALL_LOCATIONS, (RowCallbackHandler) rs -> {
+                Location location = LocationRowMapper.INSTANCE.mapRow(rs, 0);
+                rebuilds.forEach(rebuild -> rebuild.add(location));
+            }));
+        } catch (RuntimeException e) {
+            rebuilds.forEach(rebuild -> rebuild.abort(e));
+            throw e;
+        }
+        rebuilds.forEach(LocationIndex.Rebuild::finish);
+        log.info("{} location indexes loaded in {} ms", rebuilds.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.locationsystem.location;
+
+import com.example.locationsystem.util.SqlUtil;
+
+final class LocationQueries {
+
+    /**
+     * A page of the owned and shared locations of a user after a given id. Each branch is a range scan that stops
+     * after the page size, and only those rows are merged: the owned branch reads the index behind the {@code user_id}
+     * foreign key, which InnoDB already orders by id within a user, the shared one
+     * {@code ix_accesses_user_id_location_id_title}.
+     */
+    static final String FIND_USER_LOCATIONS_PAGE = "(SELECT id, name, address, user_id, latitude, longitude FROM " +
+        "locations WHERE user_id = ? AND id > ? ORDER BY id LIMIT ?) UNION (SELECT l.id, l.name, l.address, " +
+        "l.user_id, l.latitude, l.longitude FROM accesses a JOIN locations l ON l.id = a.location_id WHERE " +
+        "a.user_id = ? AND a.location_id > ? ORDER BY a.location_id LIMIT ?) ORDER BY id LIMIT ?";
+    /**
+     * Every owned and shared location of a user, for streaming. {@code UNION ALL} with owned locations left out of the
+     * shared branch lets MySQL send rows as it reads them instead of collecting them for deduplication first.
+     */
+    static final String STREAM_USER_LOCATIONS = "SELECT id, name, address, user_id, latitude, longitude FROM " +
+        "locations WHERE user_id = ? UNION ALL SELECT l.id, l.name, l.address, l.user_id, l.latitude, l.longitude " +
+        "FROM accesses a JOIN locations l ON l.id = a.location_id WHERE a.user_id = ? AND l.user_id != ?";
+    static final String FIND_LOCATION_BY_NAME_AND_USER_ID = "SELECT id, name, address, user_id, latitude, " +
+        "longitude FROM locations WHERE name = ? AND user_id = ?";
+    /**
+     * The id is {@code NULL} unless the caller picked one, as the sharded DAOs do.
+     */
+    static final String SAVE_LOCATION = "INSERT INTO locations(id,name,address,user_id,latitude,longitude) VALUES " +
+        "(?,?,?,?,?,?)";
+    /**
+     * Takes one {@code ?} per name in place of {@code %s}, see {@link SqlUtil#placeholders(int)}.
+     */
+    static final String FIND_LOCATION_NAMES_BY_USER_ID = "SELECT name FROM locations WHERE user_id = ? AND name IN " +
+        "(%s)";
+    static final String FIND_MANAGED_LOCATION = "SELECT l.id, l.name, l.address, l.user_id, l.latitude, " +
+        "l.longitude FROM locations l WHERE l.id = ? AND (l.user_id = ? OR EXISTS (SELECT 1 FROM accesses a WHERE " +
+        "a.location_id = l.id AND a.user_id = ? AND a.title = 'ADMIN'))";
+    static final String FIND_NOT_SHARED_TO_USER_LOCATION = "SELECT l.id, l.name, l.address, l.user_id, " +
+        "l.latitude, l.longitude FROM locations l WHERE l.id = ? AND (l.user_id = ? OR EXISTS (SELECT 1 FROM " +
+        "accesses a WHERE a.location_id = l.id AND a.user_id = ? AND a.title = 'ADMIN')) AND NOT EXISTS (SELECT 1 " +
+        "FROM accesses a WHERE a.location_id = l.id AND a.user_id = ? AND a.title IN ('ADMIN', 'READ')) AND " +
+        "EXISTS (SELECT 1 FROM users u WHERE u.id = ?)";
+    /**
+     * {@code LAST_INSERT_ID(id)} keeps the id of the deleted row on the connection for
+     * {@code SqlUtil.deleteReturningId} to read, so it is not looked up before the delete. The unique index on
+     * {@code (user_id, name)} limits it to one row.
+     */
+    static final String DELETE_LOCATION = "DELETE FROM locations WHERE name = ? AND user_id = ? AND LAST_INSERT_ID(id)";
+    static final String FIND_LOCATION_IN_USER_LOCATIONS = "SELECT locations.id, locations.name, locations" +
+        ".address, locations.user_id, locations.latitude, locations.longitude FROM locations JOIN accesses ON " +
+        "locations.id = accesses.location_id WHERE accesses.user_id = ? AND locations.id = ? UNION SELECT id, name, " +
+        "address, user_id, latitude, longitude FROM locations WHERE user_id = ? AND locations.id = ?";
+    static final String FIND_LOCATION_BY_ID = "SELECT id, name, address, user_id, latitude, longitude FROM " +
+        "locations WHERE id = ?";
+    /**
+     * Takes one {@code ?} per id in place of {@code %s}, see {@link SqlUtil#placeholders(int)}.
+     */
+    static final String FIND_LOCATIONS_BY_IDS = "SELECT id, name, address, user_id, latitude, longitude FROM " +
+        "locations WHERE id IN (%s)";
+
+    private LocationQueries() {
+
+    }
+}
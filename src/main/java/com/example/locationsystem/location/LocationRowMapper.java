@@ -0,0 +1,32 @@
+package com.example.locationsystem.location;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps {@code id, name, address, user_id, latitude, longitude} by column index, so every location query must select
+ * them in this order. The columns after {@code address} may be {@code NULL} and are read as such.
+ */
+public final class LocationRowMapper implements RowMapper<Location> {
+
+    public static final LocationRowMapper INSTANCE = new LocationRowMapper();
+
+    private LocationRowMapper() {
+
+    }
+
+    @Override
+    public Location mapRow(ResultSet rs, int rowNum) throws SQLException {
+
+        Location location = new Location();
+        location.setId(rs.getLong(1));
+        location.setName(rs.getString(2));
+        location.setAddress(rs.getString(3));
+        location.setUserId(rs.getObject(4, Long.class));
+        location.setLatitude(rs.getObject(5, Double.class));
+        location.setLongitude(rs.getObject(6, Double.class));
+        return location;
+    }
+}
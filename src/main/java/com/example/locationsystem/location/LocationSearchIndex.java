@@ -0,0 +1,372 @@
+package com.example.locationsystem.location;
+
+import com.example.locationsystem.event.ObjectChangeEvent;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory n-gram index of location names and addresses, used for type-ahead search without a {@code LIKE} scan.
+ * Text is compared after {@link #normalize}. A query of three or more characters matches a location whose name or
+ * address contains it; a shorter query matches a location with a word of its name or address starting with it.
+ * <p>
+ * Every trigram of a field, and the first one and two characters of each of its words, map to a posting list: the
+ * sorted ids of the locations having that gram. A query intersects the lists of its grams, starting from the shortest,
+ * and checks the few candidates left against the stored text, since having all trigrams of a query does not mean
+ * containing it. Ids are MySQL {@code INT}s and are kept as {@code int}s to halve the size of the lists.
+ * <p>
+ * A location is indexed under its name and address together, so renaming it or changing its address means putting
+ * it again, which drops the grams of the old text. Rebuilt by {@link LocationIndexLoader} on startup, after which
+ * posting lists are trimmed to size, since they only grow by one id at a time afterwards.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LocationSearchIndex extends LocationIndex<LocationSearchIndex.Postings> {
+
+    static final int GRAM = 3;
+
+    private static final char FIELD_SEPARATOR = '\n';
+    private static final long WORD_PREFIX = 1L << 62;
+
+    public LocationSearchIndex() {
+
+        super("Location search");
+    }
+
+    /**
+     * Adds the location, or replaces its text if it is already indexed.
+     */
+    public void put(long locationId, String name, String address) {
+
+        String text = text(name, address);
+        LongOpenHashSet grams = grams(text);
+        update(postings -> postings.put((int) locationId, text, grams));
+    }
+
+    public void remove(long locationId) {
+
+        update(postings -> postings.remove((int) locationId));
+    }
+
+    @Override
+    Postings newState() {
+
+        return new Postings();
+    }
+
+    @Override
+    void load(Postings building, Location location) {
+
+        String text = text(location.getName(), location.getAddress());
+        building.put(location.getId().intValue(), text, grams(text));
+    }
+
+    @Override
+    void loaded(Postings built) {
+
+        built.lists.values().forEach(IntArrayList::trim);
+    }
+
+    @Override
+    int size(Postings postings) {
+
+        return postings.texts.size();
+    }
+
+    /**
+     * An upper bound of the number of locations matching the query, read from the shortest posting list. Lets
+     * callers with a short list of their own check it through {@link #searchAmong} instead.
+     */
+    public int estimateMatches(String query) {
+
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return 0;
+        }
+        long[] grams = queryGrams(normalized);
+        return read(postings -> {
+            int estimate = Integer.MAX_VALUE;
+            for (long gram : grams) {
+                IntArrayList ids = postings.lists.get(gram);
+                estimate = Math.min(estimate, ids == null ? 0 : ids.size());
+            }
+            return estimate;
+        });
+    }
+
+    /**
+     * Ids of the locations matching the query that pass {@code filter}, in ascending order and at most {@code limit}
+     * of them.
+     */
+    public List<Long> search(String query, LongPredicate filter, int limit) {
+
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long[] grams = queryGrams(normalized);
+        return read(postings -> {
+            IntArrayList[] lists = new IntArrayList[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.lists.get(grams[i]);
+                if (lists[i] == null) {
+                    return Collections.<Long>emptyList();
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(IntArrayList::size));
+
+            List<Long> found = new ArrayList<>();
+            IntArrayList shortest = lists[0];
+            int[] from = new int[lists.length];
+            for (int i = 0; i < shortest.size() && found.size() < limit; i++) {
+                int id = shortest.getInt(i);
+                if (inAll(lists, from, id) && matches(normalized, postings.texts.get(id)) && filter.test(id)) {
+                    found.add((long) id);
+                }
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Like {@link #search}, but checks only the given locations, which may repeat and come in any order.
+     */
+    public List<Long> searchAmong(String query, long[] locationIds, int limit) {
+
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long[] sorted = locationIds.clone();
+        Arrays.sort(sorted);
+        return read(postings -> {
+            List<Long> found = new ArrayList<>();
+            for (int i = 0; i < sorted.length && found.size() < limit; i++) {
+                if ((i == 0 || sorted[i] != sorted[i - 1])
+                    && matches(normalized, postings.texts.get((int) sorted[i]))) {
+                    found.add(sorted[i]);
+                }
+            }
+            return found;
+        });
+    }
+
+    @EventListener(ObjectChangeEvent.class)
+    public void onObjectChange(ObjectChangeEvent event) {
+
+        if (event.getObjectType() != ObjectChangeEvent.ObjectType.LOCATION || event.getObjectId() == null) {
+            return;
+        }
+        switch (event.getActionType()) {
+            case CREATED:
+            case UPDATED:
+                if (event.getEntity() instanceof Location) {
+                    Location location = (Location) event.getEntity();
+                    put(event.getObjectId(), location.getName(), location.getAddress());
+                }
+                break;
+            case DELETED:
+                remove(event.getObjectId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Lower case, with runs of whitespace replaced by one space and none at either end.
+     */
+    static String normalize(String text) {
+
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+            } else {
+                if (space) {
+                    normalized.append(' ');
+                    space = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether the name or address matches a normalized query, by the rules above. Also used on locations read from
+     * the database while the index is not ready.
+     */
+    static boolean matches(String normalizedQuery, String name, String address) {
+
+        return matches(normalizedQuery, normalize(name)) || matches(normalizedQuery, normalize(address));
+    }
+
+    private static boolean matches(String normalizedQuery, String text) {
+
+        if (text == null) {
+            return false;
+        }
+        if (normalizedQuery.length() >= GRAM) {
+            return text.contains(normalizedQuery);
+        }
+        for (int at = text.indexOf(normalizedQuery); at >= 0; at = text.indexOf(normalizedQuery, at + 1)) {
+            if (at == 0 || isWordSeparator(text.charAt(at - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String text(String name, String address) {
+
+        return normalize(name) + FIELD_SEPARATOR + normalize(address);
+    }
+
+    /**
+     * Moves each cursor in {@code from} forward past ids below {@code id}, which works because candidates come in
+     * ascending order.
+     */
+    private static boolean inAll(IntArrayList[] lists, int[] from, int id) {
+
+        for (int i = 1; i < lists.length; i++) {
+            IntArrayList ids = lists[i];
+            int index = IntArrays.binarySearch(ids.elements(), from[i], ids.size(), id);
+            if (index < 0) {
+                from[i] = -index - 1;
+                return false;
+            }
+            from[i] = index + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Grams of a stored text: every trigram within a field and the one and two character prefixes of every word.
+     */
+    private static LongOpenHashSet grams(String text) {
+
+        LongOpenHashSet grams = new LongOpenHashSet();
+        int separator = text.indexOf(FIELD_SEPARATOR);
+        addGrams(text, 0, separator, grams);
+        addGrams(text, separator + 1, text.length(), grams);
+        return grams;
+    }
+
+    private static void addGrams(String text, int from, int to, LongOpenHashSet grams) {
+
+        for (int i = from; i < to; i++) {
+            if (i + GRAM <= to) {
+                grams.add(gram(text, i, GRAM));
+            }
+            if ((i == from || text.charAt(i - 1) == ' ') && text.charAt(i) != ' ') {
+                grams.add(WORD_PREFIX | gram(text, i, 1));
+                if (i + 1 < to && text.charAt(i + 1) != ' ') {
+                    grams.add(WORD_PREFIX | gram(text, i, 2));
+                }
+            }
+        }
+    }
+
+    private static long[] queryGrams(String normalizedQuery) {
+
+        if (normalizedQuery.length() < GRAM) {
+            return new long[]{WORD_PREFIX | gram(normalizedQuery, 0, normalizedQuery.length())};
+        }
+        LongOpenHashSet grams = new LongOpenHashSet();
+        for (int i = 0; i + GRAM <= normalizedQuery.length(); i++) {
+            grams.add(gram(normalizedQuery, i, GRAM));
+        }
+        return grams.toLongArray();
+    }
+
+    /**
+     * Packs up to three characters and their count into a key.
+     */
+    private static long gram(String text, int from, int length) {
+
+        long gram = length;
+        for (int i = 0; i < GRAM; i++) {
+            gram = gram << 16 | (i < length ? text.charAt(from + i) : 0);
+        }
+        return gram;
+    }
+
+    private static boolean isWordSeparator(char c) {
+
+        return c == ' ' || c == FIELD_SEPARATOR;
+    }
+
+    /**
+     * The normalized text of each indexed location and the posting list of each gram.
+     */
+    static final class Postings {
+
+        final Int2ObjectOpenHashMap<String> texts = new Int2ObjectOpenHashMap<>();
+        final Long2ObjectOpenHashMap<IntArrayList> lists = new Long2ObjectOpenHashMap<>();
+
+        void put(int id, String text, LongOpenHashSet grams) {
+
+            remove(id);
+            texts.put(id, text);
+            for (LongIterator it = grams.iterator(); it.hasNext(); ) {
+                long gram = it.nextLong();
+                IntArrayList ids = lists.get(gram);
+                if (ids == null) {
+                    ids = new IntArrayList(2);
+                    lists.put(gram, ids);
+                }
+                if (ids.isEmpty() || ids.getInt(ids.size() - 1) < id) {
+                    ids.add(id);
+                } else {
+                    int index = IntArrays.binarySearch(ids.elements(), 0, ids.size(), id);
+                    if (index < 0) {
+                        ids.add(-index - 1, id);
+                    }
+                }
+            }
+        }
+
+        void remove(int id) {
+
+            String text = texts.remove(id);
+            if (text == null) {
+                return;
+            }
+            for (LongIterator it = grams(text).iterator(); it.hasNext(); ) {
+                long gram = it.nextLong();
+                IntArrayList ids = lists.get(gram);
+                if (ids == null) {
+                    continue;
+                }
+                int index = IntArrays.binarySearch(ids.elements(), 0, ids.size(), id);
+                if (index >= 0) {
+                    ids.removeInt(index);
+                    if (ids.isEmpty()) {
+                        lists.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.locationsystem.location;
 
+import com.example.locationsystem.util.Page;
+
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface LocationService {
 
-    CompletableFuture<List<Location>> findAllUserLocations(Long userId);
+    CompletableFuture<Page<Location>> findUserLocations(Long userId, Long afterId, int limit);
+
+    CompletableFuture<Long> exportUserLocations(Long userId, Consumer<Location> consumer);
 
     CompletableFuture<Location> findLocationInUserLocations(Long userId, Long locationId);
 
@@ -14,10 +20,21 @@ public interface LocationService {
 
     CompletableFuture<Location> saveLocation(Location location, Long ownerId);
 
+    CompletableFuture<List<BulkLocationResult>> saveLocations(Iterator<Location> locations, Long ownerId);
+
     CompletableFuture<Location> findNotSharedToUserLocation(Long id, Long locId, Long userId);
 
     CompletableFuture<Void> deleteLocation(String name, Long userId);
 
     CompletableFuture<Location> findLocationById(Long id);
 
+    CompletableFuture<List<Location>> findNearbyLocations(
+        Long userId,
+        double latitude,
+        double longitude,
+        double radiusMeters,
+        int limit
+    );
+
+    CompletableFuture<List<Location>> searchLocations(Long userId, String query, int limit);
 }
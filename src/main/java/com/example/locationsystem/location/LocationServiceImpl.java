@@ -1,17 +1,39 @@
 package com.example.locationsystem.location;
 
+import com.example.locationsystem.acl.AccessControlIndex;
+import com.example.locationsystem.config.BulkImportConfig;
 import com.example.locationsystem.event.ObjectChangeEvent;
+import com.example.locationsystem.util.Page;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import com.example.locationsystem.exception.ControllerExceptions.*;
 
@@ -23,12 +45,43 @@ public class LocationServiceImpl implements LocationService {
 
     LocationDao locationDao;
     ApplicationEventPublisher eventPublisher;
+    VisibleLocationsCache visibleLocationsCache;
+    AccessControlIndex accessControlIndex;
+    NearbyLocationIndex nearbyLocationIndex;
+    LocationSearchIndex locationSearchIndex;
+
+    @Qualifier(BulkImportConfig.BULK_READ_EXECUTOR)
+    Executor bulkReadExecutor;
+
+    @Value("${location.bulk.batch-size:500}")
+    int bulkBatchSize;
+
+    @Value("${location.page.max-size:1000}")
+    int maxPageSize;
+
+    @Value("${location.nearby.max-radius:50000}")
+    double maxNearbyRadius;
+
+    /**
+     * The first page comes from {@link VisibleLocationsCache}, which holds the first {@code location.page.max-size}
+     * locations of a user, so any page size can be served from it. Later pages go to the database.
+     */
+    @Override
+    public CompletableFuture<Page<Location>> findUserLocations(Long userId, Long afterId, int limit) {
+
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        log.info("Finding user locations by user id={} after id={}, page size={}", userId, afterId, pageSize);
+        CompletableFuture<List<Location>> rows = afterId == null
+            ? visibleLocationsCache.get(userId, id -> locationDao.findUserLocations(id, 0L, maxPageSize + 1))
+            : locationDao.findUserLocations(userId, afterId, pageSize + 1);
+        return rows.thenApply(found -> Page.of(found, pageSize, Location::getId));
+    }
 
     @Override
-    public CompletableFuture<List<Location>> findAllUserLocations(Long userId) {
+    public CompletableFuture<Long> exportUserLocations(Long userId, Consumer<Location> consumer) {
 
-        log.info("Finding all user locations by user id={}", userId);
-        return locationDao.findAllUserLocations(userId);
+        log.info("Exporting user locations by user id={}", userId);
+        return locationDao.streamUserLocations(userId, consumer);
     }
 
     @Override
@@ -52,13 +105,96 @@ public class LocationServiceImpl implements LocationService {
         log.info("Saving location={}", location);
         return locationDao.saveLocation(location)
             .thenApply(savedLocation -> {
+                accessControlIndex.addLocation(savedLocation.getId(), ownerId);
                 eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.LOCATION,
                     ObjectChangeEvent.ActionType.CREATED,
-                    new Timestamp(System.currentTimeMillis()), savedLocation.getId()));
+                    new Timestamp(System.currentTimeMillis()), savedLocation.getId(), savedLocation));
                 return savedLocation;
             });
     }
 
+    /**
+     * Reads the rows in chunks of up to {@code location.bulk.batch-size} new names. Each chunk costs one query for the
+     * names the owner already has and one batch insert, and only that chunk is held in memory. Names are compared
+     * case-insensitively, as the database does. A name added by someone else after the check is reported as a
+     * duplicate. Any other failed insert fails the whole import, but chunks saved before it stay saved.
+     * <p>
+     * The first chunk is read on the calling thread and the following ones on the bulk read executor, never on the
+     * DAO executor that completed the previous insert, as reading waits on the client.
+     */
+    @Override
+    public CompletableFuture<List<BulkLocationResult>> saveLocations(Iterator<Location> locations, Long ownerId) {
+
+        log.info("Saving locations in bulk for owner id={}", ownerId);
+        return saveLocationChunk(locations, ownerId, new ArrayList<>(), new HashSet<>());
+    }
+
+    private CompletableFuture<List<BulkLocationResult>> saveLocationChunk(
+        Iterator<Location> locations,
+        Long ownerId,
+        List<BulkLocationResult> results,
+        Set<String> seenNames
+    ) {
+
+        Map<String, Location> chunk = new LinkedHashMap<>();
+        Map<String, BulkLocationResult> chunkResults = new HashMap<>();
+        while (chunk.size() < bulkBatchSize && locations.hasNext()) {
+            Location location = locations.next();
+            BulkLocationResult result = new BulkLocationResult(results.size() + 1,
+                location == null ? null : location.getName(), null, null);
+            results.add(result);
+            if (location == null || !StringUtils.hasText(location.getName())
+                || !StringUtils.hasText(location.getAddress())) {
+                result.setStatus(BulkLocationResult.Status.INVALID);
+            } else if (!seenNames.add(nameKey(location.getName()))) {
+                result.setStatus(BulkLocationResult.Status.DUPLICATE);
+            } else {
+                location.setId(null);
+                location.setUserId(ownerId);
+                chunk.put(nameKey(location.getName()), location);
+                chunkResults.put(nameKey(location.getName()), result);
+            }
+        }
+        if (chunk.isEmpty()) {
+            log.info("{} rows processed in bulk for owner id={}", results.size(), ownerId);
+            return CompletableFuture.completedFuture(results);
+        }
+
+        return locationDao.findLocationNamesByUserId(ownerId, chunk.values().stream()
+                .map(Location::getName)
+                .collect(Collectors.toList()))
+            .thenCompose(existingNames -> {
+                existingNames.forEach(name -> {
+                    if (chunk.remove(nameKey(name)) != null) {
+                        chunkResults.get(nameKey(name)).setStatus(BulkLocationResult.Status.DUPLICATE);
+                    }
+                });
+                return chunk.isEmpty()
+                    ? CompletableFuture.completedFuture(Collections.<Location>emptyList())
+                    : locationDao.saveLocations(new ArrayList<>(chunk.values()));
+            })
+            .thenComposeAsync(savedLocations -> {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                for (Location savedLocation : savedLocations) {
+                    BulkLocationResult result = chunkResults.get(nameKey(savedLocation.getName()));
+                    result.setStatus(BulkLocationResult.Status.CREATED);
+                    result.setId(savedLocation.getId());
+                    accessControlIndex.addLocation(savedLocation.getId(), ownerId);
+                    eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.LOCATION,
+                        ObjectChangeEvent.ActionType.CREATED, now, savedLocation.getId(), savedLocation));
+                }
+                chunkResults.values().stream()
+                    .filter(result -> result.getStatus() == null)
+                    .forEach(result -> result.setStatus(BulkLocationResult.Status.DUPLICATE));
+                return saveLocationChunk(locations, ownerId, results, seenNames);
+            }, bulkReadExecutor);
+    }
+
+    private static String nameKey(String name) {
+
+        return name.toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public CompletableFuture<Location> findNotSharedToUserLocation(Long ownerId, Long locId, Long userId) {
 
@@ -71,18 +207,21 @@ public class LocationServiceImpl implements LocationService {
     public CompletableFuture<Void> deleteLocation(String name, Long userId) {
 
         log.info("Deleting location by location name={} and user id={}", name, userId);
-        return locationDao.findLocationByNameAndUserId(name, userId)
-            .thenCompose(locationOptional -> {
-                if (locationOptional.isPresent()) {
-                    return locationDao.deleteLocation(name, userId)
-                        .thenAccept(result ->
-                            eventPublisher.publishEvent(new ObjectChangeEvent(this,
-                                ObjectChangeEvent.ObjectType.LOCATION, ObjectChangeEvent.ActionType.DELETED,
-                                new Timestamp(System.currentTimeMillis()), locationOptional.get().getId())));
-                } else {
-                    log.warn("Location not found by name={} and user id={}", name, userId);
-                    throw new LocationNotFoundException("Location not found");
+        return locationDao.deleteLocation(name, userId)
+            .thenAccept(locationId -> {
+                Location deletedLocation = new Location();
+                deletedLocation.setId(locationId);
+                deletedLocation.setName(name);
+                deletedLocation.setUserId(userId);
+                long[] sharedWith = accessControlIndex.removeLocation(locationId);
+                long[] userIds = null;
+                if (accessControlIndex.isReady()) {
+                    userIds = Arrays.copyOf(sharedWith, sharedWith.length + 1);
+                    userIds[sharedWith.length] = userId;
                 }
+                eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.LOCATION,
+                    ObjectChangeEvent.ActionType.DELETED, new Timestamp(System.currentTimeMillis()), locationId,
+                    new DeletedLocation(deletedLocation, userIds)));
             });
     }
 
@@ -92,4 +231,109 @@ public class LocationServiceImpl implements LocationService {
         log.info("Finding location by id={}", id);
         return locationDao.findLocationById(id);
     }
-}
\ No newline at end of file
+
+    /**
+     * Candidates come from {@link NearbyLocationIndex}, filtered through {@link AccessControlIndex}, so only the
+     * locations returned are read from the database. Until both indexes are loaded every visible location of the user
+     * is streamed and measured instead.
+     */
+    @Override
+    public CompletableFuture<List<Location>> findNearbyLocations(
+        Long userId,
+        double latitude,
+        double longitude,
+        double radiusMeters,
+        int limit
+    ) {
+
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new InvalidNearbyQueryException("Latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+        if (!(radiusMeters > 0 && radiusMeters <= maxNearbyRadius)) {
+            throw new InvalidNearbyQueryException("Radius must be positive and at most " + maxNearbyRadius + " m");
+        }
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        log.info("Finding locations within {} m of ({}, {}) for user id={}", radiusMeters, latitude, longitude,
+            userId);
+
+        if (!nearbyLocationIndex.isReady() || !accessControlIndex.isReady()) {
+            List<Location> nearby = new ArrayList<>();
+            return locationDao.streamUserLocations(userId, location -> {
+                    if (location.getLatitude() != null && location.getLongitude() != null
+                        && distanceFrom(latitude, longitude, location) <= radiusMeters) {
+                        nearby.add(location);
+                    }
+                })
+                .thenApply(rows -> nearby.stream()
+                    .sorted(Comparator.comparingDouble(location -> distanceFrom(latitude, longitude, location)))
+                    .limit(size)
+                    .collect(Collectors.toList()));
+        }
+
+        List<Long> ids = nearbyLocationIndex.findWithin(latitude, longitude, radiusMeters,
+            locationId -> accessControlIndex.canView(userId, locationId), size);
+        return findLocationsInOrder(ids);
+    }
+
+    /**
+     * Candidates come from {@link LocationSearchIndex}. When the user sees fewer locations than the shortest posting
+     * list of the query has, their visible locations are checked against the index instead of filtering the list
+     * through {@link AccessControlIndex}. Until both indexes are loaded every visible location of the user is
+     * streamed and matched instead.
+     */
+    @Override
+    public CompletableFuture<List<Location>> searchLocations(Long userId, String query, int limit) {
+
+        String normalized = LocationSearchIndex.normalize(query);
+        if (normalized.isEmpty()) {
+            throw new InvalidSearchQueryException("Search query must not be blank");
+        }
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        log.info("Searching locations by query='{}' for user id={}", normalized, userId);
+
+        if (!locationSearchIndex.isReady() || !accessControlIndex.isReady()) {
+            List<Location> matching = new ArrayList<>();
+            return locationDao.streamUserLocations(userId, location -> {
+                    if (LocationSearchIndex.matches(normalized, location.getName(), location.getAddress())) {
+                        matching.add(location);
+                    }
+                })
+                .thenApply(rows -> matching.stream()
+                    .sorted(Comparator.comparing(Location::getId))
+                    .limit(size)
+                    .collect(Collectors.toList()));
+        }
+
+        int visible = accessControlIndex.countVisibleLocations(userId);
+        List<Long> ids = visible < locationSearchIndex.estimateMatches(normalized)
+            ? locationSearchIndex.searchAmong(normalized, accessControlIndex.findVisibleLocations(userId), size)
+            : locationSearchIndex.search(normalized, locationId -> accessControlIndex.canView(userId, locationId),
+                size);
+        return findLocationsInOrder(ids);
+    }
+
+    /**
+     * Reads the locations and returns them in the order of {@code ids}, leaving out any deleted meanwhile.
+     */
+    private CompletableFuture<List<Location>> findLocationsInOrder(List<Long> ids) {
+
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return locationDao.findLocationsByIds(ids)
+            .thenApply(found -> {
+                Map<Long, Location> byId = found.stream()
+                    .collect(Collectors.toMap(Location::getId, Function.identity()));
+                return ids.stream()
+                    .map(byId::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            });
+    }
+
+    private static double distanceFrom(double latitude, double longitude, Location location) {
+
+        return NearbyLocationIndex.distanceMeters(latitude, longitude, location.getLatitude(),
+            location.getLongitude());
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.locationsystem.location;
+
+import com.example.locationsystem.event.ObjectChangeEvent;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory geohash grid of the locations that have coordinates, used to answer radius queries without reading the
+ * table. A point is kept in the cell of its {@code location.nearby.geohash-precision} character geohash (5 characters
+ * give cells of about 4.9 by 4.9 km at the equator), and a query only measures the points in the cells that overlap
+ * the bounding box of its circle. Cells hold their points in parallel primitive arrays.
+ * <p>
+ * Only locations with both coordinates are indexed: a change that clears either of them removes the location, and
+ * one that sets them moves it to its new cell. Rebuilt by {@link LocationIndexLoader} on startup.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class NearbyLocationIndex extends LocationIndex<NearbyLocationIndex.Grid> {
+
+    static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    static final int MAX_PRECISION = 12;
+
+    private static final long NONE = -1L;
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    int precision;
+    int lonBits;
+    int latBits;
+
+    public NearbyLocationIndex(@Value("${location.nearby.geohash-precision:5}") int precision) {
+
+        super("Nearby location");
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.lonBits = (precision * 5 + 1) / 2;
+        this.latBits = precision * 5 / 2;
+    }
+
+    /**
+     * Adds the location, or moves it if it is already indexed.
+     */
+    public void put(long locationId, double latitude, double longitude) {
+
+        long cellKey = cellKey(latitude, longitude);
+        update(grid -> grid.put(locationId, cellKey, latitude, longitude));
+    }
+
+    public void remove(long locationId) {
+
+        update(grid -> grid.remove(locationId));
+    }
+
+    @Override
+    Grid newState() {
+
+        return new Grid();
+    }
+
+    @Override
+    void load(Grid building, Location location) {
+
+        if (location.getLatitude() != null && location.getLongitude() != null) {
+            building.put(location.getId(), cellKey(location.getLatitude(), location.getLongitude()),
+                location.getLatitude(), location.getLongitude());
+        }
+    }
+
+    @Override
+    int size(Grid grid) {
+
+        return grid.cellsByLocation.size();
+    }
+
+    /**
+     * Ids of the locations within {@code radiusMeters} of the point that pass {@code filter}, nearest first and at
+     * most {@code limit} of them. Distances are great-circle distances on a sphere of the mean Earth radius.
+     */
+    public List<Long> findWithin(
+        double latitude,
+        double longitude,
+        double radiusMeters,
+        LongPredicate filter,
+        int limit
+    ) {
+
+        double angle = radiusMeters / EARTH_RADIUS_METERS;
+        double minLat = Math.max(-90, latitude - Math.toDegrees(angle));
+        double maxLat = Math.min(90, latitude + Math.toDegrees(angle));
+        int lonCells = 1 << lonBits;
+        int minX = 0;
+        int maxX = lonCells - 1;
+        double sinLonSpan = Math.sin(angle) / Math.cos(Math.toRadians(latitude));
+        if (minLat > -90 && maxLat < 90 && sinLonSpan < 1) {
+            double lonSpan = Math.toDegrees(Math.asin(sinLonSpan));
+            int fromX = (int) Math.floor((longitude - lonSpan + 180) / 360 * lonCells);
+            int toX = (int) Math.floor((longitude + lonSpan + 180) / 360 * lonCells);
+            if (toX - fromX < lonCells) {
+                minX = fromX;
+                maxX = toX;
+            }
+        }
+        int minY = cellY(minLat);
+        int maxY = cellY(maxLat);
+
+        LongArrayList ids = new LongArrayList();
+        DoubleArrayList distances = new DoubleArrayList();
+        int firstX = minX;
+        int lastX = maxX;
+        read(grid -> {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = firstX; x <= lastX; x++) {
+                    Cell cell = grid.cells.get(interleave(Math.floorMod(x, lonCells), y));
+                    if (cell != null) {
+                        cell.collect(latitude, longitude, radiusMeters, minLat, maxLat, filter, ids, distances);
+                    }
+                }
+            }
+            return null;
+        });
+
+        int[] order = new int[ids.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        IntArrays.quickSort(order, (a, b) -> Double.compare(distances.getDouble(a), distances.getDouble(b)));
+        List<Long> nearest = new ArrayList<>(Math.min(limit, order.length));
+        for (int i = 0; i < order.length && i < limit; i++) {
+            nearest.add(ids.getLong(order[i]));
+        }
+        return nearest;
+    }
+
+    @EventListener(ObjectChangeEvent.class)
+    public void onObjectChange(ObjectChangeEvent event) {
+
+        if (event.getObjectType() != ObjectChangeEvent.ObjectType.LOCATION || event.getObjectId() == null) {
+            return;
+        }
+        switch (event.getActionType()) {
+            case CREATED:
+            case UPDATED:
+                if (event.getEntity() instanceof Location) {
+                    Location location = (Location) event.getEntity();
+                    if (location.getLatitude() != null && location.getLongitude() != null) {
+                        put(event.getObjectId(), location.getLatitude(), location.getLongitude());
+                    } else {
+                        remove(event.getObjectId());
+                    }
+                }
+                break;
+            case DELETED:
+                remove(event.getObjectId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Great-circle distance by the haversine formula.
+     */
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * The geohash of the cell a point falls in, as text.
+     */
+    String geohash(double latitude, double longitude) {
+
+        long key = cellKey(latitude, longitude);
+        char[] hash = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            hash[i] = BASE32[(int) (key & 31)];
+            key >>>= 5;
+        }
+        return new String(hash);
+    }
+
+    private long cellKey(double latitude, double longitude) {
+
+        int lonCells = 1 << lonBits;
+        int x = (int) Math.floor((longitude + 180) / 360 * lonCells);
+        return interleave(Math.max(0, Math.min(lonCells - 1, x)), cellY(latitude));
+    }
+
+    private int cellY(double latitude) {
+
+        int latCells = 1 << latBits;
+        int y = (int) Math.floor((latitude + 90) / 180 * latCells);
+        return Math.max(0, Math.min(latCells - 1, y));
+    }
+
+    /**
+     * Alternates longitude and latitude bits, longitude first, which is how a geohash is built.
+     */
+    private long interleave(int x, int y) {
+
+        long key = 0;
+        for (int lonBit = lonBits - 1, latBit = latBits - 1; lonBit >= 0; lonBit--, latBit--) {
+            key = key << 1 | (x >>> lonBit & 1);
+            if (latBit >= 0) {
+                key = key << 1 | (y >>> latBit & 1);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * The cells, and the cell of each indexed location.
+     */
+    static final class Grid {
+
+        final Long2ObjectOpenHashMap<Cell> cells = new Long2ObjectOpenHashMap<>();
+        final Long2LongOpenHashMap cellsByLocation = new Long2LongOpenHashMap();
+
+        Grid() {
+
+            cellsByLocation.defaultReturnValue(NONE);
+        }
+
+        void put(long locationId, long cellKey, double latitude, double longitude) {
+
+            remove(locationId);
+            Cell cell = cells.get(cellKey);
+            if (cell == null) {
+                cell = new Cell();
+                cells.put(cellKey, cell);
+            }
+            cell.add(locationId, latitude, longitude);
+            cellsByLocation.put(locationId, cellKey);
+        }
+
+        void remove(long locationId) {
+
+            long cellKey = cellsByLocation.remove(locationId);
+            if (cellKey == NONE) {
+                return;
+            }
+            Cell cell = cells.get(cellKey);
+            if (cell != null && cell.remove(locationId) && cell.isEmpty()) {
+                cells.remove(cellKey);
+            }
+        }
+    }
+
+    private static final class Cell {
+
+        final LongArrayList ids = new LongArrayList(4);
+        final DoubleArrayList latitudes = new DoubleArrayList(4);
+        final DoubleArrayList longitudes = new DoubleArrayList(4);
+
+        void add(long id, double latitude, double longitude) {
+
+            ids.add(id);
+            latitudes.add(latitude);
+            longitudes.add(longitude);
+        }
+
+        /**
+         * Moves the last point into the freed slot, since the order within a cell does not matter.
+         */
+        boolean remove(long id) {
+
+            int index = ids.indexOf(id);
+            if (index < 0) {
+                return false;
+            }
+            int last = ids.size() - 1;
+            ids.set(index, ids.getLong(last));
+            latitudes.set(index, latitudes.getDouble(last));
+            longitudes.set(index, longitudes.getDouble(last));
+            ids.removeLong(last);
+            latitudes.removeDouble(last);
+            longitudes.removeDouble(last);
+            return true;
+        }
+
+        boolean isEmpty() {
+
+            return ids.isEmpty();
+        }
+
+        void collect(
+            double latitude,
+            double longitude,
+            double radiusMeters,
+            double minLat,
+            double maxLat,
+            LongPredicate filter,
+            LongArrayList foundIds,
+            DoubleArrayList foundDistances
+        ) {
+
+            for (int i = 0; i < ids.size(); i++) {
+                double pointLat = latitudes.getDouble(i);
+                if (pointLat < minLat || pointLat > maxLat) {
+                    continue;
+                }
+                double distance = distanceMeters(latitude, longitude, pointLat, longitudes.getDouble(i));
+                if (distance <= radiusMeters && filter.test(ids.getLong(i))) {
+                    foundIds.add(ids.getLong(i));
+                    foundDistances.add(distance);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.locationsystem.location;
+
+import com.example.locationsystem.util.SqlUtil;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.location.LocationQueries.*;
+import static com.example.locationsystem.util.SqlUtil.bindId;
+import static com.example.locationsystem.util.SqlUtil.deleteReturningId;
+import static com.example.locationsystem.util.SqlUtil.placeholders;
+
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "r2dbc")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class R2dbcLocationDao implements LocationDao {
+
+    static final int STREAM_PREFETCH = 256;
+
+    DatabaseClient databaseClient;
+
+    @Override
+    public CompletableFuture<List<Location>> findUserLocations(Long userId, long afterId, int limit) {
+
+        return databaseClient.sql(FIND_USER_LOCATIONS_PAGE)
+            .bind(0, userId)
+            .bind(1, afterId)
+            .bind(2, limit)
+            .bind(3, userId)
+            .bind(4, afterId)
+            .bind(5, limit)
+            .bind(6, limit)
+            .map(R2dbcLocationDao::mapLocation)
+            .all()
+            .collectList()
+            .doOnNext(locations -> log.info("{} user locations by user id={} after id={} found", locations.size(),
+                userId, afterId))
+            .toFuture();
+    }
+
+    /**
+     * Rows are requested {@value #STREAM_PREFETCH} at a time and handed to {@code consumer} off the driver's event
+     * loop, since it usually blocks on the response. An exception from the consumer cancels the query.
+     */
+    @Override
+    public CompletableFuture<Long> streamUserLocations(Long userId, Consumer<Location> consumer) {
+
+        return databaseClient.sql(STREAM_USER_LOCATIONS)
+            .bind(0, userId)
+            .bind(1, userId)
+            .bind(2, userId)
+            .map(R2dbcLocationDao::mapLocation)
+            .all()
+            .publishOn(Schedulers.boundedElastic(), STREAM_PREFETCH)
+            .doOnNext(consumer)
+            .count()
+            .doOnNext(rows -> log.info("{} user locations by user id={} streamed", rows, userId))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Location> findLocationInUserLocations(Long userId, Long locationId) {
+
+        return databaseClient.sql(FIND_LOCATION_IN_USER_LOCATIONS)
+            .bind(0, userId)
+            .bind(1, locationId)
+            .bind(2, userId)
+            .bind(3, locationId)
+            .map(R2dbcLocationDao::mapLocation)
+            .first()
+            .doOnNext(loc -> log.info("Location found in user locations by user id={} and location id={}",
+                userId, locationId))
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("Location not found in user locations by user id={} and location id={}", userId,
+                    locationId);
+                return Mono.error(new LocationNotFoundException("Location not found"));
+            }))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Optional<Location>> findLocationByNameAndUserId(String name, Long userId) {
+
+        return databaseClient.sql(FIND_LOCATION_BY_NAME_AND_USER_ID)
+            .bind(0, name)
+            .bind(1, userId)
+            .map(R2dbcLocationDao::mapLocation)
+            .first()
+            .doOnNext(location -> log.info("Location found by name={} and user id={}", name, userId))
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Location> saveLocation(Location location) {
+
+        return databaseClient.sql(SAVE_LOCATION)
+            .filter(statement -> statement.returnGeneratedValues("id"))
+            .bind(0, Parameter.fromOrEmpty(location.getId(), Long.class))
+            .bind(1, location.getName())
+            .bind(2, location.getAddress())
+            .bind(3, location.getUserId())
+            .bind(4, Parameter.fromOrEmpty(location.getLatitude(), Double.class))
+            .bind(5, Parameter.fromOrEmpty(location.getLongitude(), Double.class))
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .map(id -> {
+                location.setId(id);
+                log.info("Location saved={}", location);
+                return location;
+            })
+            .onErrorMap(DataAccessException.class, e -> {
+                if (SqlUtil.isDuplicateKey(e)) {
+                    log.warn("Location with name={} already exists for user id={}", location.getName(),
+                        location.getUserId());
+                    return new AlreadyExistsException("Location with that name already exists");
+                }
+                return new LocationSaveException("Failed to save location");
+            })
+            .toFuture();
+    }
+
+    /**
+     * Runs the batch in a transaction, so a name taken meanwhile rolls all of it back and the locations are then
+     * inserted one by one, skipping those whose name is taken.
+     */
+    @Override
+    public CompletableFuture<List<Location>> saveLocations(List<Location> locations) {
+
+        return insertBatch(locations)
+            .onErrorResume(SqlUtil::isDuplicateKey, e -> {
+                log.warn("Batch of {} locations hit an existing name, saving them one by one", locations.size());
+                return Flux.fromIterable(locations)
+                    .concatMap(location -> Mono.defer(() -> Mono.fromFuture(saveLocation(location)))
+                        .onErrorResume(AlreadyExistsException.class, ex -> Mono.empty()))
+                    .collectList();
+            })
+            .doOnNext(saved -> log.info("{} of {} locations saved", saved.size(), locations.size()))
+            .onErrorMap(DataAccessException.class, e -> new LocationSaveException("Failed to save locations"))
+            .toFuture();
+    }
+
+    private Mono<List<Location>> insertBatch(List<Location> locations) {
+
+        return databaseClient.inConnectionMany(connection -> {
+                Statement statement = connection.createStatement(SAVE_LOCATION).returnGeneratedValues("id");
+                for (int i = 0; i < locations.size(); i++) {
+                    if (i > 0) {
+                        statement.add();
+                    }
+                    Location location = locations.get(i);
+                    bindId(statement, location.getId())
+                        .bind(1, location.getName())
+                        .bind(2, location.getAddress())
+                        .bind(3, location.getUserId());
+                    bindCoordinate(statement, 4, location.getLatitude());
+                    bindCoordinate(statement, 5, location.getLongitude());
+                }
+                return Mono.from(connection.beginTransaction())
+                    .thenMany(Flux.from(statement.execute())
+                        .concatMap(result -> result.map((row, metadata) -> row.get(0, Long.class))))
+                    .collectList()
+                    .flatMap(ids -> Mono.from(connection.commitTransaction()).thenReturn(ids))
+                    .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e)))
+                    .flatMapIterable(ids -> ids);
+            })
+            .collectList()
+            .map(ids -> {
+                for (int i = 0; i < ids.size(); i++) {
+                    if (locations.get(i).getId() == null) {
+                        locations.get(i).setId(ids.get(i));
+                    }
+                }
+                return locations;
+            });
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> findLocationNamesByUserId(Long userId, Collection<String> names) {
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                String.format(FIND_LOCATION_NAMES_BY_USER_ID, placeholders(names.size())))
+            .bind(0, userId);
+        int i = 1;
+        for (String name : names) {
+            spec = spec.bind(i++, name);
+        }
+        return spec.map(row -> row.get(0, String.class))
+            .all()
+            .collect(Collectors.toSet())
+            .doOnNext(found -> log.info("{} of {} location names found by user id={}", found.size(), names.size(),
+                userId))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Location> findManagedLocation(Long userId, Long locationId) {
+
+        return databaseClient.sql(FIND_MANAGED_LOCATION)
+            .bind(0, locationId)
+            .bind(1, userId)
+            .bind(2, userId)
+            .map(R2dbcLocationDao::mapLocation)
+            .first()
+            .doOnNext(loc -> log.info("Found managed location by user id={} and location id={}", userId, locationId))
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("Managed location not found by user id={} and location id={}", userId, locationId);
+                return Mono.error(new LocationNotFoundException("Location not found"));
+            }))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Location> findNotSharedToUserLocation(Long ownerId, Long locId, Long userId) {
+
+        return databaseClient.sql(FIND_NOT_SHARED_TO_USER_LOCATION)
+            .bind(0, locId)
+            .bind(1, ownerId)
+            .bind(2, ownerId)
+            .bind(3, userId)
+            .bind(4, userId)
+            .map(R2dbcLocationDao::mapLocation)
+            .first()
+            .doOnNext(loc -> log.info("Found not shared to user location by owner id={}, location id={}, user id={}",
+                ownerId, locId, userId))
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("Location or user not found by owner id={}, location id={}, user to share id={}",
+                    ownerId, locId, userId);
+                return Mono.error(new LocationOrUserNotFoundException("Location or user not found"));
+            }))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> deleteLocation(String name, Long userId) {
+
+        return deleteReturningId(databaseClient, DELETE_LOCATION, name, userId)
+            .doOnNext(id -> log.info("Location deleted by location name={} and user id={}", name, userId))
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("Location not found by name={} and user id={}", name, userId);
+                return Mono.error(new LocationNotFoundException("Location not found"));
+            }))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Location> findLocationById(Long id) {
+
+        return databaseClient.sql(FIND_LOCATION_BY_ID)
+            .bind(0, id)
+            .map(R2dbcLocationDao::mapLocation)
+            .first()
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("Location not found by id={}", id);
+                return Mono.error(new LocationNotFoundException("Location not found"));
+            }))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<Location>> findLocationsByIds(Collection<Long> ids) {
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+            String.format(FIND_LOCATIONS_BY_IDS, placeholders(ids.size())));
+        int i = 0;
+        for (Long id : ids) {
+            spec = spec.bind(i++, id);
+        }
+        return spec.map(R2dbcLocationDao::mapLocation)
+            .all()
+            .collectList()
+            .doOnNext(locations -> log.info("{} of {} locations found by ids", locations.size(), ids.size()))
+            .toFuture();
+    }
+
+    private static void bindCoordinate(Statement statement, int index, Double value) {
+
+        if (value == null) {
+            statement.bindNull(index, Double.class);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private static Location mapLocation(Row row) {
+
+        Location location = new Location();
+        location.setId(row.get(0, Long.class));
+        location.setName(row.get(1, String.class));
+        location.setAddress(row.get(2, String.class));
+        location.setUserId(row.get(3, Long.class));
+        location.setLatitude(row.get(4, Double.class));
+        location.setLongitude(row.get(5, Double.class));
+        return location;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.locationsystem.location;
+
+import com.example.locationsystem.event.ObjectChangeEvent;
+import com.example.locationsystem.replica.ReplicaRouter;
+import com.example.locationsystem.userAccess.UserAccess;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * First page of the locations visible to a user (owned or shared), keyed by user id. Entries are dropped on the
+ * {@link ObjectChangeEvent}s that can change them; the TTL only bounds how long a change made outside this application
+ * can go unnoticed.
+ * Invalidating a key while its query is in flight discards that result, so a load racing with a write is not cached.
+ * Users whose entry is dropped read from the primary for a while, so a lagging replica cannot refill it with the state
+ * from before the change.
+ */
+@Component
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class VisibleLocationsCache {
+
+    static final String CACHE_NAME = "visibleLocations";
+
+    AsyncCache<Long, List<Location>> cache;
+    ReplicaRouter replicaRouter;
+
+    public VisibleLocationsCache(
+        @Value("${cache.visible-locations.max-size:10000}") long maxSize,
+        @Value("${cache.visible-locations.ttl:5m}") Duration ttl,
+        MeterRegistry meterRegistry,
+        ReplicaRouter replicaRouter
+    ) {
+
+        this.replicaRouter = replicaRouter;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+
+    public CompletableFuture<List<Location>> get(
+        Long userId,
+        Function<Long, CompletableFuture<List<Location>>> loader
+    ) {
+
+        return cache.get(userId, (id, executor) -> loader.apply(id).thenApply(Collections::unmodifiableList));
+    }
+
+    @EventListener(ObjectChangeEvent.class)
+    public void onObjectChange(ObjectChangeEvent event) {
+
+        switch (event.getObjectType()) {
+            case USER:
+                if (event.getActionType() == ObjectChangeEvent.ActionType.DELETED) {
+                    invalidate(event.getObjectId());
+                }
+                break;
+            case LOCATION:
+                if (event.getEntity() instanceof Location) {
+                    invalidate(((Location) event.getEntity()).getUserId());
+                } else if (event.getEntity() instanceof DeletedLocation) {
+                    invalidateAll((DeletedLocation) event.getEntity());
+                }
+                break;
+            case USER_ACCESS:
+                if (event.getEntity() instanceof UserAccess) {
+                    invalidate(((UserAccess) event.getEntity()).getUserId());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void invalidate(Long userId) {
+
+        if (userId != null) {
+            replicaRouter.stickToPrimary(userId);
+            cache.synchronous().invalidate(userId);
+            log.debug("Visible locations of user id={} invalidated", userId);
+        }
+    }
+
+    /**
+     * Drops the entries of the users who could see the location. Without them every entry is dropped, which only
+     * happens while the access control index is not ready.
+     */
+    private void invalidateAll(DeletedLocation deletedLocation) {
+
+        long[] userIds = deletedLocation.getUserIds();
+        if (userIds == null) {
+            cache.synchronous().invalidateAll();
+            log.debug("Visible locations of every user invalidated for deleted location id={}",
+                deletedLocation.getLocation().getId());
+            return;
+        }
+        for (long userId : userIds) {
+            invalidate(userId);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.locationsystem.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proxies an interface and records every call in a timer tagged with the interface, the method and the exception
+ * that ended it, or {@code none}. A call returning a {@link CompletionStage} is timed until the stage completes, so
+ * an async DAO call includes its wait for the executor and the query itself.
+ */
+public final class MethodTimer implements InvocationHandler {
+
+    static final String NO_EXCEPTION = "none";
+
+    private final Object target;
+    private final String metricName;
+    private final String typeName;
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+
+    private MethodTimer(Object target, String metricName, Class<?> type, MeterRegistry meterRegistry) {
+
+        this.target = target;
+        this.metricName = metricName;
+        this.typeName = type.getSimpleName();
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static <T> T timed(Class<T> type, T target, String metricName, MeterRegistry meterRegistry) {
+
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+            new MethodTimer(target, metricName, type, meterRegistry)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            record(method, start, e.getCause());
+            throw e.getCause();
+        }
+        if (result instanceof CompletionStage) {
+            ((CompletionStage<?>) result).whenComplete((value, e) -> record(method, start, e));
+        } else {
+            record(method, start, null);
+        }
+        return result;
+    }
+
+    private void record(Method method, long start, Throwable failure) {
+
+        long elapsed = System.nanoTime() - start;
+        Timer timer = failure == null
+            ? successTimers.computeIfAbsent(method, m -> timer(m, NO_EXCEPTION))
+            : timer(method, exceptionName(failure));
+        timer.record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Method method, String exception) {
+
+        return Timer.builder(metricName)
+            .tag("class", typeName)
+            .tag("method", method.getName())
+            .tag("exception", exception)
+            .register(meterRegistry);
+    }
+
+    private static String exceptionName(Throwable failure) {
+
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+            ? failure.getCause()
+            : failure;
+        return cause.getClass().getSimpleName();
+    }
+}
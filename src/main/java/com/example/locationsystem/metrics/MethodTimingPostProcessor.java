@@ -0,0 +1,76 @@
+package com.example.locationsystem.metrics;
+
+import com.example.locationsystem.acl.AccessControlService;
+import com.example.locationsystem.checkIn.CheckInDao;
+import com.example.locationsystem.checkIn.CheckInService;
+import com.example.locationsystem.event.EventDao;
+import com.example.locationsystem.location.LocationDao;
+import com.example.locationsystem.location.LocationService;
+import com.example.locationsystem.user.UserDao;
+import com.example.locationsystem.user.UserService;
+import com.example.locationsystem.userAccess.UserAccessDao;
+import com.example.locationsystem.userAccess.UserAccessService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces every DAO and service bean with a {@link MethodTimer} proxy of its interface, recording calls in
+ * {@value #DAO_METRIC} and {@value #SERVICE_METRIC}. Beans are injected by interface throughout, so the proxy is
+ * transparent; the per-shard DAOs built inside {@code Shards} are not beans and are timed through the sharded DAO
+ * that calls them. Percentiles are configured in {@code management.metrics.distribution}.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class MethodTimingPostProcessor implements BeanPostProcessor {
+
+    public static final String DAO_METRIC = "dao.calls";
+    public static final String SERVICE_METRIC = "service.calls";
+
+    private static final Map<Class<?>, String> TIMED_TYPES = new LinkedHashMap<>();
+
+    static {
+        TIMED_TYPES.put(LocationDao.class, DAO_METRIC);
+        TIMED_TYPES.put(UserDao.class, DAO_METRIC);
+        TIMED_TYPES.put(UserAccessDao.class, DAO_METRIC);
+        TIMED_TYPES.put(EventDao.class, DAO_METRIC);
+        TIMED_TYPES.put(CheckInDao.class, DAO_METRIC);
+        TIMED_TYPES.put(LocationService.class, SERVICE_METRIC);
+        TIMED_TYPES.put(UserService.class, SERVICE_METRIC);
+        TIMED_TYPES.put(UserAccessService.class, SERVICE_METRIC);
+        TIMED_TYPES.put(AccessControlService.class, SERVICE_METRIC);
+        TIMED_TYPES.put(CheckInService.class, SERVICE_METRIC);
+    }
+
+    /**
+     * Looked up on first use, so that post-processors do not pull the registry in before its own configuration.
+     */
+    ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+        for (Map.Entry<Class<?>, String> timed : TIMED_TYPES.entrySet()) {
+            if (timed.getKey().isInstance(bean)) {
+                log.debug("Timing calls of bean {} as {}", beanName, timed.getKey().getSimpleName());
+                return timed(timed.getKey(), bean, timed.getValue());
+            }
+        }
+        return bean;
+    }
+
+    private <T> T timed(Class<T> type, Object bean, String metricName) {
+
+        return MethodTimer.timed(type, type.cast(bean), metricName, meterRegistry.getObject());
+    }
+}
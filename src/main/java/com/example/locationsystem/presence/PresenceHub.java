@@ -0,0 +1,460 @@
+package com.example.locationsystem.presence;
+
+import com.example.locationsystem.acl.AccessControlIndex;
+import com.example.locationsystem.event.ObjectChangeEvent;
+import com.example.locationsystem.userAccess.UserAccess;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+/**
+ * Pushes changes to the users on a location to clients subscribed over Server-Sent Events, so they no longer poll
+ * {@code GET /location/{locationId}/}. A subscription starts with a {@code snapshot} of the users with access to the
+ * location, as that endpoint lists them, followed by {@code delta}s of users that joined or left, built from
+ * {@link ObjectChangeEvent}s. Deltas are set operations, so one that the snapshot already reflects changes nothing.
+ * Subscribers of a deleted location get {@code deleted} and are closed.
+ * <p>
+ * Changes are collected per location and fanned out every {@code presence.flush-interval}, so a burst of shares
+ * becomes one message. Each subscriber has at most one write in flight; deltas that arrive meanwhile are merged into
+ * its pending one, and once that holds more than {@code presence.max-pending} users it is replaced by a fresh
+ * snapshot, so a slow client costs bounded memory. Writes block while the client's socket buffer is full, so the
+ * sender pool starts threads beyond {@code presence.sender-threads}, up to {@code presence.max-sender-threads},
+ * rather than queueing writes behind a stuck one. When all of them are busy, subscribers wait for the next flush. A
+ * subscriber whose write has been blocked for longer than {@code presence.send-timeout} is closed and gets nothing
+ * more. Idle subscriptions are async requests and hold no thread; a comment is sent every
+ * {@code presence.heartbeat-interval} so dead connections are noticed.
+ * <p>
+ * Members and permissions come from the {@link AccessControlIndex}, so subscriptions are refused as busy until it is
+ * loaded.
+ */
+@Component
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PresenceHub {
+
+    static final String SNAPSHOT = "snapshot";
+    static final String DELTA = "delta";
+    static final String DELETED = "deleted";
+
+    AccessControlIndex accessControlIndex;
+    long emitterTimeoutMillis;
+    int maxSubscribers;
+    int maxPending;
+    long sendTimeoutNanos;
+
+    ConcurrentHashMap<Long, Topic> topics = new ConcurrentHashMap<>();
+    Set<Topic> dirtyTopics = ConcurrentHashMap.newKeySet();
+    Set<Subscriber> unscheduled = ConcurrentHashMap.newKeySet();
+    AtomicInteger subscriberCount = new AtomicInteger();
+    ScheduledExecutorService scheduler;
+    ExecutorService senders;
+
+    Counter overflowCounter;
+    Counter slowCounter;
+
+    public PresenceHub(
+        AccessControlIndex accessControlIndex,
+        MeterRegistry meterRegistry,
+        @Value("${presence.flush-interval:200ms}") Duration flushInterval,
+        @Value("${presence.heartbeat-interval:30s}") Duration heartbeatInterval,
+        @Value("${presence.emitter-timeout:30m}") Duration emitterTimeout,
+        @Value("${presence.max-subscribers:50000}") int maxSubscribers,
+        @Value("${presence.max-pending:1000}") int maxPending,
+        @Value("${presence.sender-threads:4}") int senderThreads,
+        @Value("${presence.max-sender-threads:64}") int maxSenderThreads,
+        @Value("${presence.send-timeout:10s}") Duration sendTimeout
+    ) {
+
+        this.accessControlIndex = accessControlIndex;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        this.maxPending = maxPending;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+
+        this.overflowCounter = meterRegistry.counter("presence.overflows");
+        this.slowCounter = meterRegistry.counter("presence.slow-subscribers");
+        Gauge.builder("presence.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("presence.topics", topics, ConcurrentHashMap::size).register(meterRegistry);
+
+        this.senders = new ThreadPoolExecutor(senderThreads, maxSenderThreads, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), new CustomizableThreadFactory("presence-sender-"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("presence-hub-"));
+        long flushMillis = flushInterval.toMillis();
+        long heartbeatMillis = heartbeatInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long sendTimeoutMillis = sendTimeout.toMillis();
+        scheduler.scheduleWithFixedDelay(this::closeSlowSubscribers, sendTimeoutMillis, sendTimeoutMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribes a user that owns the location or has any access to it.
+     */
+    public SseEmitter subscribe(long userId, long locationId) {
+
+        if (!accessControlIndex.isReady()) {
+            throw new RejectedExecutionException("Presence is not available until the access control index is loaded");
+        }
+        if (!accessControlIndex.canView(userId, locationId)) {
+            log.warn("Location not found in user locations by user id={} and location id={}", userId, locationId);
+            throw new LocationNotFoundException("Location not found");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            log.warn("Presence subscription of user id={} rejected, {} subscribers", userId, maxSubscribers);
+            throw new RejectedExecutionException("Too many presence subscribers");
+        }
+
+        Subscriber subscriber = new Subscriber(userId, locationId, new SseEmitter(emitterTimeoutMillis));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+        topics.compute(locationId, (id, topic) -> {
+            Topic subscribed = topic != null ? topic : new Topic(accessControlIndex.findUsersWithAccess(id));
+            subscribed.subscribers.add(subscriber);
+            subscriber.topic = subscribed;
+            return subscribed;
+        });
+        subscriber.requestSnapshot();
+        log.info("User id={} subscribed to presence on location id={}", userId, locationId);
+        return subscriber.emitter;
+    }
+
+    @EventListener(ObjectChangeEvent.class)
+    public void onObjectChange(ObjectChangeEvent event) {
+
+        switch (event.getObjectType()) {
+            case USER_ACCESS:
+                if (event.getActionType() == ObjectChangeEvent.ActionType.CREATED
+                    && event.getEntity() instanceof UserAccess) {
+                    UserAccess userAccess = (UserAccess) event.getEntity();
+                    Topic topic = topics.get(userAccess.getLocationId());
+                    if (topic != null && topic.join(userAccess.getUserId())) {
+                        dirtyTopics.add(topic);
+                    }
+                }
+                break;
+            case USER:
+                if (event.getActionType() == ObjectChangeEvent.ActionType.DELETED) {
+                    userDeleted(event.getObjectId());
+                }
+                break;
+            case LOCATION:
+                if (event.getActionType() == ObjectChangeEvent.ActionType.DELETED) {
+                    Topic topic = topics.remove(event.getObjectId());
+                    if (topic != null) {
+                        dirtyTopics.remove(topic);
+                        topic.subscribers.forEach(Subscriber::locationDeleted);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        topics.values().forEach(topic -> topic.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    /**
+     * Accesses of a deleted user go with it, so it leaves every location it was on, and its own subscriptions end.
+     */
+    private void userDeleted(long userId) {
+
+        for (Topic topic : topics.values()) {
+            if (topic.leave(userId)) {
+                dirtyTopics.add(topic);
+            }
+            topic.subscribers.stream()
+                .filter(subscriber -> subscriber.userId == userId)
+                .forEach(subscriber -> subscriber.emitter.complete());
+        }
+    }
+
+    private void flush() {
+
+        for (Iterator<Subscriber> it = unscheduled.iterator(); it.hasNext(); ) {
+            Subscriber subscriber = it.next();
+            it.remove();
+            subscriber.retry();
+        }
+        for (Iterator<Topic> it = dirtyTopics.iterator(); it.hasNext(); ) {
+            Topic topic = it.next();
+            it.remove();
+            long[] joined;
+            long[] left;
+            synchronized (topic) {
+                joined = topic.joined.toLongArray();
+                left = topic.left.toLongArray();
+                topic.joined.clear();
+                topic.left.clear();
+            }
+            if (joined.length > 0 || left.length > 0) {
+                topic.subscribers.forEach(subscriber -> subscriber.offer(joined, left));
+            }
+        }
+    }
+
+    private void heartbeat() {
+
+        topics.values().forEach(topic -> topic.subscribers.forEach(Subscriber::requestHeartbeat));
+    }
+
+    private void closeSlowSubscribers() {
+
+        long now = System.nanoTime();
+        topics.values().forEach(topic -> topic.subscribers.forEach(subscriber -> {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince != 0 && now - sendingSince > sendTimeoutNanos) {
+                slowCounter.increment();
+                log.warn("Presence subscriber of user id={} on location id={} too slow, closing it",
+                    subscriber.userId, subscriber.locationId);
+                unsubscribe(subscriber);
+                subscriber.emitter.completeWithError(new TimeoutException("Presence subscriber too slow"));
+            }
+        }));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        unscheduled.remove(subscriber);
+        topics.computeIfPresent(subscriber.locationId, (id, topic) -> {
+            if (topic != subscriber.topic) {
+                return topic;
+            }
+            topic.subscribers.remove(subscriber);
+            return topic.subscribers.isEmpty() ? null : topic;
+        });
+        log.debug("User id={} unsubscribed from presence on location id={}", subscriber.userId, subscriber.locationId);
+    }
+
+    /**
+     * The users with access to one location, and the changes to them not yet fanned out.
+     */
+    private static final class Topic {
+
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final LongOpenHashSet members;
+        final LongOpenHashSet joined = new LongOpenHashSet();
+        final LongOpenHashSet left = new LongOpenHashSet();
+
+        Topic(long[] members) {
+
+            this.members = new LongOpenHashSet(members);
+        }
+
+        synchronized boolean join(long userId) {
+
+            if (!members.add(userId)) {
+                return false;
+            }
+            if (!left.remove(userId)) {
+                joined.add(userId);
+            }
+            return true;
+        }
+
+        synchronized boolean leave(long userId) {
+
+            if (!members.remove(userId)) {
+                return false;
+            }
+            if (!joined.remove(userId)) {
+                left.add(userId);
+            }
+            return true;
+        }
+
+        synchronized long[] members(long exceptUserId) {
+
+            LongOpenHashSet others = new LongOpenHashSet(members);
+            others.remove(exceptUserId);
+            return others.toLongArray();
+        }
+    }
+
+    /**
+     * One subscription and what it has yet to be sent. The state is guarded by the subscriber itself; the topic lock
+     * is only ever taken inside it, never the other way round.
+     */
+    private final class Subscriber {
+
+        final long userId;
+        final long locationId;
+        final SseEmitter emitter;
+        final AtomicBoolean closed = new AtomicBoolean();
+        final LongOpenHashSet joined = new LongOpenHashSet();
+        final LongOpenHashSet left = new LongOpenHashSet();
+
+        volatile Topic topic;
+        /**
+         * {@link System#nanoTime()} when the write in flight started, or 0.
+         */
+        volatile long sendingSince;
+        boolean snapshotDue;
+        boolean heartbeatDue;
+        boolean deleted;
+        boolean scheduled;
+
+        Subscriber(long userId, long locationId, SseEmitter emitter) {
+
+            this.userId = userId;
+            this.locationId = locationId;
+            this.emitter = emitter;
+        }
+
+        synchronized void requestSnapshot() {
+
+            snapshotDue = true;
+            schedule();
+        }
+
+        synchronized void requestHeartbeat() {
+
+            heartbeatDue = true;
+            schedule();
+        }
+
+        synchronized void locationDeleted() {
+
+            deleted = true;
+            schedule();
+        }
+
+        synchronized void retry() {
+
+            schedule();
+        }
+
+        synchronized void offer(long[] joinedIds, long[] leftIds) {
+
+            if (!snapshotDue) {
+                for (long id : joinedIds) {
+                    if (id != userId && !left.remove(id)) {
+                        joined.add(id);
+                    }
+                }
+                for (long id : leftIds) {
+                    if (id != userId && !joined.remove(id)) {
+                        left.add(id);
+                    }
+                }
+                if (joined.size() + left.size() > maxPending) {
+                    overflowCounter.increment();
+                    joined.clear();
+                    left.clear();
+                    snapshotDue = true;
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+
+            if (scheduled || closed.get()) {
+                return;
+            }
+            scheduled = true;
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled = false;
+                unscheduled.add(this);
+            }
+        }
+
+        /**
+         * Sends what is pending, one event at a time, until nothing is left. Only one drain runs per subscriber.
+         */
+        private void drain() {
+
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                boolean last = false;
+                synchronized (this) {
+                    if (closed.get()) {
+                        scheduled = false;
+                        return;
+                    } else if (deleted) {
+                        event = SseEmitter.event().name(DELETED).data(locationId);
+                        last = true;
+                    } else if (snapshotDue) {
+                        snapshotDue = false;
+                        heartbeatDue = false;
+                        joined.clear();
+                        left.clear();
+                        event = SseEmitter.event().name(SNAPSHOT)
+                            .data(new PresenceUpdate(topic.members(userId), null, null), MediaType.APPLICATION_JSON);
+                    } else if (!joined.isEmpty() || !left.isEmpty()) {
+                        heartbeatDue = false;
+                        event = SseEmitter.event().name(DELTA)
+                            .data(new PresenceUpdate(null, joined.toLongArray(), left.toLongArray()),
+                                MediaType.APPLICATION_JSON);
+                        joined.clear();
+                        left.clear();
+                    } else if (heartbeatDue) {
+                        heartbeatDue = false;
+                        event = SseEmitter.event().comment("heartbeat");
+                    } else {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                sendingSince = System.nanoTime();
+                try {
+                    emitter.send(event);
+                    if (last) {
+                        emitter.complete();
+                        return;
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Presence subscriber of user id={} on location id={} gone: {}", userId, locationId,
+                        e.getMessage());
+                    emitter.completeWithError(e);
+                    unsubscribe(this);
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+    }
+}
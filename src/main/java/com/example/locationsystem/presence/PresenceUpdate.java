@@ -0,0 +1,22 @@
+package com.example.locationsystem.presence;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data of a presence event: {@code userIds} for a snapshot, {@code joined} and {@code left} for a delta.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PresenceUpdate {
+
+    private long[] userIds;
+
+    private long[] joined;
+
+    private long[] left;
+}
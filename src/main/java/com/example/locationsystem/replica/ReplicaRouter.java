@@ -0,0 +1,62 @@
+package com.example.locationsystem.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Decides where the JDBC DAOs read from. Reads go to a replica unless the user they are made for wrote something in
+ * the last {@code datasource.replicas.read-your-writes-window}, so nobody misses their own change because of replica
+ * lag. Reads that guard a write, such as permission and duplicate checks, do not go through here at all.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReplicaRouter {
+
+    Cache<Long, Boolean> recentWriters;
+
+    public ReplicaRouter(
+        @Value("${datasource.replicas.read-your-writes-window:5s}") Duration readYourWritesWindow,
+        @Value("${datasource.replicas.max-recent-writers:100000}") long maxRecentWriters
+    ) {
+
+        this.recentWriters = Caffeine.newBuilder()
+            .maximumSize(maxRecentWriters)
+            .expireAfterWrite(readYourWritesWindow)
+            .build();
+    }
+
+    /**
+     * Sends the reads made for {@code userId} to the primary for the rest of the window.
+     */
+    public void stickToPrimary(Long userId) {
+
+        if (userId != null) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    public boolean isStuckToPrimary(Long userId) {
+
+        return userId != null && recentWriters.getIfPresent(userId) != null;
+    }
+
+    public <T> T read(Long userId, Supplier<T> query) {
+
+        return isStuckToPrimary(userId) ? query.get() : ReplicaRoutingDataSource.onReplica(query);
+    }
+
+    /**
+     * For reads not made for a particular user.
+     */
+    public <T> T read(Supplier<T> query) {
+
+        return ReplicaRoutingDataSource.onReplica(query);
+    }
+}
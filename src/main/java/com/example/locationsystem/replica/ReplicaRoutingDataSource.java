@@ -0,0 +1,155 @@
+package com.example.locationsystem.replica;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+/**
+ * Hands out replica connections to code running inside {@link #onReplica(Supplier)} and primary connections to
+ * everything else, including transactions, Flyway and the startup loaders. Replicas are taken in turn; one that fails
+ * to connect or fails the periodic health check is skipped until it passes again, and with no healthy replica left
+ * reads go to the primary.
+ */
+@Log4j2
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    DataSource primary;
+    List<DataSource> replicas;
+    AtomicIntegerArray healthy;
+    AtomicInteger next = new AtomicInteger();
+    ScheduledExecutorService healthChecker;
+
+    /**
+     * A zero {@code healthCheckInterval} disables the periodic check; replicas are then only skipped after a failed
+     * connection attempt, until {@link #checkReplicas()} is called.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration healthCheckInterval) {
+
+        this.primary = primary;
+        this.replicas = replicas;
+        this.healthy = new AtomicIntegerArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            healthy.set(i, 1);
+        }
+        if (replicas.isEmpty() || healthCheckInterval.isZero()) {
+            this.healthChecker = null;
+        } else {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("replica-health-"));
+            long intervalMillis = healthCheckInterval.toMillis();
+            healthChecker.scheduleWithFixedDelay(this::checkReplicas, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs {@code action} with connections taken from a replica. Calls nest; the previous routing is restored after.
+     */
+    public static <T> T onReplica(Supplier<T> action) {
+
+        Boolean previous = READ_ONLY.get();
+        READ_ONLY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                READ_ONLY.remove();
+            } else {
+                READ_ONLY.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        if (Boolean.TRUE.equals(READ_ONLY.get())) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                int replica = Math.floorMod(next.getAndIncrement(), replicas.size());
+                if (healthy.get(replica) == 1) {
+                    try {
+                        return replicas.get(replica).getConnection();
+                    } catch (SQLException e) {
+                        markDown(replica, e.getMessage());
+                    }
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+
+        return primary.getConnection(username, password);
+    }
+
+    public int healthyReplicas() {
+
+        int count = 0;
+        for (int i = 0; i < healthy.length(); i++) {
+            count += healthy.get(i);
+        }
+        return count;
+    }
+
+    public void checkReplicas() {
+
+        for (int replica = 0; replica < replicas.size(); replica++) {
+            try (Connection connection = replicas.get(replica).getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    if (healthy.getAndSet(replica, 1) == 0) {
+                        log.info("Replica {} is healthy again", replica);
+                    }
+                } else {
+                    markDown(replica, "connection is not valid");
+                }
+            } catch (SQLException e) {
+                markDown(replica, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable) {
+                try {
+                    ((Closeable) replica).close();
+                } catch (Exception e) {
+                    log.warn("Failed to close replica data source: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void markDown(int replica, String reason) {
+
+        if (healthy.getAndSet(replica, 0) == 1) {
+            log.warn("Replica {} is unhealthy, reading from the primary instead: {}", replica, reason);
+        }
+    }
+}
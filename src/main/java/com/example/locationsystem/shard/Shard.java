@@ -0,0 +1,32 @@
+package com.example.locationsystem.shard;
+
+import com.example.locationsystem.location.LocationDao;
+import com.example.locationsystem.user.UserDao;
+import com.example.locationsystem.userAccess.UserAccessDao;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * One database of the sharded set, with the JDBC DAOs that run the unsharded queries against it.
+ */
+@Getter
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class Shard {
+
+    int index;
+    JdbcTemplate jdbcTemplate;
+    ShardIdGenerator idGenerator;
+    LocationDao locationDao;
+    UserDao userDao;
+    UserAccessDao userAccessDao;
+
+    @Override
+    public String toString() {
+
+        return "shard-" + index;
+    }
+}
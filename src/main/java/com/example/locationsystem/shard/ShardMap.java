@@ -0,0 +1,81 @@
+package com.example.locationsystem.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over shards numbered {@code 0..shards-1}. Each shard owns {@code virtualNodes} points on the
+ * ring and a key belongs to the first point at or after its hash. Points only depend on the shard number, so adding a
+ * shard at the end of the list moves about {@code 1/shards} of the keys, all of them to the new shard.
+ */
+public final class ShardMap {
+
+    /**
+     * Upper bound on the number of shards. Ids generated on a shard are multiples of this plus the shard number.
+     */
+    public static final int MAX_SHARDS = 64;
+
+    private final int shards;
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+
+    public ShardMap(int shards, int virtualNodes) {
+
+        if (shards < 1 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARDS + ", was " + shards);
+        }
+        this.shards = shards;
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(mix(((long) shard << 32) | node), shard);
+            }
+        }
+    }
+
+    public int size() {
+
+        return shards;
+    }
+
+    /**
+     * The shard holding the user's row, the locations they own and the accesses on those locations.
+     */
+    public int shardOf(long userId) {
+
+        return lookup(mix(userId));
+    }
+
+    /**
+     * The shard holding the email directory entry of {@code email}. Emails are unique regardless of case, so the hash
+     * is taken of the lower case form.
+     */
+    public int shardOf(String email) {
+
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : email.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return lookup(mix(hash));
+    }
+
+    private int lookup(long hash) {
+
+        Map.Entry<Long, Integer> point = ring.ceilingEntry(hash);
+        return (point != null ? point : ring.firstEntry()).getValue();
+    }
+
+    /**
+     * The MurmurHash3 finalizer, which spreads neighbouring ids over the whole ring.
+     */
+    private static long mix(long key) {
+
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.locationsystem.shard;
+
+import com.example.locationsystem.util.SqlUtil;
+
+final class ShardQueries {
+
+    /**
+     * Moves a sequence {@code ?} values ahead and returns where it ended up as a generated key, through
+     * {@code LAST_INSERT_ID(expr)}.
+     */
+    static final String ALLOCATE_ID_BLOCK = "UPDATE id_blocks SET next_value = LAST_INSERT_ID(next_value + ?) WHERE " +
+        "name = ?";
+    static final String FIND_USER_ID_BY_EMAIL = "SELECT user_id FROM user_emails WHERE username = ?";
+    static final String SAVE_USER_EMAIL = "INSERT INTO user_emails(username,user_id) VALUES (?,?)";
+    static final String DELETE_USER_EMAIL = "DELETE FROM user_emails WHERE username = ?";
+    /**
+     * Accesses granted to a user live with the locations they are on, so they are dropped on every shard.
+     */
+    static final String DELETE_ACCESSES_OF_USER = "DELETE FROM accesses WHERE user_id = ?";
+    /**
+     * Takes one {@code ?} per user in place of {@code %s}, see {@link SqlUtil#placeholders(int)}.
+     */
+    static final String FIND_EXISTING_USERS = "SELECT id FROM users WHERE id IN (%s)";
+    /**
+     * Takes the location id followed by one {@code ?} per user in place of {@code %s}.
+     */
+    static final String FIND_USERS_WITH_ACCESS = "SELECT user_id FROM accesses WHERE location_id = ? AND user_id IN " +
+        "(%s)";
+    /**
+     * {@code UserAccessQueries.SHARE_USER_ACCESS} without the check that the user exists, which is made on the
+     * user's own shard. Takes the new id first and inserts no row when the sharer may not share the location or the
+     * user already has access.
+     */
+    static final String SHARE_USER_ACCESS = "INSERT INTO accesses(id,title,location_id,user_id) SELECT ?, ?, l.id, ? " +
+        "FROM locations l WHERE l.id = ? AND (l.user_id = ? OR EXISTS (SELECT 1 FROM accesses m WHERE " +
+        "m.location_id = l.id AND m.user_id = ? AND m.title = 'ADMIN')) AND NOT EXISTS (SELECT 1 FROM accesses a " +
+        "WHERE a.location_id = l.id AND a.user_id = ?)";
+    static final String FIND_USERS_PAGE = "SELECT id, name, password, username FROM users WHERE id > ? ORDER BY id " +
+        "LIMIT ?";
+    static final String FIND_LOCATIONS_OF_USER = "SELECT id, name, address, user_id, latitude, longitude FROM " +
+        "locations WHERE user_id = ?";
+    static final String FIND_ACCESSES_ON_LOCATIONS_OF_USER = "SELECT a.id, a.title, a.location_id, a.user_id FROM " +
+        "accesses a JOIN locations l ON l.id = a.location_id WHERE l.user_id = ?";
+    static final String FIND_USER_EMAILS_PAGE = "SELECT username, user_id FROM user_emails WHERE username > ? ORDER " +
+        "BY username LIMIT ?";
+    /**
+     * The copies made while rebalancing ignore rows that are already there, so an interrupted run can be repeated.
+     */
+    static final String COPY_USER = "INSERT IGNORE INTO users(id,name,password,username) VALUES (?,?,?,?)";
+    static final String COPY_LOCATION = "INSERT IGNORE INTO locations(id,name,address,user_id,latitude,longitude) " +
+        "VALUES (?,?,?,?,?,?)";
+    static final String COPY_ACCESS = "INSERT IGNORE INTO accesses(id,title,location_id,user_id) VALUES (?,?,?,?)";
+    static final String COPY_USER_EMAIL = "INSERT IGNORE INTO user_emails(username,user_id) VALUES (?,?)";
+    /**
+     * Accesses on the deleted locations go with them through {@code ON DELETE CASCADE}.
+     */
+    static final String DELETE_LOCATIONS_OF_USER = "DELETE FROM locations WHERE user_id = ?";
+    static final String DELETE_USER = "DELETE FROM users WHERE id = ?";
+
+    private ShardQueries() {
+
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.locationsystem.shard;
+
+import com.example.locationsystem.location.Location;
+import com.example.locationsystem.location.LocationRowMapper;
+import com.example.locationsystem.user.User;
+import com.example.locationsystem.user.UserRowMapper;
+import com.example.locationsystem.userAccess.UserAccess;
+import com.example.locationsystem.userAccess.UserAccessRowMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.example.locationsystem.shard.ShardQueries.*;
+
+/**
+ * Moves rows to the shard the current map puts them on: each user with the locations they own and the accesses on
+ * those, and each email directory entry. Start the application with {@code --rebalance-shards} once after adding a
+ * shard and before it serves traffic, since rows still on their old shard are not found until they are moved.
+ * Rows are copied before they are deleted and copies skip rows that are already there, so an interrupted run can be
+ * started again.
+ */
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "sharded")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardRebalancer implements ApplicationRunner {
+
+    public static final String REBALANCE_OPTION = "rebalance-shards";
+    static final int PAGE_SIZE = 500;
+
+    Shards shards;
+
+    @Override
+    public void run(ApplicationArguments args) {
+
+        if (args.containsOption(REBALANCE_OPTION)) {
+            rebalance();
+        }
+    }
+
+    /**
+     * Returns the number of users moved.
+     */
+    public long rebalance() {
+
+        long start = System.nanoTime();
+        long users = 0;
+        long emails = 0;
+        for (Shard shard : shards.all()) {
+            users += moveUsers(shard);
+            emails += moveEmails(shard);
+        }
+        log.info("Rebalanced {} shards in {} ms, moved {} users and {} emails", shards.all().size(),
+            (System.nanoTime() - start) / 1_000_000, users, emails);
+        return users;
+    }
+
+    private long moveUsers(Shard source) {
+
+        long moved = 0;
+        long afterId = 0;
+        List<User> page;
+        do {
+            page = source.getJdbcTemplate().query(FIND_USERS_PAGE, UserRowMapper.INSTANCE, afterId, PAGE_SIZE);
+            for (User user : page) {
+                Shard target = shards.home(user.getId());
+                if (target != source) {
+                    moveUser(user, source, target);
+                    moved++;
+                }
+                afterId = user.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        return moved;
+    }
+
+    private void moveUser(User user, Shard source, Shard target) {
+
+        JdbcTemplate from = source.getJdbcTemplate();
+        JdbcTemplate to = target.getJdbcTemplate();
+        List<Location> locations = from.query(FIND_LOCATIONS_OF_USER, LocationRowMapper.INSTANCE, user.getId());
+        List<UserAccess> accesses = from.query(FIND_ACCESSES_ON_LOCATIONS_OF_USER, UserAccessRowMapper.INSTANCE,
+            user.getId());
+
+        to.update(COPY_USER, user.getId(), user.getName(), user.getPassword(), user.getUsername());
+        to.batchUpdate(COPY_LOCATION, locations.stream()
+            .map(location -> new Object[]{location.getId(), location.getName(), location.getAddress(),
+                location.getUserId(), location.getLatitude(), location.getLongitude()})
+            .collect(Collectors.toList()));
+        to.batchUpdate(COPY_ACCESS, accesses.stream()
+            .map(access -> new Object[]{access.getId(), access.getTitle(), access.getLocationId(),
+                access.getUserId()})
+            .collect(Collectors.toList()));
+
+        from.update(DELETE_LOCATIONS_OF_USER, user.getId());
+        from.update(DELETE_USER, user.getId());
+        log.info("User id={} with {} locations and {} accesses moved from {} to {}", user.getId(), locations.size(),
+            accesses.size(), source, target);
+    }
+
+    private long moveEmails(Shard source) {
+
+        long moved = 0;
+        String afterEmail = "";
+        List<Map<String, Object>> page;
+        do {
+            page = source.getJdbcTemplate().queryForList(FIND_USER_EMAILS_PAGE, afterEmail, PAGE_SIZE);
+            for (Map<String, Object> entry : page) {
+                String email = (String) entry.get("username");
+                Shard target = shards.directory(email);
+                if (target != source) {
+                    target.getJdbcTemplate().update(COPY_USER_EMAIL, email, entry.get("user_id"));
+                    source.getJdbcTemplate().update(DELETE_USER_EMAIL, email);
+                    moved++;
+                }
+                afterEmail = email;
+            }
+        } while (page.size() == PAGE_SIZE);
+        return moved;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.locationsystem.shard;
+
+import com.example.locationsystem.config.DaoExecutorConfig;
+import com.example.locationsystem.location.Location;
+import com.example.locationsystem.location.LocationDao;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.shard.ShardQueries.FIND_USERS_WITH_ACCESS;
+
+/**
+ * Locations live on the shard of their owner, together with the accesses on them. Queries by owner go to that one
+ * shard; queries by location id, and the lists of locations shared with a user, ask every shard.
+ */
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "sharded")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardedLocationDao implements LocationDao {
+
+    Shards shards;
+
+    @Qualifier(DaoExecutorConfig.LOCATION_DAO_EXECUTOR)
+    Executor executor;
+
+    /**
+     * Each shard returns its own first page after {@code afterId}, and the page is the first {@code limit} of those by
+     * id. Ids are unique across shards, so keyset paging works the same as on one database.
+     */
+    @Override
+    public CompletableFuture<List<Location>> findUserLocations(Long userId, long afterId, int limit) {
+
+        return shards.gather(shard -> shard.getLocationDao().findUserLocations(userId, afterId, limit))
+            .thenApply(pages -> pages.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Location::getId))
+                .limit(limit)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Streams one shard after the other, owned locations first.
+     */
+    @Override
+    public CompletableFuture<Long> streamUserLocations(Long userId, Consumer<Location> consumer) {
+
+        Shard home = shards.home(userId);
+        CompletableFuture<Long> rows = home.getLocationDao().streamUserLocations(userId, consumer);
+        for (Shard shard : shards.all()) {
+            if (shard != home) {
+                rows = rows.thenCompose(streamed -> shard.getLocationDao().streamUserLocations(userId, consumer)
+                    .thenApply(more -> streamed + more));
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public CompletableFuture<Location> findLocationInUserLocations(Long userId, Long locationId) {
+
+        return shards.findOnAny(shard -> shard.getLocationDao().findLocationInUserLocations(userId, locationId),
+            LocationNotFoundException.class);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Location>> findLocationByNameAndUserId(String name, Long userId) {
+
+        return shards.home(userId).getLocationDao().findLocationByNameAndUserId(name, userId);
+    }
+
+    @Override
+    public CompletableFuture<Location> saveLocation(Location location) {
+
+        Shard home = shards.home(location.getUserId());
+        return CompletableFuture.supplyAsync(() -> {
+            location.setId(home.getIdGenerator().nextId(ShardIdGenerator.LOCATIONS));
+            return location;
+        }, executor).thenCompose(home.getLocationDao()::saveLocation);
+    }
+
+    @Override
+    public CompletableFuture<List<Location>> saveLocations(List<Location> locations) {
+
+        Map<Shard, List<Location>> byShard = locations.stream()
+            .collect(Collectors.groupingBy(location -> shards.home(location.getUserId()), LinkedHashMap::new,
+                Collectors.toList()));
+        List<CompletableFuture<List<Location>>> saved = new ArrayList<>();
+        byShard.forEach((shard, batch) -> saved.add(CompletableFuture.supplyAsync(() -> {
+            batch.forEach(location -> location.setId(shard.getIdGenerator().nextId(ShardIdGenerator.LOCATIONS)));
+            return batch;
+        }, executor).thenCompose(shard.getLocationDao()::saveLocations)));
+        return CompletableFuture.allOf(saved.toArray(new CompletableFuture[0]))
+            .thenApply(ignored -> saved.stream()
+                .flatMap(batch -> batch.join().stream())
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> findLocationNamesByUserId(Long userId, Collection<String> names) {
+
+        return shards.home(userId).getLocationDao().findLocationNamesByUserId(userId, names);
+    }
+
+    @Override
+    public CompletableFuture<Location> findManagedLocation(Long userId, Long locationId) {
+
+        return shards.findOnAny(shard -> shard.getLocationDao().findManagedLocation(userId, locationId),
+            LocationNotFoundException.class);
+    }
+
+    /**
+     * Checks the user on their own shard, then the location and its accesses on the location's shard.
+     */
+    @Override
+    public CompletableFuture<Location> findNotSharedToUserLocation(Long ownerId, Long locId, Long userId) {
+
+        return shards.home(userId).getUserDao().findUserById(userId)
+            .thenCompose(user -> shards.findOnAny(shard -> shard.getLocationDao()
+                .findManagedLocation(ownerId, locId)
+                .thenApplyAsync(location -> {
+                    if (!shard.getJdbcTemplate().queryForList(String.format(FIND_USERS_WITH_ACCESS, "?"), Long.class,
+                        locId, userId).isEmpty()) {
+                        throw new LocationNotFoundException("Location already shared");
+                    }
+                    return location;
+                }, executor), LocationNotFoundException.class))
+            .handle((location, e) -> {
+                if (e == null) {
+                    return location;
+                }
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (cause instanceof UserNotFoundException || cause instanceof LocationNotFoundException) {
+                    log.warn("Location or user not found by owner id={}, location id={}, user to share id={}",
+                        ownerId, locId, userId);
+                    throw new LocationOrUserNotFoundException("Location or user not found");
+                }
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            });
+    }
+
+    @Override
+    public CompletableFuture<Long> deleteLocation(String name, Long userId) {
+
+        return shards.home(userId).getLocationDao().deleteLocation(name, userId);
+    }
+
+    @Override
+    public CompletableFuture<Location> findLocationById(Long id) {
+
+        return shards.findOnAny(shard -> shard.getLocationDao().findLocationById(id),
+            LocationNotFoundException.class);
+    }
+
+    /**
+     * Every shard is asked, since a location keeps its id when its owner is moved to another shard.
+     */
+    @Override
+    public CompletableFuture<List<Location>> findLocationsByIds(Collection<Long> ids) {
+
+        return shards.gather(shard -> shard.getLocationDao().findLocationsByIds(ids))
+            .thenApply(found -> found.stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList()));
+    }
+}
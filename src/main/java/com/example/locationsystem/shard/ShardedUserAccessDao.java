@@ -0,0 +1,162 @@
+package com.example.locationsystem.shard;
+
+import com.example.locationsystem.config.DaoExecutorConfig;
+import com.example.locationsystem.userAccess.UserAccess;
+import com.example.locationsystem.userAccess.UserAccessDao;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.shard.ShardQueries.*;
+import static com.example.locationsystem.util.SqlUtil.placeholders;
+
+/**
+ * Accesses live on the shard of their location, next to the owner's data, while the user they are granted to may
+ * live on another shard. Anything that needs both asks each shard for its part.
+ */
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "sharded")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardedUserAccessDao implements UserAccessDao {
+
+    Shards shards;
+
+    @Qualifier(DaoExecutorConfig.USER_ACCESS_DAO_EXECUTOR)
+    Executor executor;
+
+    @Override
+    public CompletableFuture<UserAccess> saveUserAccess(UserAccess userAccess) {
+
+        return shards.locate(userAccess.getLocationId())
+            .exceptionally(e -> {
+                throw new UserAccessSaveException("Failed to save user access");
+            })
+            .thenApplyAsync(shard -> {
+                userAccess.setId(shard.getIdGenerator().nextId(ShardIdGenerator.ACCESSES));
+                return shard;
+            }, executor)
+            .thenCompose(shard -> shard.getUserAccessDao().saveUserAccess(userAccess));
+    }
+
+    @Override
+    public CompletableFuture<UserAccess> shareUserAccess(UserAccess userAccess, Long sharerId) {
+
+        return shards.home(userAccess.getUserId()).getUserDao().findUserById(userAccess.getUserId())
+            .thenCompose(user -> shards.locate(userAccess.getLocationId()))
+            .exceptionally(e -> {
+                throw notFound(e, sharerId, userAccess);
+            })
+            .thenApplyAsync(shard -> {
+                long id = shard.getIdGenerator().nextId(ShardIdGenerator.ACCESSES);
+                if (shard.getJdbcTemplate().update(SHARE_USER_ACCESS, id, userAccess.getTitle(),
+                    userAccess.getUserId(), userAccess.getLocationId(), sharerId, sharerId,
+                    userAccess.getUserId()) == 0) {
+                    throw notFound(null, sharerId, userAccess);
+                }
+                userAccess.setId(id);
+                log.info("User access={} saved", userAccess);
+                return userAccess;
+            }, executor);
+    }
+
+    @Override
+    public CompletableFuture<List<UserAccess>> saveUserAccesses(List<UserAccess> userAccesses) {
+
+        Map<Long, List<UserAccess>> byLocation = userAccesses.stream()
+            .collect(Collectors.groupingBy(UserAccess::getLocationId, LinkedHashMap::new, Collectors.toList()));
+        List<CompletableFuture<List<UserAccess>>> saved = new ArrayList<>();
+        byLocation.forEach((locationId, batch) -> saved.add(shards.locate(locationId)
+            .exceptionally(e -> {
+                throw new UserAccessSaveException("Failed to save user accesses");
+            })
+            .thenApplyAsync(shard -> {
+                batch.forEach(access -> access.setId(shard.getIdGenerator().nextId(ShardIdGenerator.ACCESSES)));
+                return shard;
+            }, executor)
+            .thenCompose(shard -> shard.getUserAccessDao().saveUserAccesses(batch))));
+        return CompletableFuture.allOf(saved.toArray(new CompletableFuture[0]))
+            .thenApply(ignored -> userAccesses);
+    }
+
+    /**
+     * Asks the shard of each user whether they exist and every shard whether they already have access, since only
+     * the shard of the location has any.
+     */
+    @Override
+    public CompletableFuture<List<Long>> findUsersToShareWith(Long locationId, Collection<Long> userIds) {
+
+        Map<Shard, List<Long>> byShard = userIds.stream()
+            .collect(Collectors.groupingBy(shards::home, LinkedHashMap::new, Collectors.toList()));
+        List<CompletableFuture<List<Long>>> existing = new ArrayList<>();
+        byShard.forEach((shard, ids) -> existing.add(CompletableFuture.supplyAsync(() ->
+            shard.getJdbcTemplate().queryForList(String.format(FIND_EXISTING_USERS, placeholders(ids.size())),
+                Long.class, ids.toArray()), executor)));
+        List<Object> args = new ArrayList<>();
+        args.add(locationId);
+        args.addAll(userIds);
+        CompletableFuture<List<List<Long>>> withAccess = shards.gather(shard -> CompletableFuture.supplyAsync(() ->
+            shard.getJdbcTemplate().queryForList(String.format(FIND_USERS_WITH_ACCESS,
+                placeholders(userIds.size())), Long.class, args.toArray()), executor));
+        return CompletableFuture.allOf(existing.toArray(new CompletableFuture[0]))
+            .thenCombine(withAccess, (ignored, shared) -> {
+                Set<Long> found = existing.stream()
+                    .flatMap(future -> future.join().stream())
+                    .collect(Collectors.toCollection(HashSet::new));
+                shared.forEach(found::removeAll);
+                List<Long> result = userIds.stream().filter(found::contains).collect(Collectors.toList());
+                log.info("{} of {} users can get access to location id={}", result.size(), userIds.size(),
+                    locationId);
+                return result;
+            });
+    }
+
+    @Override
+    public CompletableFuture<UserAccess> findUserAccess(UserAccess userAccess, Long ownerId) {
+
+        return shards.home(ownerId).getUserAccessDao().findUserAccess(userAccess, ownerId);
+    }
+
+    @Override
+    public CompletableFuture<Long> changeUserAccess(UserAccess userAccess, Long ownerId) {
+
+        return shards.home(ownerId).getUserAccessDao().changeUserAccess(userAccess, ownerId);
+    }
+
+    /**
+     * {@code LocationOrUserNotFoundException} for a missing user or location, or the cause of {@code e} for anything
+     * else.
+     */
+    private RuntimeException notFound(Throwable e, Long sharerId, UserAccess userAccess) {
+
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (cause instanceof LocationOrUserNotFoundException) {
+            return (LocationOrUserNotFoundException) cause;
+        }
+        if (cause == null || cause instanceof UserNotFoundException || cause instanceof LocationNotFoundException) {
+            log.warn("Location or user not found by owner id={}, location id={}, user to share id={}",
+                sharerId, userAccess.getLocationId(), userAccess.getUserId());
+            return new LocationOrUserNotFoundException("Location or user not found");
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.locationsystem.shard;
+
+import com.example.locationsystem.config.DaoExecutorConfig;
+import com.example.locationsystem.user.User;
+import com.example.locationsystem.user.UserDao;
+import com.example.locationsystem.util.EmailUtil;
+import com.example.locationsystem.util.FutureUtil;
+import com.example.locationsystem.util.SqlUtil;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.shard.ShardQueries.*;
+
+/**
+ * Users live on the shard of their id. Emails are only unique within a database, so each one is also registered in
+ * the {@code user_emails} directory on the shard of the email, which keeps them unique across shards and tells login
+ * which shard to ask.
+ */
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "sharded")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardedUserDao implements UserDao {
+
+    Shards shards;
+    EmailUtil emailUtil;
+
+    @Qualifier(DaoExecutorConfig.USER_DAO_EXECUTOR)
+    Executor executor;
+
+    @Override
+    public CompletableFuture<Optional<User>> findUserByEmail(String email) {
+
+        return findUserId(email).thenCompose(userId -> userId.isPresent()
+            ? shards.home(userId.get()).getUserDao().findUserByEmail(email)
+            : CompletableFuture.completedFuture(Optional.empty()));
+    }
+
+    /**
+     * Takes the id from the sequence of the email's shard and claims the email there before the user is saved on the
+     * shard of the id. The claim is given up again if saving the user fails, before the failure is passed on.
+     */
+    @Override
+    public CompletableFuture<Long> saveUser(User user) {
+
+        Shard directory = shards.directory(user.getUsername());
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                long id = directory.getIdGenerator().nextId(ShardIdGenerator.USERS);
+                directory.getJdbcTemplate().update(SAVE_USER_EMAIL, user.getUsername(), id);
+                user.setId(id);
+                return shards.home(id);
+            } catch (DataAccessException e) {
+                if (SqlUtil.isDuplicateKey(e)) {
+                    log.warn("User with email={} already exists", emailUtil.hideEmail(user.getUsername()));
+                    throw new AlreadyExistsException("User already exists");
+                }
+                throw new UserSaveException("Failed to save user");
+            }
+        }, executor).thenCompose(home -> home.getUserDao().saveUser(user)
+            .handle((id, e) -> e == null
+                ? CompletableFuture.completedFuture(id)
+                : releaseEmail(directory, user.getUsername()).thenCompose(ignored -> FutureUtil.<Long>failed(e)))
+            .thenCompose(Function.identity()));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUserPassword(Long id, String password) {
+
+        return shards.home(id).getUserDao().updateUserPassword(id, password);
+    }
+
+    /**
+     * Deletes the user on their shard, then their email from the directory and the accesses granted to them on every
+     * shard, which no foreign key removes across databases.
+     */
+    @Override
+    public CompletableFuture<Long> deleteUserByEmail(String email) {
+
+        return findUserId(email)
+            .thenCompose(userId -> {
+                if (!userId.isPresent()) {
+                    log.warn("User not found by email={}", emailUtil.hideEmail(email));
+                    throw new UserNotFoundException("User not found");
+                }
+                return shards.home(userId.get()).getUserDao().deleteUserByEmail(email);
+            })
+            .thenCompose(userId -> CompletableFuture.runAsync(() ->
+                    shards.directory(email).getJdbcTemplate().update(DELETE_USER_EMAIL, email), executor)
+                .thenCompose(ignored -> shards.gather(shard -> CompletableFuture.supplyAsync(() ->
+                    shard.getJdbcTemplate().update(DELETE_ACCESSES_OF_USER, userId), executor)))
+                .thenApply(ignored -> userId));
+    }
+
+    /**
+     * The location can be on any shard, and the other shards report it as not found.
+     */
+    @Override
+    public CompletableFuture<List<Long>> findUsersOnLocation(Long locationId, Long userId, long afterId, int limit) {
+
+        return shards.findOnAny(shard -> shard.getUserDao().findUsersOnLocation(locationId, userId, afterId, limit),
+            LocationNotFoundException.class);
+    }
+
+    @Override
+    public CompletableFuture<User> findUserById(Long id) {
+
+        return shards.home(id).getUserDao().findUserById(id);
+    }
+
+    private CompletableFuture<Optional<Long>> findUserId(String email) {
+
+        return CompletableFuture.supplyAsync(() -> shards.directory(email).getJdbcTemplate()
+            .queryForList(FIND_USER_ID_BY_EMAIL, Long.class, email)
+            .stream()
+            .findFirst(), executor);
+    }
+
+    /**
+     * Gives up the email claimed by {@link #saveUser}. A failure is only logged, as the user is not saved either way;
+     * the email then stays taken until its {@code user_emails} row is removed by hand.
+     */
+    private CompletableFuture<Void> releaseEmail(Shard directory, String email) {
+
+        return CompletableFuture.runAsync(() -> directory.getJdbcTemplate().update(DELETE_USER_EMAIL, email), executor)
+            .exceptionally(e -> {
+                log.error("Failed to release email={} of a user that was not saved", emailUtil.hideEmail(email), e);
+                return null;
+            });
+    }
+}
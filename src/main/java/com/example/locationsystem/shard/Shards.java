@@ -0,0 +1,109 @@
+package com.example.locationsystem.shard;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+/**
+ * The shards in map order and the ways to pick them: by user for everything a user owns, by email for the email
+ * directory, and all of them for lookups by location id, whose shard is not known up front.
+ */
+@Log4j2
+public class Shards implements Closeable {
+
+    private final ShardMap shardMap;
+    private final List<Shard> shards;
+    private final List<? extends Closeable> dataSources;
+
+    public Shards(ShardMap shardMap, List<Shard> shards, List<? extends Closeable> dataSources) {
+
+        this.shardMap = shardMap;
+        this.shards = shards;
+        this.dataSources = dataSources;
+    }
+
+    public List<Shard> all() {
+
+        return shards;
+    }
+
+    public Shard home(Long userId) {
+
+        return shards.get(shardMap.shardOf(userId));
+    }
+
+    public Shard directory(String email) {
+
+        return shards.get(shardMap.shardOf(email));
+    }
+
+    /**
+     * Runs {@code query} on every shard at once and completes with the results in shard order.
+     */
+    public <T> CompletableFuture<List<T>> gather(Function<Shard, CompletableFuture<T>> query) {
+
+        List<CompletableFuture<T>> futures = shards.stream().map(query).collect(Collectors.toList());
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenApply(ignored -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    /**
+     * Runs {@code query} on every shard at once and completes with the first result in shard order. Shards that fail
+     * with {@code notFound} are skipped; when all of them do, so does the returned future. Any other failure is
+     * passed on, so a shard that is down is not reported as a missing row.
+     */
+    public <T> CompletableFuture<T> findOnAny(Function<Shard, CompletableFuture<T>> query,
+                                              Class<? extends RuntimeException> notFound) {
+
+        List<CompletableFuture<T>> futures = shards.stream().map(query).collect(Collectors.toList());
+        return CompletableFuture.allOf(futures.stream()
+                .map(future -> future.handle((value, e) -> null))
+                .toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> {
+                List<Throwable> failures = new ArrayList<>();
+                for (CompletableFuture<T> future : futures) {
+                    try {
+                        return future.join();
+                    } catch (CompletionException e) {
+                        failures.add(e.getCause());
+                    }
+                }
+                Throwable failure = failures.stream()
+                    .filter(e -> !notFound.isInstance(e))
+                    .findFirst()
+                    .orElse(failures.get(0));
+                throw failure instanceof RuntimeException ? (RuntimeException) failure :
+                    new CompletionException(failure);
+            });
+    }
+
+    /**
+     * The shard holding the location, failing with {@code LocationNotFoundException} when none does.
+     */
+    public CompletableFuture<Shard> locate(Long locationId) {
+
+        return findOnAny(shard -> shard.getLocationDao().findLocationById(locationId).thenApply(location -> shard),
+            LocationNotFoundException.class);
+    }
+
+    @Override
+    public void close() {
+
+        for (Closeable dataSource : dataSources) {
+            try {
+                dataSource.close();
+            } catch (IOException e) {
+                log.warn("Failed to close shard data source: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.locationsystem.user;
+
+import com.example.locationsystem.config.DaoExecutorConfig;
+import com.example.locationsystem.replica.ReplicaRouter;
+import com.example.locationsystem.util.EmailUtil;
+import com.example.locationsystem.util.SqlUtil;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.user.UserQueries.*;
+import static com.example.locationsystem.util.SqlUtil.insert;
+import static com.example.locationsystem.util.SqlUtil.deleteReturningId;
+
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "jdbc", matchIfMissing = true)
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JdbcUserDao implements UserDao {
+
+    JdbcTemplate jdbcTemplate;
+    ReplicaRouter replicaRouter;
+    EmailUtil emailUtil;
+
+    @Qualifier(DaoExecutorConfig.USER_DAO_EXECUTOR)
+    Executor executor;
+
+    /**
+     * Looks on a replica first and only asks the primary when the user is not there, which covers logging in right
+     * after registering.
+     */
+    @Override
+    public CompletableFuture<Optional<User>> findUserByEmail(String email) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            Optional<User> user = replicaRouter.read(() -> findUserByEmailNow(email));
+            return user.isPresent() ? user : findUserByEmailNow(email);
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Long> saveUser(User user) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                user.setId(insert(jdbcTemplate, user.getId(), SAVE_USER, user.getName(), user.getPassword(),
+                    user.getUsername()));
+                replicaRouter.stickToPrimary(user.getId());
+                log.info("User with email={} saved", emailUtil.hideEmail(user.getUsername()));
+                return user.getId();
+            } catch (DataAccessException e) {
+                if (SqlUtil.isDuplicateKey(e)) {
+                    log.warn("User with email={} already exists", emailUtil.hideEmail(user.getUsername()));
+                    throw new AlreadyExistsException("User already exists");
+                }
+                throw new UserSaveException("Failed to save user");
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUserPassword(Long id, String password) {
+
+        return CompletableFuture.runAsync(() -> {
+            jdbcTemplate.update(UPDATE_USER_PASSWORD, password, id);
+            replicaRouter.stickToPrimary(id);
+            log.info("Password updated for user id={}", id);
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Long> deleteUserByEmail(String email) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            Long userId = deleteReturningId(jdbcTemplate, DELETE_USER_BY_EMAIL, email);
+            if (userId == null) {
+                log.warn("User not found by email={}", emailUtil.hideEmail(email));
+                throw new UserNotFoundException("User not found");
+            }
+            log.info("User deleted by email={}", emailUtil.hideEmail(email));
+            return userId;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Long>> findUsersOnLocation(Long locationId, Long userId, long afterId, int limit) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(userId, () -> {
+            List<Long> rows = jdbcTemplate.queryForList(FIND_USERS_ON_LOCATION_PAGE, Long.class,
+                afterId, userId, locationId, userId, userId, limit);
+            if (rows.isEmpty()) {
+                log.warn("Location not found in user locations by user id={} and location id={}", userId,
+                    locationId);
+                throw new LocationNotFoundException("Location not found");
+            }
+            List<Long> userIds = rows.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            log.info("Found {} users with access on location by location id={} and user id={} after id={}",
+                userIds.size(), locationId, userId, afterId);
+            return userIds;
+        }), executor);
+    }
+
+    @Override
+    public CompletableFuture<User> findUserById(Long id) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(id, () ->
+            jdbcTemplate.query(FIND_USER_BY_ID,
+                    UserRowMapper.INSTANCE, id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> {
+                    log.warn("User not found by id={}", id);
+                    throw new UserNotFoundException("User not found");
+                })), executor);
+    }
+
+    private Optional<User> findUserByEmailNow(String email) {
+
+        return jdbcTemplate.query(FIND_USER_BY_EMAIL, UserRowMapper.INSTANCE, email)
+            .stream()
+            .peek(user -> log.info("User found by email={}", emailUtil.hideEmail(email)))
+            .findFirst();
+    }
+}
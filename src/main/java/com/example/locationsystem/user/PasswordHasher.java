@@ -0,0 +1,95 @@
+package com.example.locationsystem.user;
+
+import com.example.locationsystem.config.PasswordHashingConfig;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * Hashes and verifies passwords with BCrypt on the password hash executor.
+ * Hex SHA-256 hashes written by the old {@code SHA2(?, 256)} query are still accepted, and reported by
+ * {@link #needsRehash(String)} so they can be replaced after a successful login.
+ * <p>
+ * BCrypt is slow on purpose and its work doubles with each step of {@code password.bcrypt.strength}, so a login no
+ * longer waits for the database to hash but spends CPU time here instead. Whether it ends up faster depends on that
+ * strength; see {@code PasswordHashBenchmark} and the README for how to measure it.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PasswordHasher {
+
+    private static final Pattern LEGACY_SHA_256 = Pattern.compile("[0-9a-f]{64}");
+
+    BCryptPasswordEncoder encoder;
+    Executor executor;
+    String dummyHash;
+
+    public PasswordHasher(
+        @Value("${password.bcrypt.strength:10}") int strength,
+        @Qualifier(PasswordHashingConfig.PASSWORD_HASH_EXECUTOR) Executor executor
+    ) {
+
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.executor = executor;
+        this.dummyHash = encoder.encode("dummy-password");
+    }
+
+    /**
+     * A hash at the configured strength that no user has, to check a password against when there is no user, so
+     * that the response time does not tell whether an email is registered.
+     */
+    public String dummyHash() {
+
+        return dummyHash;
+    }
+
+    public CompletableFuture<String> hash(String password) {
+
+        return CompletableFuture.supplyAsync(() -> encoder.encode(password), executor);
+    }
+
+    public CompletableFuture<Boolean> matches(String password, String hashedPassword) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            if (isLegacy(hashedPassword)) {
+                return MessageDigest.isEqual(sha256Hex(password).getBytes(StandardCharsets.US_ASCII),
+                    hashedPassword.getBytes(StandardCharsets.US_ASCII));
+            }
+            return encoder.matches(password, hashedPassword);
+        }, executor);
+    }
+
+    public boolean needsRehash(String hashedPassword) {
+
+        return isLegacy(hashedPassword) || encoder.upgradeEncoding(hashedPassword);
+    }
+
+    private static boolean isLegacy(String hashedPassword) {
+
+        return hashedPassword != null && LEGACY_SHA_256.matcher(hashedPassword).matches();
+    }
+
+    private static String sha256Hex(String password) {
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
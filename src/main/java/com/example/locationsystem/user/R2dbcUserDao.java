@@ -0,0 +1,152 @@
+package com.example.locationsystem.user;
+
+import com.example.locationsystem.util.EmailUtil;
+import com.example.locationsystem.util.SqlUtil;
+import io.r2dbc.spi.Row;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.user.UserQueries.*;
+
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "r2dbc")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class R2dbcUserDao implements UserDao {
+
+    DatabaseClient databaseClient;
+    EmailUtil emailUtil;
+
+    @Override
+    public CompletableFuture<Optional<User>> findUserByEmail(String email) {
+
+        return databaseClient.sql(FIND_USER_BY_EMAIL)
+            .bind(0, email)
+            .map(R2dbcUserDao::mapUser)
+            .first()
+            .doOnNext(user -> log.info("User found by email={}", emailUtil.hideEmail(email)))
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> saveUser(User user) {
+
+        return databaseClient.sql(SAVE_USER)
+            .filter(statement -> statement.returnGeneratedValues("id"))
+            .bind(0, Parameter.fromOrEmpty(user.getId(), Long.class))
+            .bind(1, user.getName())
+            .bind(2, user.getPassword())
+            .bind(3, user.getUsername())
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .map(id -> {
+                user.setId(id);
+                log.info("User with email={} saved", emailUtil.hideEmail(user.getUsername()));
+                return id;
+            })
+            .onErrorMap(DataAccessException.class, e -> {
+                if (SqlUtil.isDuplicateKey(e)) {
+                    log.warn("User with email={} already exists", emailUtil.hideEmail(user.getUsername()));
+                    return new AlreadyExistsException("User already exists");
+                }
+                return new UserSaveException("Failed to save user");
+            })
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUserPassword(Long id, String password) {
+
+        return databaseClient.sql(UPDATE_USER_PASSWORD)
+            .bind(0, password)
+            .bind(1, id)
+            .fetch()
+            .rowsUpdated()
+            .doOnNext(updated -> log.info("Password updated for user id={}", id))
+            .then()
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> deleteUserByEmail(String email) {
+
+        return SqlUtil.deleteReturningId(databaseClient, DELETE_USER_BY_EMAIL, email)
+            .doOnNext(id -> log.info("User deleted by email={}", emailUtil.hideEmail(email)))
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("User not found by email={}", emailUtil.hideEmail(email));
+                return Mono.error(new UserNotFoundException("User not found"));
+            }))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<Long>> findUsersOnLocation(Long locationId, Long userId, long afterId, int limit) {
+
+        return databaseClient.sql(FIND_USERS_ON_LOCATION_PAGE)
+            .bind(0, afterId)
+            .bind(1, userId)
+            .bind(2, locationId)
+            .bind(3, userId)
+            .bind(4, userId)
+            .bind(5, limit)
+            .map(row -> Optional.ofNullable(row.get(0, Long.class)))
+            .all()
+            .collectList()
+            .flatMap(rows -> {
+                if (rows.isEmpty()) {
+                    log.warn("Location not found in user locations by user id={} and location id={}", userId,
+                        locationId);
+                    return Mono.error(new LocationNotFoundException("Location not found"));
+                }
+                return Mono.just(rows.stream()
+                    .filter(Optional::isPresent)
+                    .map(Optional::get)
+                    .collect(Collectors.toList()));
+            })
+            .doOnNext(userIds -> log.info("Found {} users with access on location by location id={} and user id={} " +
+                "after id={}", userIds.size(), locationId, userId, afterId))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<User> findUserById(Long id) {
+
+        return databaseClient.sql(FIND_USER_BY_ID)
+            .bind(0, id)
+            .map(R2dbcUserDao::mapUser)
+            .first()
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("User not found by id={}", id);
+                return Mono.error(new UserNotFoundException("User not found"));
+            }))
+            .toFuture();
+    }
+
+    private static User mapUser(Row row) {
+
+        User user = new User();
+        user.setId(row.get(0, Long.class));
+        user.setName(row.get(1, String.class));
+        user.setPassword(row.get(2, String.class));
+        user.setUsername(row.get(3, String.class));
+        return user;
+    }
+}
@@ -1,10 +1,9 @@
 package com.example.locationsystem.user;
 
-import com.example.locationsystem.util.EmailUtil;
+import com.example.locationsystem.auth.SessionStore;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
-import lombok.extern.log4j.Log4j2;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -18,30 +17,19 @@ import javax.validation.Valid;
 
 import java.util.concurrent.CompletableFuture;
 
-import com.example.locationsystem.exception.ControllerExceptions.*;
-
 @RestController
-@Log4j2
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class UserController {
 
     UserService userService;
-    EmailUtil emailUtil;
+    SessionStore sessionStore;
 
     @PostMapping("/registration")
     public CompletableFuture<ResponseEntity<Long>> registerPost(@Valid @RequestBody User user) {
 
-        return userService.findUserByEmail(user.getUsername())
-            .thenCompose(existingUser -> {
-                if (existingUser.isPresent()) {
-                    log.warn("Registration failed. User with email={} already exists",
-                        emailUtil.hideEmail(user.getUsername()));
-                    throw new AlreadyExistsException("User already exists");
-                }
-                return userService.saveUser(user)
-                    .thenApply(ResponseEntity::ok);
-            });
+        return userService.saveUser(user)
+            .thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/login")
@@ -49,8 +37,9 @@ public class UserController {
 
         return userService.findUserByEmailAndPassword(user.getUsername(), user.getPassword())
             .thenApply(existingUser -> {
-                Cookie cookie = new Cookie("user", existingUser.getId().toString());
+                Cookie cookie = new Cookie(SessionStore.COOKIE_NAME, sessionStore.createSession(existingUser.getId()));
                 cookie.setPath("/");
+                cookie.setHttpOnly(true);
                 response.addCookie(cookie);
                 return ResponseEntity.ok(existingUser.getId());
             });
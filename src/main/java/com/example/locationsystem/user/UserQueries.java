@@ -0,0 +1,28 @@
+package com.example.locationsystem.user;
+
+final class UserQueries {
+
+    static final String FIND_USER_BY_EMAIL = "SELECT id, name, password, username FROM users WHERE username = ?";
+    /**
+     * The id is {@code NULL} unless the caller picked one, see {@code LocationQueries.SAVE_LOCATION}.
+     */
+    static final String SAVE_USER = "INSERT INTO users (id,name,password,username) VALUES (?,?,?,?)";
+    /**
+     * Keeps the id of the deleted user on the connection, see {@code LocationQueries.DELETE_LOCATION}.
+     */
+    static final String DELETE_USER_BY_EMAIL = "DELETE FROM users WHERE username = ? AND LAST_INSERT_ID(id)";
+    /**
+     * One page of the users a location is shared with, if the caller owns it or has access to it. The page is
+     * left-joined to the location, so a visible location shared with nobody else yields a single {@code NULL} row and
+     * no rows at all mean the caller cannot view it.
+     */
+    static final String FIND_USERS_ON_LOCATION_PAGE = "SELECT a.user_id FROM locations l LEFT JOIN accesses a ON " +
+        "a.location_id = l.id AND a.user_id > ? AND a.user_id != ? WHERE l.id = ? AND (l.user_id = ? OR EXISTS " +
+        "(SELECT 1 FROM accesses v WHERE v.location_id = l.id AND v.user_id = ?)) ORDER BY a.user_id LIMIT ?";
+    static final String FIND_USER_BY_ID = "SELECT id, name, password, username FROM users WHERE id = ?";
+    static final String UPDATE_USER_PASSWORD = "UPDATE users SET password = ? WHERE id = ?";
+
+    private UserQueries() {
+
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.locationsystem.user;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps {@code id, name, password, username} by column index, so every user query must select them in this order.
+ */
+public final class UserRowMapper implements RowMapper<User> {
+
+    public static final UserRowMapper INSTANCE = new UserRowMapper();
+
+    private UserRowMapper() {
+
+    }
+
+    @Override
+    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+
+        User user = new User();
+        user.setId(rs.getLong(1));
+        user.setName(rs.getString(2));
+        user.setPassword(rs.getString(3));
+        user.setUsername(rs.getString(4));
+        return user;
+    }
+}
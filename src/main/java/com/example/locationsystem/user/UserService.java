@@ -1,6 +1,7 @@
 package com.example.locationsystem.user;
 
-import java.util.List;
+import com.example.locationsystem.util.Page;
+
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
@@ -12,7 +13,7 @@ public interface UserService {
 
     CompletableFuture<Long> saveUser(User user);
 
-    CompletableFuture<List<Long>> findAllUsersOnLocation(Long locationId, Long userId);
+    CompletableFuture<Page<Long>> findUsersOnLocation(Long locationId, Long userId, Long afterId, int limit);
 
     CompletableFuture<Void> deleteUserByEmail(String email);
 
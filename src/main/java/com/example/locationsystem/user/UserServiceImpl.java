@@ -1,21 +1,27 @@
 package com.example.locationsystem.user;
 
+import com.example.locationsystem.acl.AccessControlIndex;
+import com.example.locationsystem.auth.SessionStore;
 import com.example.locationsystem.event.ObjectChangeEvent;
 import com.example.locationsystem.util.EmailUtil;
+import com.example.locationsystem.util.Page;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
-import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import com.example.locationsystem.exception.ControllerExceptions.*;
 
+import static com.example.locationsystem.util.FutureUtil.failed;
+
 @Service
 @Log4j2
 @RequiredArgsConstructor
@@ -25,13 +31,22 @@ public class UserServiceImpl implements UserService {
     UserDao userDao;
     EmailUtil emailUtil;
     ApplicationEventPublisher eventPublisher;
+    PasswordHasher passwordHasher;
+    AccessControlIndex accessControlIndex;
+    SessionStore sessionStore;
+
+    @Value("${location.page.max-size:1000}")
+    int maxPageSize;
 
     @Override
     public CompletableFuture<Long> saveUser(User user) {
 
         log.info("Saving user with email={}", emailUtil.hideEmail(user.getUsername()));
-        return userDao.saveUser(user)
+        return passwordHasher.hash(user.getPassword())
+            .thenCompose(hashedPassword ->
+                userDao.saveUser(new User(user.getUsername(), user.getName(), hashedPassword)))
             .thenApply(savedUserId -> {
+                accessControlIndex.addUser(savedUserId);
                 eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER,
                     ObjectChangeEvent.ActionType.CREATED, new Timestamp(System.currentTimeMillis()), savedUserId));
                 return savedUserId;
@@ -42,27 +57,27 @@ public class UserServiceImpl implements UserService {
     public CompletableFuture<Void> deleteUserByEmail(String email) {
 
         log.info("Deleting user by email={}", emailUtil.hideEmail(email));
-        return userDao.findUserByEmail(email)
-            .thenCompose(userOptional -> {
-                if (userOptional.isPresent()) {
-                    return userDao.deleteUserByEmail(email)
-                        .thenAccept(result ->
-                            eventPublisher.publishEvent(new ObjectChangeEvent(this,
-                            ObjectChangeEvent.ObjectType.USER, ObjectChangeEvent.ActionType.DELETED,
-                            new Timestamp(System.currentTimeMillis()), userOptional.get().getId())));
-                } else {
-                    log.warn("User not found by email={}", emailUtil.hideEmail(email));
-                    throw new UserNotFoundException("User not found");
-                }
+        return userDao.deleteUserByEmail(email)
+            .thenAccept(userId -> {
+                accessControlIndex.removeUser(userId);
+                sessionStore.invalidateUser(userId);
+                eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER,
+                    ObjectChangeEvent.ActionType.DELETED, new Timestamp(System.currentTimeMillis()), userId));
             });
     }
 
     @Override
-    public CompletableFuture<List<Long>> findAllUsersOnLocation(Long locationId, Long userId) {
-
-        log.info("Finding all users with access on location by location id={} and user id={}",
-            locationId, userId);
-        return userDao.findAllUsersOnLocation(locationId, userId);
+    public CompletableFuture<Page<Long>> findUsersOnLocation(Long locationId, Long userId, Long afterId, int limit) {
+
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        log.info("Finding users with access on location by location id={} and user id={} after id={}, page size={}",
+            locationId, userId, afterId, pageSize);
+        if (accessControlIndex.isReady() && !accessControlIndex.canView(userId, locationId)) {
+            log.warn("Location not found in user locations by user id={} and location id={}", userId, locationId);
+            return failed(new LocationNotFoundException("Location not found"));
+        }
+        return userDao.findUsersOnLocation(locationId, userId, afterId == null ? 0L : afterId, pageSize + 1)
+            .thenApply(userIds -> Page.of(userIds, pageSize, Function.identity()));
     }
 
     @Override
@@ -76,7 +91,37 @@ public class UserServiceImpl implements UserService {
     public CompletableFuture<User> findUserByEmailAndPassword(String email, String password) {
 
         log.info("Finding user by email={} and password", emailUtil.hideEmail(email));
-        return userDao.findUserByEmailAndPassword(email, password);
+        return userDao.findUserByEmail(email)
+            .thenCompose(userOptional -> passwordHasher.matches(password,
+                    userOptional.map(User::getPassword).orElseGet(passwordHasher::dummyHash))
+                .thenCompose(matches -> {
+                    if (!matches || !userOptional.isPresent()) {
+                        log.warn("User not found by email={} and password", emailUtil.hideEmail(email));
+                        throw new InvalidLoginOrPasswordException("Invalid login or password");
+                    }
+                    User user = userOptional.get();
+                    log.info("User found by email={} and password", emailUtil.hideEmail(email));
+                    if (!passwordHasher.needsRehash(user.getPassword())) {
+                        return CompletableFuture.completedFuture(user);
+                    }
+                    return rehash(user, password);
+                }));
+    }
+
+    /**
+     * Replaces an outdated hash after a successful login. A failure is only logged, since the login itself stands.
+     */
+    private CompletableFuture<User> rehash(User user, String password) {
+
+        log.info("Rehashing password of user id={}", user.getId());
+        return passwordHasher.hash(password)
+            .thenCompose(hashedPassword -> userDao.updateUserPassword(user.getId(), hashedPassword))
+            .handle((updated, e) -> {
+                if (e != null) {
+                    log.error("Failed to rehash password of user id={}", user.getId(), e);
+                }
+                return user;
+            });
     }
 
     @Override
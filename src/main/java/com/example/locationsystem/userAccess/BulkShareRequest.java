@@ -0,0 +1,25 @@
+package com.example.locationsystem.userAccess;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+public class BulkShareRequest {
+
+    @NotNull
+    private Long locationId;
+
+    @NotBlank
+    @Pattern(regexp = "ADMIN|READ")
+    private String title;
+
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@NotNull Long> userIds;
+}
@@ -0,0 +1,163 @@
+package com.example.locationsystem.userAccess;
+
+import com.example.locationsystem.config.DaoExecutorConfig;
+import com.example.locationsystem.replica.ReplicaRouter;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.userAccess.UserAccessQueries.*;
+import static com.example.locationsystem.util.SqlUtil.insert;
+import static com.example.locationsystem.util.SqlUtil.placeholders;
+import static com.example.locationsystem.util.SqlUtil.updateReturningKey;
+
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "jdbc", matchIfMissing = true)
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JdbcUserAccessDao implements UserAccessDao {
+
+    JdbcTemplate jdbcTemplate;
+    ReplicaRouter replicaRouter;
+
+    @Qualifier(DaoExecutorConfig.USER_ACCESS_DAO_EXECUTOR)
+    Executor executor;
+
+    @Override
+    public CompletableFuture<UserAccess> saveUserAccess(UserAccess userAccess) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                userAccess.setId(insert(jdbcTemplate, userAccess.getId(), SAVE_USER_ACCESS, userAccess.getTitle(),
+                    userAccess.getLocationId(), userAccess.getUserId()));
+                replicaRouter.stickToPrimary(userAccess.getUserId());
+                log.info("User access={} saved", userAccess);
+                return userAccess;
+            } catch (DataAccessException e) {
+                throw new UserAccessSaveException("Failed to save user access");
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<UserAccess> shareUserAccess(UserAccess userAccess, Long sharerId) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            Long id = updateReturningKey(jdbcTemplate, SHARE_USER_ACCESS, userAccess.getTitle(),
+                userAccess.getUserId(), userAccess.getLocationId(), sharerId, sharerId);
+            if (id == null) {
+                log.warn("Location or user not found by owner id={}, location id={}, user to share id={}",
+                    sharerId, userAccess.getLocationId(), userAccess.getUserId());
+                throw new LocationOrUserNotFoundException("Location or user not found");
+            }
+            userAccess.setId(id);
+            replicaRouter.stickToPrimary(sharerId);
+            replicaRouter.stickToPrimary(userAccess.getUserId());
+            log.info("User access={} saved", userAccess);
+            return userAccess;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<List<UserAccess>> saveUserAccesses(List<UserAccess> userAccesses) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(SAVE_USER_ACCESS,
+                        Statement.RETURN_GENERATED_KEYS)) {
+                        for (UserAccess userAccess : userAccesses) {
+                            ps.setObject(1, userAccess.getId());
+                            ps.setString(2, userAccess.getTitle());
+                            ps.setLong(3, userAccess.getLocationId());
+                            ps.setLong(4, userAccess.getUserId());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                        try (ResultSet rs = ps.getGeneratedKeys()) {
+                            for (UserAccess userAccess : userAccesses) {
+                                if (rs.next() && userAccess.getId() == null) {
+                                    userAccess.setId(rs.getLong(1));
+                                }
+                            }
+                        }
+                    }
+                    return null;
+                });
+            } catch (DataAccessException e) {
+                throw new UserAccessSaveException("Failed to save user accesses");
+            }
+            userAccesses.stream().map(UserAccess::getUserId).forEach(replicaRouter::stickToPrimary);
+            log.info("{} user accesses saved", userAccesses.size());
+            return userAccesses;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Long>> findUsersToShareWith(Long locationId, Collection<Long> userIds) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            List<Object> args = new ArrayList<>(userIds);
+            args.add(locationId);
+            List<Long> found = jdbcTemplate.queryForList(
+                String.format(FIND_USERS_TO_SHARE_WITH, placeholders(userIds.size())), Long.class, args.toArray());
+            log.info("{} of {} users can get access to location id={}", found.size(), userIds.size(), locationId);
+            return found;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<UserAccess> findUserAccess(UserAccess userAccess, Long ownerId) {
+
+        return CompletableFuture.supplyAsync(() -> replicaRouter.read(ownerId, () ->
+            jdbcTemplate.query(FIND_USER_ACCESS, UserAccessRowMapper.INSTANCE,
+                    userAccess.getLocationId(), userAccess.getUserId(), ownerId)
+                .stream()
+                .peek(access -> log.info("User access found by location id={}, user id={}, owner id={}",
+                    userAccess.getLocationId(), userAccess.getUserId(), ownerId))
+                .findFirst()
+                .orElseThrow(() -> {
+                    log.warn("User access not found by location id={}, user id={}, owner id={}",
+                        userAccess.getLocationId(), userAccess.getUserId(), ownerId);
+                    throw new UserAccessNotFoundException("User access not found");
+                })), executor);
+    }
+
+    @Override
+    public CompletableFuture<Long> changeUserAccess(UserAccess userAccess, Long ownerId) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            Long accessId = updateReturningKey(jdbcTemplate, CHANGE_USER_ACCESS, userAccess.getLocationId(),
+                userAccess.getUserId(), ownerId);
+            if (accessId == null) {
+                log.warn("User access not found by location id={}, user id={}, owner id={}",
+                    userAccess.getLocationId(), userAccess.getUserId(), ownerId);
+                throw new UserAccessNotFoundException("User access not found");
+            }
+            replicaRouter.stickToPrimary(ownerId);
+            replicaRouter.stickToPrimary(userAccess.getUserId());
+            log.info("User access changed by location id={}, user id={}",
+                userAccess.getLocationId(), userAccess.getUserId());
+            return accessId;
+        }, executor);
+    }
+}
\ No newline at end of file
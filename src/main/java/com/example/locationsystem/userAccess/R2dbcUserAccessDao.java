@@ -0,0 +1,181 @@
+package com.example.locationsystem.userAccess;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.userAccess.UserAccessQueries.*;
+import static com.example.locationsystem.util.SqlUtil.bindId;
+import static com.example.locationsystem.util.SqlUtil.placeholders;
+
+@Component
+@ConditionalOnProperty(name = "dao.mode", havingValue = "r2dbc")
+@Log4j2
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class R2dbcUserAccessDao implements UserAccessDao {
+
+    DatabaseClient databaseClient;
+
+    @Override
+    public CompletableFuture<UserAccess> saveUserAccess(UserAccess userAccess) {
+
+        return databaseClient.sql(SAVE_USER_ACCESS)
+            .filter(statement -> statement.returnGeneratedValues("id"))
+            .bind(0, Parameter.fromOrEmpty(userAccess.getId(), Long.class))
+            .bind(1, userAccess.getTitle())
+            .bind(2, userAccess.getLocationId())
+            .bind(3, userAccess.getUserId())
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .map(id -> {
+                userAccess.setId(id);
+                log.info("User access={} saved", userAccess);
+                return userAccess;
+            })
+            .onErrorMap(DataAccessException.class, e -> new UserAccessSaveException("Failed to save user access"))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<UserAccess> shareUserAccess(UserAccess userAccess, Long sharerId) {
+
+        return databaseClient.sql(SHARE_USER_ACCESS)
+            .filter(statement -> statement.returnGeneratedValues("id"))
+            .bind(0, userAccess.getTitle())
+            .bind(1, userAccess.getUserId())
+            .bind(2, userAccess.getLocationId())
+            .bind(3, sharerId)
+            .bind(4, sharerId)
+            .map(row -> row.get(0, Long.class))
+            .first()
+            .filter(id -> id > 0)
+            .map(id -> {
+                userAccess.setId(id);
+                log.info("User access={} saved", userAccess);
+                return userAccess;
+            })
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("Location or user not found by owner id={}, location id={}, user to share id={}",
+                    sharerId, userAccess.getLocationId(), userAccess.getUserId());
+                return Mono.error(new LocationOrUserNotFoundException("Location or user not found"));
+            }))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<UserAccess>> saveUserAccesses(List<UserAccess> userAccesses) {
+
+        return databaseClient.inConnectionMany(connection -> {
+                Statement statement = connection.createStatement(SAVE_USER_ACCESS).returnGeneratedValues("id");
+                for (int i = 0; i < userAccesses.size(); i++) {
+                    if (i > 0) {
+                        statement.add();
+                    }
+                    UserAccess userAccess = userAccesses.get(i);
+                    bindId(statement, userAccess.getId())
+                        .bind(1, userAccess.getTitle())
+                        .bind(2, userAccess.getLocationId())
+                        .bind(3, userAccess.getUserId());
+                }
+                return Flux.from(statement.execute())
+                    .concatMap(result -> result.map((row, metadata) -> row.get(0, Long.class)));
+            })
+            .collectList()
+            .map(ids -> {
+                for (int i = 0; i < ids.size(); i++) {
+                    if (userAccesses.get(i).getId() == null) {
+                        userAccesses.get(i).setId(ids.get(i));
+                    }
+                }
+                log.info("{} user accesses saved", userAccesses.size());
+                return userAccesses;
+            })
+            .onErrorMap(DataAccessException.class, e -> new UserAccessSaveException("Failed to save user accesses"))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<List<Long>> findUsersToShareWith(Long locationId, Collection<Long> userIds) {
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+            String.format(FIND_USERS_TO_SHARE_WITH, placeholders(userIds.size())));
+        int i = 0;
+        for (Long userId : userIds) {
+            spec = spec.bind(i++, userId);
+        }
+        return spec.bind(i, locationId)
+            .map(row -> row.get(0, Long.class))
+            .all()
+            .collectList()
+            .doOnNext(found -> log.info("{} of {} users can get access to location id={}", found.size(),
+                userIds.size(), locationId))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<UserAccess> findUserAccess(UserAccess userAccess, Long ownerId) {
+
+        return databaseClient.sql(FIND_USER_ACCESS)
+            .bind(0, userAccess.getLocationId())
+            .bind(1, userAccess.getUserId())
+            .bind(2, ownerId)
+            .map(R2dbcUserAccessDao::mapUserAccess)
+            .first()
+            .doOnNext(access -> log.info("User access found by location id={}, user id={}, owner id={}",
+                userAccess.getLocationId(), userAccess.getUserId(), ownerId))
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("User access not found by location id={}, user id={}, owner id={}",
+                    userAccess.getLocationId(), userAccess.getUserId(), ownerId);
+                return Mono.error(new UserAccessNotFoundException("User access not found"));
+            }))
+            .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> changeUserAccess(UserAccess userAccess, Long ownerId) {
+
+        return databaseClient.sql(CHANGE_USER_ACCESS)
+            .filter(statement -> statement.returnGeneratedValues("id"))
+            .bind(0, userAccess.getLocationId())
+            .bind(1, userAccess.getUserId())
+            .bind(2, ownerId)
+            .map(row -> row.get(0, Long.class))
+            .first()
+            .filter(id -> id > 0)
+            .doOnNext(id -> log.info("User access changed by location id={}, user id={}",
+                userAccess.getLocationId(), userAccess.getUserId()))
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("User access not found by location id={}, user id={}, owner id={}",
+                    userAccess.getLocationId(), userAccess.getUserId(), ownerId);
+                return Mono.error(new UserAccessNotFoundException("User access not found"));
+            }))
+            .toFuture();
+    }
+
+    private static UserAccess mapUserAccess(Row row) {
+
+        UserAccess userAccess = new UserAccess();
+        userAccess.setId(row.get(0, Long.class));
+        userAccess.setTitle(row.get(1, String.class));
+        userAccess.setLocationId(row.get(2, Long.class));
+        userAccess.setUserId(row.get(3, Long.class));
+        return userAccess;
+    }
+}
@@ -1,12 +1,13 @@
 package com.example.locationsystem.userAccess;
 
+import com.example.locationsystem.event.ChangedEntity;
 import lombok.Data;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 @Data
 @RequiredArgsConstructor
-public class UserAccess {
+public class UserAccess implements ChangedEntity {
 
     private Long id;
 
@@ -0,0 +1,38 @@
+package com.example.locationsystem.userAccess;
+
+import com.example.locationsystem.util.SqlUtil;
+
+final class UserAccessQueries {
+
+    /**
+     * The id is {@code NULL} unless the caller picked one, see {@code LocationQueries.SAVE_LOCATION}.
+     */
+    static final String SAVE_USER_ACCESS = "INSERT INTO accesses(id,title,location_id,user_id) VALUES(?,?,?,?)";
+    /**
+     * Users from the {@code %s} list that exist and have no access to the location yet. Takes one {@code ?} per user,
+     * see {@link SqlUtil#placeholders(int)}, followed by the location id.
+     */
+    static final String FIND_USERS_TO_SHARE_WITH = "SELECT u.id FROM users u WHERE u.id IN (%s) AND NOT EXISTS " +
+        "(SELECT 1 FROM accesses a WHERE a.location_id = ? AND a.user_id = u.id)";
+    /**
+     * Grants access to a user that exists and has none yet, on a location the sharer owns or is admin of. Inserts no
+     * row when any of that does not hold.
+     */
+    static final String SHARE_USER_ACCESS = "INSERT INTO accesses(title,location_id,user_id) SELECT ?, l.id, u.id " +
+        "FROM locations l INNER JOIN users u ON u.id = ? WHERE l.id = ? AND (l.user_id = ? OR EXISTS (SELECT 1 FROM " +
+        "accesses m WHERE m.location_id = l.id AND m.user_id = ? AND m.title = 'ADMIN')) AND NOT EXISTS (SELECT 1 " +
+        "FROM accesses a WHERE a.location_id = l.id AND a.user_id = u.id)";
+    static final String FIND_USER_ACCESS = "SELECT a.id, a.title, a.location_id, a.user_id FROM accesses a " +
+        "INNER JOIN locations l ON a.location_id = l.id WHERE a.location_id = ? AND a.user_id = ? AND l.user_id = ?";
+    /**
+     * Toggles the title of an access on a location owned by the caller. The id of the changed access comes back as a
+     * generated key through {@code LAST_INSERT_ID(id)}; none means there is no such access.
+     */
+    static final String CHANGE_USER_ACCESS = "UPDATE accesses a INNER JOIN locations l ON a.location_id = l.id SET " +
+        "a.title = CASE WHEN a.title = 'ADMIN' THEN 'READ' WHEN a.title = 'READ' THEN 'ADMIN' ELSE a.title END, " +
+        "a.id = LAST_INSERT_ID(a.id) WHERE a.location_id = ? AND a.user_id = ? AND l.user_id = ?";
+
+    private UserAccessQueries() {
+
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.locationsystem.userAccess;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps {@code id, title, location_id, user_id} by column index, so every access query must select them in this
+ * order. {@code location_id} and {@code user_id} may be {@code NULL} and are read as such.
+ */
+public final class UserAccessRowMapper implements RowMapper<UserAccess> {
+
+    public static final UserAccessRowMapper INSTANCE = new UserAccessRowMapper();
+
+    private UserAccessRowMapper() {
+
+    }
+
+    @Override
+    public UserAccess mapRow(ResultSet rs, int rowNum) throws SQLException {
+
+        UserAccess userAccess = new UserAccess();
+        userAccess.setId(rs.getLong(1));
+        userAccess.setTitle(rs.getString(2));
+        userAccess.setLocationId(rs.getObject(3, Long.class));
+        userAccess.setUserId(rs.getObject(4, Long.class));
+        return userAccess;
+    }
+}
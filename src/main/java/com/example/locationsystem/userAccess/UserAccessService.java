@@ -1,12 +1,18 @@
 package com.example.locationsystem.userAccess;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public interface UserAccessService {
 
     CompletableFuture<UserAccess> saveUserAccess(UserAccess userAccess);
 
+    CompletableFuture<UserAccess> shareUserAccess(UserAccess userAccess, Long sharerId);
+
+    CompletableFuture<List<UserAccess>> shareLocation(Long locationId, String title, Collection<Long> userIds);
+
     CompletableFuture<UserAccess> findUserAccess(UserAccess userAccess, Long ownerId);
 
-    CompletableFuture<Void> changeUserAccess(UserAccess userAccess);
+    CompletableFuture<Void> changeUserAccess(UserAccess userAccess, Long ownerId);
 }
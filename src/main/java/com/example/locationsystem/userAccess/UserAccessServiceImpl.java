@@ -1,5 +1,7 @@
 package com.example.locationsystem.userAccess;
 
+import com.example.locationsystem.acl.AccessControlConsistencyCheck;
+import com.example.locationsystem.acl.AccessControlIndex;
 import com.example.locationsystem.event.ObjectChangeEvent;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -9,7 +11,16 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import com.example.locationsystem.exception.ControllerExceptions.*;
+
+import static com.example.locationsystem.util.FutureUtil.failed;
 
 @Service
 @Log4j2
@@ -19,6 +30,8 @@ public class UserAccessServiceImpl implements UserAccessService {
 
     UserAccessDao userAccessDao;
     ApplicationEventPublisher eventPublisher;
+    AccessControlIndex accessControlIndex;
+    AccessControlConsistencyCheck consistencyCheck;
 
     @Override
     public CompletableFuture<UserAccess> saveUserAccess(UserAccess userAccess) {
@@ -26,11 +39,62 @@ public class UserAccessServiceImpl implements UserAccessService {
         log.info("Saving user access by location id={}, user id={}",
             userAccess.getLocationId(), userAccess.getUserId());
         return userAccessDao.saveUserAccess(userAccess)
-            .thenApply(savedUserAccess -> {
-                eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER_ACCESS,
-                    ObjectChangeEvent.ActionType.CREATED,
-                    new Timestamp(System.currentTimeMillis()), savedUserAccess.getId()));
-                return savedUserAccess;
+            .thenApply(this::onSaved);
+    }
+
+    /**
+     * Shares in a single statement that also checks that {@code sharerId} may do so. The access control index, once
+     * loaded, only turns requests away early without asking the database; it only sees the writes made on this node,
+     * so it never lets a request through on its own. In consistency check mode the statement always runs and any
+     * disagreement with the index is counted, see {@link AccessControlConsistencyCheck}.
+     */
+    @Override
+    public CompletableFuture<UserAccess> shareUserAccess(UserAccess userAccess, Long sharerId) {
+
+        log.info("Sharing location id={} with user id={} by user id={}", userAccess.getLocationId(),
+            userAccess.getUserId(), sharerId);
+        CompletableFuture<UserAccess> saved;
+        if (!accessControlIndex.isReady()) {
+            saved = userAccessDao.shareUserAccess(userAccess, sharerId);
+        } else {
+            boolean allowed = accessControlIndex.canShare(sharerId, userAccess.getLocationId(), userAccess.getUserId());
+            if (consistencyCheck.isEnabled()) {
+                saved = consistencyCheck.verify("share", allowed, userAccessDao.shareUserAccess(userAccess, sharerId),
+                    LocationOrUserNotFoundException.class);
+            } else if (!allowed) {
+                log.warn("Location or user not found by owner id={}, location id={}, user to share id={}",
+                    sharerId, userAccess.getLocationId(), userAccess.getUserId());
+                return failed(new LocationOrUserNotFoundException("Location or user not found"));
+            } else {
+                saved = userAccessDao.shareUserAccess(userAccess, sharerId);
+            }
+        }
+        return saved.thenApply(this::onSaved);
+    }
+
+    /**
+     * Grants {@code title} to every user in {@code userIds} that exists and has no access to the location yet; the
+     * others are skipped. The caller is expected to have checked that the sharer manages the location.
+     */
+    @Override
+    public CompletableFuture<List<UserAccess>> shareLocation(Long locationId, String title, Collection<Long> userIds) {
+
+        log.info("Sharing location id={} with {} users", locationId, userIds.size());
+        return userAccessDao.findUsersToShareWith(locationId, new LinkedHashSet<>(userIds))
+            .thenCompose(newUserIds -> newUserIds.isEmpty()
+                ? CompletableFuture.completedFuture(Collections.<UserAccess>emptyList())
+                : userAccessDao.saveUserAccesses(newUserIds.stream()
+                    .map(userId -> new UserAccess(title, userId, locationId))
+                    .collect(Collectors.toList())))
+            .thenApply(savedUserAccesses -> {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                for (UserAccess savedUserAccess : savedUserAccesses) {
+                    accessControlIndex.putAccess(savedUserAccess.getId(), savedUserAccess.getUserId(),
+                        savedUserAccess.getLocationId(), savedUserAccess.getTitle());
+                    eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER_ACCESS,
+                        ObjectChangeEvent.ActionType.CREATED, now, savedUserAccess.getId(), savedUserAccess));
+                }
+                return savedUserAccesses;
             });
     }
 
@@ -42,12 +106,49 @@ public class UserAccessServiceImpl implements UserAccessService {
         return userAccessDao.findUserAccess(userAccess, ownerId);
     }
 
+    /**
+     * Changes the access in a single statement that also checks that {@code ownerId} owns the location, see
+     * {@link #shareUserAccess(UserAccess, Long)} for the role of the index.
+     */
     @Override
-    public CompletableFuture<Void> changeUserAccess(UserAccess userAccess) {
+    public CompletableFuture<Void> changeUserAccess(UserAccess userAccess, Long ownerId) {
 
-        log.info("Changing user access by location id={}, user id={}",
-            userAccess.getLocationId(), userAccess.getUserId());
-        return userAccessDao.changeUserAccess(userAccess);
+        log.info("Changing user access by location id={}, user id={}, owner id={}",
+            userAccess.getLocationId(), userAccess.getUserId(), ownerId);
+        CompletableFuture<Long> changed;
+        if (!accessControlIndex.isReady()) {
+            changed = userAccessDao.changeUserAccess(userAccess, ownerId);
+        } else {
+            boolean allowed = accessControlIndex.findAccess(ownerId, userAccess.getLocationId(),
+                userAccess.getUserId()) != null;
+            if (consistencyCheck.isEnabled()) {
+                changed = consistencyCheck.verify("change", allowed,
+                    userAccessDao.changeUserAccess(userAccess, ownerId), UserAccessNotFoundException.class);
+            } else if (!allowed) {
+                log.warn("User access not found by location id={}, user id={}, owner id={}",
+                    userAccess.getLocationId(), userAccess.getUserId(), ownerId);
+                return failed(new UserAccessNotFoundException("User access not found"));
+            } else {
+                changed = userAccessDao.changeUserAccess(userAccess, ownerId);
+            }
+        }
+        return changed.thenAccept(accessId -> {
+            userAccess.setId(accessId);
+            accessControlIndex.changeAccess(userAccess.getUserId(), userAccess.getLocationId());
+            eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER_ACCESS,
+                ObjectChangeEvent.ActionType.UPDATED, new Timestamp(System.currentTimeMillis()), accessId,
+                userAccess));
+        });
+    }
+
+    private UserAccess onSaved(UserAccess savedUserAccess) {
+
+        accessControlIndex.putAccess(savedUserAccess.getId(), savedUserAccess.getUserId(),
+            savedUserAccess.getLocationId(), savedUserAccess.getTitle());
+        eventPublisher.publishEvent(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER_ACCESS,
+            ObjectChangeEvent.ActionType.CREATED, new Timestamp(System.currentTimeMillis()), savedUserAccess.getId(),
+            savedUserAccess));
+        return savedUserAccess;
     }
 }
 
@@ -0,0 +1,20 @@
+package com.example.locationsystem.util;
+
+import java.util.concurrent.CompletableFuture;
+
+public final class FutureUtil {
+
+    /**
+     * A future already completed with {@code e}, like {@code CompletableFuture.failedFuture} from Java 9.
+     */
+    public static <T> CompletableFuture<T> failed(Throwable e) {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private FutureUtil() {
+
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.locationsystem.util;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list. {@code nextCursor} is the id to pass as {@code afterId} for the next page, or
+ * {@code null} on the last page.
+ */
+@Value
+public class Page<T> {
+
+    List<T> items;
+    Long nextCursor;
+
+    /**
+     * Builds a page from up to {@code limit + 1} rows ordered by id; the extra row only tells that there is more.
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, Long> idOf) {
+
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, idOf.apply(items.get(limit - 1)));
+    }
+}
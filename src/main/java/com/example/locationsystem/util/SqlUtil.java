@@ -0,0 +1,147 @@
+package com.example.locationsystem.util;
+
+import io.r2dbc.spi.R2dbcException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public final class SqlUtil {
+
+    /**
+     * MySQL {@code ER_DUP_ENTRY}, raised when an insert hits a unique index.
+     */
+    public static final int DUPLICATE_ENTRY_ERROR = 1062;
+
+    /**
+     * Cast because the function returns {@code BIGINT UNSIGNED}, which the R2DBC driver does not read as a
+     * {@code Long}.
+     */
+    private static final String LAST_INSERT_ID = "SELECT CAST(LAST_INSERT_ID() AS SIGNED)";
+
+    /**
+     * Comma-separated {@code ?}s for an {@code IN (%s)} list of {@code count} values.
+     */
+    public static String placeholders(int count) {
+
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Runs an INSERT, UPDATE or DELETE and returns the key the driver reports for it, or {@code null} when there is
+     * none. Statements that call {@code LAST_INSERT_ID(expr)} report that value as the key. The template closes the
+     * statement and the key result set and uses the connection of the current transaction, if there is one.
+     */
+    public static Long updateReturningKey(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.isEmpty()) {
+            return null;
+        }
+        Number key = (Number) keys.get(0).values().iterator().next();
+        return key == null || key.longValue() == 0 ? null : key.longValue();
+    }
+
+    /**
+     * Runs a DELETE that calls {@code LAST_INSERT_ID(id)} on the row it removes and returns that id, or {@code null}
+     * when no row was deleted. The OK packet of a DELETE carries no generated key, so the id is selected afterwards on
+     * the same connection. It is read only when a row was deleted, as otherwise the connection still holds the value
+     * left by an earlier statement.
+     */
+    public static Long deleteReturningId(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                new ArgumentPreparedStatementSetter(args).setValues(ps);
+                if (ps.executeUpdate() == 0) {
+                    return null;
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(LAST_INSERT_ID);
+                 ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        });
+    }
+
+    /**
+     * The R2DBC version of {@link #deleteReturningId(JdbcTemplate, String, Object...)}, completing empty when no row
+     * was deleted. The arguments must not be {@code null}.
+     */
+    public static Mono<Long> deleteReturningId(DatabaseClient databaseClient, String sql, Object... args) {
+
+        return databaseClient.inConnection(connection -> {
+            io.r2dbc.spi.Statement statement = connection.createStatement(sql);
+            for (int i = 0; i < args.length; i++) {
+                statement.bind(i, args[i]);
+            }
+            return Mono.from(statement.execute())
+                .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                .filter(rows -> rows > 0)
+                .flatMap(rows -> Mono.from(connection.createStatement(LAST_INSERT_ID).execute()))
+                .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, Long.class))));
+        });
+    }
+
+    /**
+     * Runs an INSERT whose first parameter is the id of the new row and returns that id. A {@code null} id is left
+     * to AUTO_INCREMENT, whose value is then read back as the generated key.
+     */
+    public static Long insert(JdbcTemplate jdbcTemplate, Long id, String sql, Object... args) {
+
+        Object[] withId = new Object[args.length + 1];
+        withId[0] = id;
+        System.arraycopy(args, 0, withId, 1, args.length);
+        if (id == null) {
+            return updateReturningKey(jdbcTemplate, sql, withId);
+        }
+        jdbcTemplate.update(sql, withId);
+        return id;
+    }
+
+    /**
+     * Binds the id placeholder of an R2DBC batch insert, see {@link #insert(JdbcTemplate, Long, String, Object...)}.
+     */
+    public static io.r2dbc.spi.Statement bindId(io.r2dbc.spi.Statement statement, Long id) {
+
+        return id == null ? statement.bindNull(0, Long.class) : statement.bind(0, id);
+    }
+
+    /**
+     * Whether {@code e} or one of its causes is a unique constraint violation, from either JDBC or R2DBC.
+     */
+    public static boolean isDuplicateKey(Throwable e) {
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DuplicateKeyException
+                || cause instanceof SQLException && ((SQLException) cause).getErrorCode() == DUPLICATE_ENTRY_ERROR
+                || cause instanceof R2dbcException
+                && ((R2dbcException) cause).getErrorCode() == DUPLICATE_ENTRY_ERROR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private SqlUtil() {
+
+    }
+}
@@ -0,0 +1,7 @@
+CREATE UNIQUE INDEX ux_users_username ON users (username);
+
+CREATE UNIQUE INDEX ux_locations_user_id_name ON locations (user_id, name);
+
+CREATE INDEX ix_accesses_user_id_location_id_title ON accesses (user_id, location_id, title);
+
+CREATE UNIQUE INDEX ux_accesses_location_id_user_id ON accesses (location_id, user_id);
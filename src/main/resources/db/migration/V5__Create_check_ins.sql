@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS check_ins
+(
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id       INT          NOT NULL,
+    location_id   INT          NOT NULL,
+    checked_in_at TIMESTAMP(3) NOT NULL
+);
+
+CREATE INDEX ix_check_ins_location_id_checked_in_at ON check_ins (location_id, checked_in_at);
+
+CREATE INDEX ix_check_ins_user_id_checked_in_at ON check_ins (user_id, checked_in_at);
@@ -0,0 +1,18 @@
+CREATE TABLE IF NOT EXISTS id_blocks
+(
+    name       VARCHAR(50),
+    next_value BIGINT NOT NULL,
+    PRIMARY KEY (name)
+);
+
+INSERT INTO id_blocks(name, next_value) VALUES ('users', 1), ('locations', 1), ('accesses', 1);
+
+CREATE TABLE IF NOT EXISTS user_emails
+(
+    username VARCHAR(255),
+    user_id  INT NOT NULL,
+    PRIMARY KEY (username)
+);
+
+-- accesses live with their location, the user they are granted to may live on another shard
+ALTER TABLE accesses DROP FOREIGN KEY accesses_ibfk_1;
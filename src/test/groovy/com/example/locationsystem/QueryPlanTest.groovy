@@ -0,0 +1,114 @@
+package com.example.locationsystem
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Specification
+
+import java.lang.reflect.Modifier
+
+/**
+ * Runs EXPLAIN on every query constant used by the DAOs against a seeded data set and fails when any of them reads a
+ * whole table. INSERTs are skipped, as are the full loads of the access control index, which scan on purpose. IN lists
+ * written as {@code %s} are explained with a single value, and {@code LIMIT ?} with a fixed limit. Temporary tables
+ * such as {@code <union1,2>} only hold rows already read through the other steps of the plan. The tables only shard
+ * databases have are created from their migration for the duration of the test.
+ */
+@SpringBootTest
+class QueryPlanTest extends Specification {
+
+    private static final List<String> QUERY_CLASSES = [
+        "com.example.locationsystem.location.LocationQueries",
+        "com.example.locationsystem.user.UserQueries",
+        "com.example.locationsystem.userAccess.UserAccessQueries",
+        "com.example.locationsystem.event.EventQueries",
+        "com.example.locationsystem.checkIn.CheckInQueries",
+        "com.example.locationsystem.shard.ShardQueries"
+    ]
+
+    private static final String SHARD_TABLES = "db/shard/V3_1__Add_shard_tables.sql"
+
+    private static final long ID_BASE = 1_000_000L
+    private static final int USERS = 2_000
+    private static final int LOCATIONS_PER_USER = 5
+    private static final int ACCESSES_PER_USER = 5
+
+    @Autowired
+    JdbcTemplate jdbcTemplate
+
+    def "should not scan whole tables in DAO queries"() {
+
+        given:
+            seed()
+
+        when:
+            def scans = queries().collectEntries { name, sql -> [(name): fullScans(sql)] }.findAll { it.value }
+
+        then:
+            scans.isEmpty()
+
+        cleanup:
+            clean()
+    }
+
+    private Map<String, String> queries() {
+
+        QUERY_CLASSES.collectEntries { className ->
+            Class.forName(className).declaredFields
+                .findAll { Modifier.isStatic(it.modifiers) && it.type == String }
+                .collectEntries {
+                    it.accessible = true
+                    [("${it.declaringClass.simpleName}.${it.name}".toString()): (it.get(null) as String).replace("%s", "?")]
+                }
+                .findAll { !it.value.trim().toUpperCase().startsWith("INSERT") }
+        }
+    }
+
+    private List<String> fullScans(String sql) {
+
+        def explained = sql.replace("LIMIT ?", "LIMIT 10")
+        def parameters = (["1"] * explained.count("?")) as Object[]
+        jdbcTemplate.queryForList("EXPLAIN " + explained, parameters)
+            .findAll { it.type == "ALL" && it.table && !(it.table as String).startsWith("<") }
+            .collect { it.table as String }
+    }
+
+    private void seed() {
+
+        getClass().classLoader.getResource(SHARD_TABLES).text.split(";")
+            .collect { it.trim() }
+            .findAll { it.startsWith("CREATE TABLE") }
+            .each { jdbcTemplate.execute(it) }
+
+        jdbcTemplate.batchUpdate("INSERT INTO users(id,name,password,username) VALUES(?,?,?,?)",
+            (0..<USERS).collect { [ID_BASE + it, "plan" + it, "pass", "plan" + it + "@example.com"] as Object[] })
+
+        jdbcTemplate.batchUpdate("INSERT INTO locations(id,name,address,user_id) VALUES(?,?,?,?)",
+            (0..<USERS * LOCATIONS_PER_USER).collect {
+                [ID_BASE + it, "location" + it, "address", ID_BASE + it.intdiv(LOCATIONS_PER_USER)] as Object[]
+            })
+
+        jdbcTemplate.batchUpdate("INSERT INTO accesses(id,title,location_id,user_id) VALUES(?,?,?,?)",
+            (0..<USERS * ACCESSES_PER_USER).collect {
+                def userIndex = it.intdiv(ACCESSES_PER_USER)
+                def locationIndex = ((userIndex + 1 + it % ACCESSES_PER_USER) % USERS) * LOCATIONS_PER_USER
+                [ID_BASE + it, it % 2 ? "READ" : "ADMIN", ID_BASE + locationIndex, ID_BASE + userIndex] as Object[]
+            })
+
+        jdbcTemplate.batchUpdate("INSERT INTO user_emails(username,user_id) VALUES(?,?)",
+            (0..<USERS).collect { ["plan" + it + "@example.com", ID_BASE + it] as Object[] })
+
+        jdbcTemplate.update("INSERT INTO id_blocks(name, next_value) VALUES ('users', 1), ('locations', 1), " +
+            "('accesses', 1)")
+
+        jdbcTemplate.execute("ANALYZE TABLE users, locations, accesses, user_emails, id_blocks")
+    }
+
+    private void clean() {
+
+        jdbcTemplate.update("DELETE FROM accesses WHERE id >= ?", ID_BASE)
+        jdbcTemplate.update("DELETE FROM locations WHERE id >= ?", ID_BASE)
+        jdbcTemplate.update("DELETE FROM users WHERE id >= ?", ID_BASE)
+        jdbcTemplate.execute("DROP TABLE IF EXISTS user_emails, id_blocks")
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.locationsystem
+
+import com.example.locationsystem.location.Location
+import com.example.locationsystem.location.LocationDao
+import com.zaxxer.hikari.HikariDataSource
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+
+/**
+ * Checks that inserts reuse server-side prepared statements and give back everything they borrow. The counters are
+ * server-wide, so the bounds leave room for one prepared statement per pooled connection. The soak test inserts a
+ * million rows and only runs with {@code SOAK_TEST} set in the environment.
+ */
+@SpringBootTest
+class StatementCacheTest extends Specification {
+
+    private static final long USER_ID = 900_000L
+    /**
+     * Stays below the location DAO executor queue, which rejects rather than grows.
+     */
+    private static final int CHUNK = 100
+    private static final int ROWS = 1_000
+
+    @Autowired
+    LocationDao locationDao
+
+    @Autowired
+    JdbcTemplate jdbcTemplate
+
+    @Autowired
+    HikariDataSource dataSource
+
+    def setup() {
+
+        jdbcTemplate.update("INSERT INTO users(id,name,password,username) VALUES(?,'soak','pass','soak@example.com')",
+            USER_ID)
+    }
+
+    def cleanup() {
+
+        while (jdbcTemplate.update("DELETE FROM locations WHERE user_id = ? LIMIT 10000", USER_ID) > 0) {
+        }
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", USER_ID)
+    }
+
+    def "should prepare an insert at most once per pooled connection"() {
+
+        given:
+            def prepared = status("Com_stmt_prepare")
+            def executed = status("Com_stmt_execute")
+
+        when:
+            for (int from = 0; from < ROWS; from += CHUNK) {
+                insert(from, CHUNK)
+            }
+
+        then:
+            status("Com_stmt_execute") - executed >= ROWS
+            status("Com_stmt_prepare") - prepared <= dataSource.maximumPoolSize
+    }
+
+    @Requires({ env.SOAK_TEST })
+    def "should keep statement and connection counts flat over a million inserts"() {
+
+        given:
+            insert(0, CHUNK)
+            def openStatements = status("Prepared_stmt_count")
+            def samples = []
+
+        when:
+            for (int from = CHUNK; from < 1_000_000; from += CHUNK) {
+                insert(from, CHUNK)
+                if (from % 100_000 == 0) {
+                    samples << [status("Prepared_stmt_count"), dataSource.hikariPoolMXBean.totalConnections]
+                }
+            }
+
+        then:
+            samples.every { it[0] <= openStatements + dataSource.maximumPoolSize }
+            samples.every { it[1] <= dataSource.maximumPoolSize }
+            dataSource.hikariPoolMXBean.activeConnections == 0
+    }
+
+    private void insert(int from, int count) {
+
+        CompletableFuture.allOf((from..<from + count).collect {
+            locationDao.saveLocation(new Location(name: "soak" + it, address: "address", userId: USER_ID))
+        } as CompletableFuture[]).join()
+    }
+
+    /**
+     * Reads a status variable through a plain statement, which does not move the prepared statement counters.
+     */
+    private long status(String name) {
+
+        jdbcTemplate.queryForList("SHOW GLOBAL STATUS LIKE '" + name + "'")[0].Value as long
+    }
+}
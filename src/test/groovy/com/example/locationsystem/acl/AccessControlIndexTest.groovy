@@ -0,0 +1,134 @@
+package com.example.locationsystem.acl
+
+import com.example.locationsystem.userAccess.UserAccess
+import spock.lang.Specification
+
+class AccessControlIndexTest extends Specification {
+
+    AccessControlIndex index = new AccessControlIndex()
+
+    def setup() {
+
+        index.rebuild {
+            [1L, 2L, 3L, 4L].each { index.addUser(it) }
+            index.addLocation(10L, 1L)
+            index.putAccess(100L, 2L, 10L, "ADMIN")
+            index.putAccess(200L, 3L, 10L, "READ")
+        }
+    }
+
+    def "should not be ready before first rebuild"() {
+
+        expect:
+            !new AccessControlIndex().isReady()
+            index.isReady()
+    }
+
+    def "should allow owner and shared users to view location"() {
+
+        expect:
+            index.canView(userId, 10L) == expected
+
+        where:
+            userId | expected
+            1L     | true
+            2L     | true
+            3L     | true
+            4L     | false
+    }
+
+    def "should allow owner and admin to share location with user without access"() {
+
+        expect:
+            index.canShare(sharerId, 10L, userId) == expected
+
+        where:
+            sharerId | userId | expected
+            1L       | 4L     | true
+            2L       | 4L     | true
+            3L       | 4L     | false
+            1L       | 3L     | false
+            1L       | 5L     | false
+            4L       | 1L     | false
+    }
+
+    def "should let only owner and admin manage location"() {
+
+        expect:
+            index.canManage(userId, 10L) == expected
+
+        where:
+            userId | expected
+            1L     | true
+            2L     | true
+            3L     | false
+            4L     | false
+    }
+
+    def "should find access only for location owner"() {
+
+        expect:
+            index.findAccess(1L, 10L, 2L) == new UserAccess(id: 100L, title: "ADMIN", userId: 2L, locationId: 10L)
+            index.findAccess(2L, 10L, 3L) == null
+            index.findAccess(1L, 10L, 4L) == null
+    }
+
+    def "should toggle title on change"() {
+
+        when:
+            index.changeAccess(2L, 10L)
+            index.changeAccess(3L, 10L)
+
+        then:
+            index.findAccess(1L, 10L, 2L).getTitle() == "READ"
+            index.findAccess(1L, 10L, 3L).getTitle() == "ADMIN"
+    }
+
+    def "should list owned and shared locations as visible"() {
+
+        when:
+            index.addLocation(11L, 2L)
+            index.addLocation(12L, 1L)
+            index.removeLocation(12L)
+
+        then:
+            index.findVisibleLocations(2L) as Set == [10L, 11L] as Set
+            index.countVisibleLocations(2L) == 2
+            index.findVisibleLocations(1L) as List == [10L]
+            index.findVisibleLocations(4L).length == 0
+    }
+
+    def "should drop accesses with deleted location"() {
+
+        when:
+            def userIds = index.removeLocation(10L)
+
+        then:
+            userIds as Set == [2L, 3L] as Set
+            !index.canView(1L, 10L)
+            !index.canView(2L, 10L)
+            index.findAccess(1L, 10L, 2L) == null
+    }
+
+    def "should drop accesses with deleted user"() {
+
+        when:
+            index.removeUser(2L)
+
+        then:
+            !index.canView(2L, 10L)
+            index.canView(3L, 10L)
+            !index.canShare(1L, 10L, 2L)
+    }
+
+    def "should keep unknown titles"() {
+
+        when:
+            index.putAccess(300L, 4L, 10L, "GUEST")
+            index.changeAccess(4L, 10L)
+
+        then:
+            index.findAccess(1L, 10L, 4L).getTitle() == "GUEST"
+            index.canShare(1L, 10L, 4L)
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.locationsystem.acl
+
+import com.example.locationsystem.exception.ControllerExceptions
+import com.example.locationsystem.location.Location
+import com.example.locationsystem.location.LocationDao
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+
+class AccessControlServiceTest extends Specification {
+
+    AccessControlIndex index = new AccessControlIndex()
+    LocationDao locationDao = Mock(LocationDao)
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    def location = new Location(id: 10L, name: "name", address: "address", userId: 1L)
+
+    def "should ask database while index is not loaded"() {
+
+        given:
+            def accessControlService = service(false)
+
+        when:
+            accessControlService.checkCanManage(1L, 10L).join()
+
+        then:
+            1 * locationDao.findManagedLocation(1L, 10L) >> CompletableFuture.completedFuture(location)
+    }
+
+    def "should answer from index without database"() {
+
+        given:
+            load()
+            def accessControlService = service(false)
+
+        when:
+            accessControlService.checkCanManage(1L, 10L).join()
+
+        then:
+            0 * locationDao._
+    }
+
+    def "should throw LocationNotFoundException when index denies managing location"() {
+
+        given:
+            load()
+
+        when:
+            service(false).checkCanManage(2L, 10L).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationNotFoundException
+            0 * locationDao._
+    }
+
+    def "should throw LocationNotFoundException when index denies viewing location"() {
+
+        given:
+            load()
+
+        when:
+            service(false).checkCanView(2L, 10L).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationNotFoundException
+            0 * locationDao._
+    }
+
+    def "should count mismatch between index and database in consistency check mode"() {
+
+        given:
+            load()
+            locationDao.findManagedLocation(1L, 10L) >> CompletableFuture.supplyAsync {
+                throw new ControllerExceptions.LocationNotFoundException("Location not found")
+            }
+
+        when:
+            service(true).checkCanManage(1L, 10L).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationNotFoundException
+            meterRegistry.get("acl.consistency.mismatch").tag("check", "manage").counter().count() == 1
+    }
+
+    def "should not count mismatch when index and database agree"() {
+
+        given:
+            load()
+            locationDao.findManagedLocation(1L, 10L) >> CompletableFuture.completedFuture(location)
+
+        when:
+            service(true).checkCanManage(1L, 10L).join()
+
+        then:
+            meterRegistry.find("acl.consistency.mismatch").counter() == null
+    }
+
+    private AccessControlService service(boolean consistencyCheck) {
+
+        new AccessControlServiceImpl(index, locationDao,
+            new AccessControlConsistencyCheck(meterRegistry, consistencyCheck))
+    }
+
+    private void load() {
+
+        index.rebuild {
+            index.addUser(1L)
+            index.addUser(2L)
+            index.addLocation(10L, 1L)
+        }
+    }
+}
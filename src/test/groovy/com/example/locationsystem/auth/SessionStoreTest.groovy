@@ -0,0 +1,58 @@
+package com.example.locationsystem.auth
+
+import spock.lang.Specification
+
+import java.time.Duration
+
+class SessionStoreTest extends Specification {
+
+    SessionStore sessionStore = new SessionStore(Duration.ofMinutes(30), 100)
+
+    def "should find user id by created session token"() {
+
+        when:
+            def token = sessionStore.createSession(100L)
+
+        then:
+            sessionStore.findUserId(token) == 100L
+    }
+
+    def "should create unique opaque tokens"() {
+
+        when:
+            def first = sessionStore.createSession(100L)
+            def second = sessionStore.createSession(100L)
+
+        then:
+            first != second
+    }
+
+    def "should return null for unknown or invalidated token"() {
+
+        given:
+            def token = sessionStore.createSession(100L)
+
+        when:
+            sessionStore.invalidate(token)
+
+        then:
+            sessionStore.findUserId(token) == null
+            sessionStore.findUserId("unknown") == null
+    }
+
+    def "should invalidate every session of a user"() {
+
+        given:
+            def first = sessionStore.createSession(100L)
+            def second = sessionStore.createSession(100L)
+            def other = sessionStore.createSession(200L)
+
+        when:
+            sessionStore.invalidateUser(100L)
+
+        then:
+            sessionStore.findUserId(first) == null
+            sessionStore.findUserId(second) == null
+            sessionStore.findUserId(other) == 200L
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.locationsystem.checkIn
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.sql.Timestamp
+import java.time.Duration
+import java.util.concurrent.RejectedExecutionException
+
+class CheckInIngesterTest extends Specification {
+
+    CheckInDao checkInDao = Mock(CheckInDao)
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    CheckInIngester ingester
+
+    def cleanup() {
+
+        ingester?.shutdown()
+    }
+
+    def "should keep only the latest pending check-in of a user"() {
+
+        given:
+            ingester = ingester(1, 10, 100)
+            List<CheckIn> written = []
+            checkInDao.saveCheckIns(_) >> { List<CheckIn> checkIns -> written.addAll(checkIns) }
+
+        when:
+            ingester.submit(checkIn(1L, 10L))
+            ingester.submit(checkIn(2L, 10L))
+            ingester.submit(checkIn(1L, 11L))
+            ingester.flush()
+
+        then:
+            written.collect { [it.userId, it.locationId] } == [[1L, 11L], [2L, 10L]]
+            meterRegistry.get("check-in.coalesced").counter().count() == 1
+            meterRegistry.get("check-in.lag").timer().count() == 2
+            meterRegistry.get("check-in.pending").gauge().value() == 0
+    }
+
+    def "should split flush into batches of configured size"() {
+
+        given:
+            ingester = ingester(2, 100, 2)
+            def sizes = Collections.synchronizedList([])
+            checkInDao.saveCheckIns(_) >> { List<CheckIn> checkIns -> sizes << checkIns.size() }
+
+        when:
+            (1L..7L).each { ingester.submit(checkIn(it, 10L)) }
+            ingester.flush()
+
+        then:
+            sizes.sum() == 7
+            sizes.every { it <= 2 }
+    }
+
+    def "should flush in background once batch size is reached"() {
+
+        given:
+            ingester = ingester(1, 10, 2)
+            def conditions = new PollingConditions(timeout: 5)
+            def written = Collections.synchronizedList([])
+            checkInDao.saveCheckIns(_) >> { List<CheckIn> checkIns -> written.addAll(checkIns) }
+
+        when:
+            ingester.submit(checkIn(1L, 10L))
+            ingester.submit(checkIn(2L, 10L))
+
+        then:
+            conditions.eventually {
+                assert written.size() == 2
+            }
+    }
+
+    def "should reject new users when partition is full but still coalesce pending ones"() {
+
+        given:
+            ingester = ingester(1, 2, 100)
+
+        when:
+            ingester.submit(checkIn(1L, 10L))
+            ingester.submit(checkIn(2L, 10L))
+            ingester.submit(checkIn(2L, 11L))
+
+        then:
+            noExceptionThrown()
+
+        when:
+            ingester.submit(checkIn(3L, 10L))
+
+        then:
+            thrown(RejectedExecutionException)
+            meterRegistry.get("check-in.rejected").counter().count() == 1
+    }
+
+    def "should count failed batches and keep accepting check-ins"() {
+
+        given:
+            ingester = ingester(1, 10, 100)
+
+        when:
+            ingester.submit(checkIn(1L, 10L))
+            ingester.flush()
+
+        then:
+            1 * checkInDao.saveCheckIns(_) >> { throw new IllegalStateException("database is down") }
+            meterRegistry.get("check-in.failed").counter().count() == 1
+
+        when:
+            ingester.submit(checkIn(1L, 10L))
+            ingester.flush()
+
+        then:
+            1 * checkInDao.saveCheckIns({ it.size() == 1 })
+    }
+
+    def "should write pending check-ins on shutdown"() {
+
+        given:
+            ingester = ingester(2, 10, 100)
+
+        when:
+            ingester.submit(checkIn(1L, 10L))
+            ingester.shutdown()
+
+        then:
+            1 * checkInDao.saveCheckIns({ it.size() == 1 })
+    }
+
+    private CheckInIngester ingester(int partitions, int capacity, int batchSize) {
+
+        new CheckInIngester(checkInDao, meterRegistry, partitions, capacity, batchSize, Duration.ofMinutes(1))
+    }
+
+    private static CheckIn checkIn(Long userId, Long locationId) {
+
+        new CheckIn(userId, locationId, new Timestamp(System.currentTimeMillis()))
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.locationsystem.event
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.util.unit.DataSize
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.sql.Timestamp
+import java.time.Duration
+
+class DurableHistoryWriterTest extends Specification {
+
+    EventDao eventDao = Mock(EventDao)
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    Path directory
+
+    DurableHistoryWriter historyWriter
+
+    def setup() {
+
+        directory = Files.createTempDirectory("history-log")
+    }
+
+    def cleanup() {
+
+        historyWriter?.shutdown()
+        directory.toFile().deleteDir()
+    }
+
+    def "should forward appended events in batches"() {
+
+        given:
+            historyWriter = writer()
+            def written = []
+            eventDao.insertEvents(_) >> { List<ObjectChangeEvent> events -> written.addAll(events*.objectId) }
+
+        when:
+            5.times { historyWriter.enqueue(event(it)) }
+            historyWriter.flush()
+
+        then:
+            written == [0L, 1L, 2L, 3L, 4L]
+            meterRegistry.get("history.log.backlog").gauge().value() == 0
+    }
+
+    def "should replay events after failed insert"() {
+
+        given:
+            historyWriter = writer()
+            historyWriter.enqueue(event(1))
+
+        when:
+            historyWriter.flush()
+
+        then:
+            1 * eventDao.insertEvents(_) >> { throw new RuntimeException("db down") }
+            thrown(RuntimeException)
+
+        when:
+            historyWriter.flush()
+
+        then:
+            1 * eventDao.insertEvents({ it*.objectId == [1L] })
+    }
+
+    def "should resume from checkpoint after restart"() {
+
+        given:
+            def failing = false
+            def written = []
+            eventDao.insertEvents(_) >> { List<ObjectChangeEvent> events ->
+                if (failing) {
+                    throw new RuntimeException("db down")
+                }
+                written.addAll(events*.objectId)
+            }
+
+        and:
+            historyWriter = writer()
+            historyWriter.enqueue(event(1))
+            historyWriter.flush()
+            failing = true
+            historyWriter.enqueue(event(2))
+            historyWriter.shutdown()
+            failing = false
+            written.clear()
+
+        when:
+            historyWriter = writer()
+            historyWriter.flush()
+
+        then:
+            written == [2L]
+    }
+
+    def "should compact forwarded segments"() {
+
+        given:
+            historyWriter = writer()
+
+        when:
+            10.times { historyWriter.enqueue(event(it)) }
+            historyWriter.flush()
+
+        then:
+            directory.toFile().listFiles().findAll { it.name.endsWith(".log") }.size() == 1
+    }
+
+    private DurableHistoryWriter writer() {
+
+        new DurableHistoryWriter(eventDao, meterRegistry, directory.toString(),
+            DataSize.ofBytes(4 * EventLog.RECORD_SIZE), EventLog.FsyncPolicy.NONE, Duration.ofSeconds(1), 2,
+            Duration.ofHours(1))
+    }
+
+    private ObjectChangeEvent event(long objectId) {
+
+        new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER, ObjectChangeEvent.ActionType.CREATED,
+            new Timestamp(System.currentTimeMillis()), objectId)
+    }
+}
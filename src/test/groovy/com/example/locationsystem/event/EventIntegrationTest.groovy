@@ -12,6 +12,8 @@ import org.springframework.jdbc.core.JdbcTemplate
 import spock.lang.Shared
 import spock.lang.Specification
 
+import java.sql.Timestamp
+
 @SpringBootTest
 class EventIntegrationTest extends Specification {
 
@@ -30,6 +32,9 @@ class EventIntegrationTest extends Specification {
     @Autowired
     JdbcTemplate jdbcTemplate
 
+    @Autowired
+    HistoryRecorder historyRecorder
+
     private static final String DELETE_USER = "DELETE FROM users WHERE username = 'test@gmail.com';"
     private static final String DELETE_LOCATION = "DELETE FROM locations WHERE name = 'test';"
     private static final String DELETE_ACCESS = "DELETE FROM accesses WHERE title = 'test';"
@@ -39,6 +44,7 @@ class EventIntegrationTest extends Specification {
 
         when:
             def savedUserId = userService.saveUser(user).join()
+            historyRecorder.flush()
 
         then:
             def exists = jdbcTemplate.queryForObject(
@@ -62,6 +68,7 @@ class EventIntegrationTest extends Specification {
 
         when:
             userService.deleteUserByEmail(user.getUsername()).join()
+            historyRecorder.flush()
 
         then:
             def exists = jdbcTemplate.queryForObject(
@@ -86,6 +93,7 @@ class EventIntegrationTest extends Specification {
 
         when:
             def savedLoc = locationService.saveLocation(location, location.getUserId()).join()
+            historyRecorder.flush()
 
         then:
             def exists = jdbcTemplate.queryForObject(
@@ -114,6 +122,7 @@ class EventIntegrationTest extends Specification {
 
         when:
             locationService.deleteLocation(savedLoc.getName(), savedLoc.getUserId()).join()
+            historyRecorder.flush()
 
         then:
             def exists = jdbcTemplate.queryForObject(
@@ -143,6 +152,7 @@ class EventIntegrationTest extends Specification {
 
         when:
             def savedAccess = userAccessService.saveUserAccess(userAccess).join()
+            historyRecorder.flush()
 
         then:
             def exists = jdbcTemplate.queryForObject(
@@ -162,5 +172,26 @@ class EventIntegrationTest extends Specification {
             jdbcTemplate.update(DELETE_EVENT, savedLoc.getId())
             jdbcTemplate.update(DELETE_EVENT, savedUserId)
     }
-}
 
+    def "should write event without object id in the same batch as the others"() {
+
+        given:
+            def now = new Timestamp(System.currentTimeMillis().intdiv(1000) * 1000)
+
+        when:
+            historyRecorder.enqueue(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER,
+                ObjectChangeEvent.ActionType.CREATED, now, null))
+            historyRecorder.enqueue(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER,
+                ObjectChangeEvent.ActionType.CREATED, now, 987654L))
+            historyRecorder.flush()
+
+        then:
+            jdbcTemplate.queryForObject("SELECT EXISTS(SELECT 1 FROM history WHERE object_id = ?)", Boolean, 987654L)
+            jdbcTemplate.queryForObject("SELECT EXISTS(SELECT 1 FROM history WHERE object_id IS NULL AND event_time = ?)",
+                Boolean, now)
+
+        cleanup:
+            jdbcTemplate.update(DELETE_EVENT, 987654L)
+            jdbcTemplate.update("DELETE FROM history WHERE object_id IS NULL AND event_time = ?", now)
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.locationsystem.event
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.sql.Timestamp
+
+class EventLogTest extends Specification {
+
+    Path directory
+    EventLog eventLog
+
+    def setup() {
+
+        directory = Files.createTempDirectory("event-log")
+        eventLog = new EventLog(directory, 4 * EventLog.RECORD_SIZE, EventLog.FsyncPolicy.NONE)
+    }
+
+    def cleanup() {
+
+        eventLog.close()
+        directory.toFile().deleteDir()
+    }
+
+    def "should read appended events back"() {
+
+        given:
+            def event = new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.LOCATION,
+                ObjectChangeEvent.ActionType.DELETED, new Timestamp(1_000L), 42L)
+
+        when:
+            def sequence = eventLog.append(event)
+            def batch = eventLog.read(sequence, 10)
+
+        then:
+            sequence == 0
+            batch.nextSequence == 1
+            batch.events.size() == 1
+            with(batch.events[0]) {
+                objectType == ObjectChangeEvent.ObjectType.LOCATION
+                actionType == ObjectChangeEvent.ActionType.DELETED
+                eventTime == new Timestamp(1_000L)
+                objectId == 42L
+            }
+    }
+
+    def "should roll segments and stop reading at segment end"() {
+
+        when:
+            6.times { eventLog.append(event(it)) }
+            def first = eventLog.read(0, 10)
+            def second = eventLog.read(first.nextSequence, 10)
+
+        then:
+            first.events*.objectId == [0L, 1L, 2L, 3L]
+            second.events*.objectId == [4L, 5L]
+            second.nextSequence == 6
+            segmentCount() == 2
+    }
+
+    def "should continue after last valid record on reopen"() {
+
+        given:
+            3.times { eventLog.append(event(it)) }
+            eventLog.close()
+
+        when:
+            eventLog = new EventLog(directory, 4 * EventLog.RECORD_SIZE, EventLog.FsyncPolicy.NONE)
+            def sequence = eventLog.append(event(3))
+
+        then:
+            sequence == 3
+            eventLog.read(0, 10).events*.objectId == [0L, 1L, 2L, 3L]
+    }
+
+    def "should drop torn record on reopen"() {
+
+        given:
+            2.times { eventLog.append(event(it)) }
+            eventLog.close()
+            corrupt(1)
+
+        when:
+            eventLog = new EventLog(directory, 4 * EventLog.RECORD_SIZE, EventLog.FsyncPolicy.NONE)
+
+        then:
+            eventLog.nextSequence() == 1
+            eventLog.read(0, 10).events*.objectId == [0L]
+    }
+
+    def "should delete only fully forwarded segments"() {
+
+        given:
+            9.times { eventLog.append(event(it)) }
+
+        when:
+            eventLog.deleteSegmentsBefore(6)
+
+        then:
+            segmentCount() == 2
+            eventLog.firstSequence() == 4
+
+        when:
+            eventLog.deleteSegmentsBefore(9)
+
+        then:
+            segmentCount() == 1
+            eventLog.firstSequence() == 8
+    }
+
+    private int segmentCount() {
+
+        directory.toFile().listFiles().findAll { it.name.endsWith(".log") }.size()
+    }
+
+    private void corrupt(int record) {
+
+        def segment = directory.toFile().listFiles().find { it.name.endsWith(".log") }.toPath()
+        def channel = FileChannel.open(segment, StandardOpenOption.WRITE)
+        try {
+            channel.write(ByteBuffer.wrap([1, 2, 3] as byte[]), record * EventLog.RECORD_SIZE + 10)
+        } finally {
+            channel.close()
+        }
+    }
+
+    private ObjectChangeEvent event(long objectId) {
+
+        new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER, ObjectChangeEvent.ActionType.CREATED,
+            new Timestamp(System.currentTimeMillis()), objectId)
+    }
+}
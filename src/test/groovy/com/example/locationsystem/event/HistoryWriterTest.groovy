@@ -0,0 +1,153 @@
+package com.example.locationsystem.event
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.sql.Timestamp
+import java.time.Duration
+
+class HistoryWriterTest extends Specification {
+
+    EventDao eventDao = Mock(EventDao)
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+
+    HistoryWriter historyWriter
+
+    def cleanup() {
+
+        historyWriter?.shutdown()
+    }
+
+    def "should write queued events in one batch on flush"() {
+
+        given:
+            historyWriter = writer(10, 100, HistoryWriter.FullPolicy.DROP, true)
+
+        when:
+            3.times { historyWriter.enqueue(event(it)) }
+            historyWriter.flush()
+
+        then:
+            1 * eventDao.insertEvents({ it.size() == 3 })
+            meterRegistry.get("history.writer.batch.size").summary().count() == 1
+            meterRegistry.get("history.writer.lag").timer().count() == 3
+            meterRegistry.get("history.writer.queue.size").gauge().value() == 0
+    }
+
+    def "should split flush into batches of configured size"() {
+
+        given:
+            historyWriter = writer(10, 2, HistoryWriter.FullPolicy.DROP, true)
+            def sizes = Collections.synchronizedList([])
+            eventDao.insertEvents(_) >> { List<ObjectChangeEvent> events -> sizes << events.size() }
+
+        when:
+            5.times { historyWriter.enqueue(event(it)) }
+            historyWriter.flush()
+
+        then:
+            sizes.sum() == 5
+            sizes.every { it <= 2 }
+    }
+
+    def "should flush in background once batch size is reached"() {
+
+        given:
+            historyWriter = writer(10, 2, HistoryWriter.FullPolicy.DROP, true)
+            def conditions = new PollingConditions(timeout: 5)
+            def written = Collections.synchronizedList([])
+            eventDao.insertEvents(_) >> { List<ObjectChangeEvent> events -> written.addAll(events) }
+
+        when:
+            2.times { historyWriter.enqueue(event(it)) }
+
+        then:
+            conditions.eventually {
+                assert written.size() == 2
+            }
+    }
+
+    def "should drop events when queue is full"() {
+
+        given:
+            historyWriter = writer(2, 100, HistoryWriter.FullPolicy.DROP, true)
+
+        when:
+            3.times { historyWriter.enqueue(event(it)) }
+            historyWriter.flush()
+
+        then:
+            1 * eventDao.insertEvents({ it.size() == 2 })
+            meterRegistry.get("history.writer.dropped").counter().count() == 1
+    }
+
+    def "should give up blocking after timeout when queue stays full"() {
+
+        given:
+            historyWriter = writer(1, 100, HistoryWriter.FullPolicy.BLOCK, true)
+
+        when:
+            historyWriter.enqueue(event(1))
+            def start = System.nanoTime()
+            historyWriter.enqueue(event(2))
+
+        then:
+            System.nanoTime() - start >= Duration.ofMillis(50).toNanos()
+            meterRegistry.get("history.writer.dropped").counter().count() == 1
+    }
+
+    def "should refuse to block the R2DBC event loop"() {
+
+        when:
+            new HistoryWriter(eventDao, meterRegistry, 1, 100, Duration.ofHours(1), HistoryWriter.FullPolicy.BLOCK,
+                Duration.ofMillis(50), true, "r2dbc")
+
+        then:
+            thrown(IllegalArgumentException)
+    }
+
+    def "should count failed batches"() {
+
+        given:
+            historyWriter = writer(10, 100, HistoryWriter.FullPolicy.DROP, true)
+            eventDao.insertEvents(_) >> { throw new RuntimeException("db down") }
+
+        when:
+            2.times { historyWriter.enqueue(event(it)) }
+            historyWriter.flush()
+
+        then:
+            meterRegistry.get("history.writer.failed").counter().count() == 2
+    }
+
+    def "should flush remaining events on shutdown when enabled"() {
+
+        given:
+            historyWriter = writer(10, 100, HistoryWriter.FullPolicy.DROP, flushOnShutdown)
+            historyWriter.enqueue(event(1))
+
+        when:
+            historyWriter.shutdown()
+
+        then:
+            calls * eventDao.insertEvents(_)
+
+        where:
+            flushOnShutdown | calls
+            true            | 1
+            false           | 0
+    }
+
+    private HistoryWriter writer(int capacity, int batchSize, HistoryWriter.FullPolicy policy, boolean flushOnShutdown) {
+
+        new HistoryWriter(eventDao, meterRegistry, capacity, batchSize, Duration.ofHours(1), policy,
+            Duration.ofMillis(50), flushOnShutdown, "jdbc")
+    }
+
+    private static ObjectChangeEvent event(long objectId) {
+
+        new ObjectChangeEvent(new Object(), ObjectChangeEvent.ObjectType.USER, ObjectChangeEvent.ActionType.CREATED,
+            new Timestamp(System.currentTimeMillis()), objectId)
+    }
+}
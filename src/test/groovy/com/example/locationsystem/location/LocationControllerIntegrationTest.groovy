@@ -1,5 +1,7 @@
 package com.example.locationsystem.location
 
+import com.example.locationsystem.auth.SessionStore
+import com.example.locationsystem.exception.ControllerExceptions
 import com.example.locationsystem.user.User
 import com.example.locationsystem.user.UserDao
 import com.example.locationsystem.user.UserService
@@ -18,6 +20,7 @@ import spock.lang.Shared
 import spock.lang.Specification
 
 import javax.servlet.http.Cookie
+import java.util.concurrent.CompletionException
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*
@@ -56,6 +59,9 @@ class LocationControllerIntegrationTest extends Specification {
     @Autowired
     JdbcTemplate jdbcTemplate
 
+    @Autowired
+    SessionStore sessionStore
+
     private static final String DELETE_LOCATION_BY_NAME = "DELETE FROM locations WHERE name = 'name';"
     private static final String DELETE_LOCATION_BY_NAME_2 = "DELETE FROM locations WHERE name = 'name2';"
     private static final String DELETE_USER_BY_EMAIL = "DELETE FROM users WHERE username = 'test@gmail.com';"
@@ -71,7 +77,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def mvcResult = mockMvc.perform(post("/location/add")
-                .cookie(new Cookie("user", savedUserId.toString()))
+                .cookie(sessionCookie(savedUserId))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(location)))
                 .andExpect(request().asyncStarted())
@@ -108,7 +114,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def result = mockMvc.perform(post("/location/add")
-                .cookie(new Cookie("user", savedUser.toString()))
+                .cookie(sessionCookie(savedUser))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(emptyFieldLocation)))
                 .andExpect(status().isBadRequest())
@@ -134,7 +140,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def result = mockMvc.perform(post("/location/add")
-                .cookie(new Cookie("user", savedUserId.toString()))
+                .cookie(sessionCookie(savedUserId))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(location)))
                 .andExpect(request().asyncStarted())
@@ -154,6 +160,57 @@ class LocationControllerIntegrationTest extends Specification {
             jdbcTemplate.update(DELETE_EVENT, savedLocation.getId())
     }
 
+    def "should import locations in bulk from csv"() {
+
+        given:
+            def savedUserId = userService.saveUser(user).join()
+            def existing = locationService.saveLocation(new Location(name: "name", address: "address"), savedUserId).join()
+
+        when:
+            def mvcResult = mockMvc.perform(post("/location/bulk")
+                .cookie(sessionCookie(savedUserId))
+                .contentType(LocationBulkReader.TEXT_CSV)
+                .content("name,address\nname2,address2\nname,address\nname2,address3\nname3,\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+
+            mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+
+        then:
+            def results = new JsonSlurper().parseText(mvcResult.response.contentAsString)
+            results*.status == ["CREATED", "DUPLICATE", "DUPLICATE", "INVALID"]
+            def added = locationService.findLocationByNameAndUserId("name2", savedUserId).join()
+            added.get().getId() == results[0].id
+            added.get().getAddress() == "address2"
+
+        cleanup:
+            jdbcTemplate.execute(DELETE_LOCATION_BY_NAME)
+            jdbcTemplate.execute(DELETE_LOCATION_BY_NAME_2)
+            jdbcTemplate.execute(DELETE_USER_BY_EMAIL)
+            jdbcTemplate.update(DELETE_EVENT, savedUserId)
+            jdbcTemplate.update(DELETE_EVENT, existing.getId())
+            jdbcTemplate.update(DELETE_EVENT, results[0].id)
+    }
+
+    def "should reject malformed bulk json"() {
+
+        given:
+            def savedUserId = userService.saveUser(user).join()
+
+        expect:
+            mockMvc.perform(post("/location/bulk")
+                .cookie(sessionCookie(savedUserId))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"name\": }]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("errorMessage", "Malformed request body at line 1"))
+
+        cleanup:
+            jdbcTemplate.execute(DELETE_USER_BY_EMAIL)
+            jdbcTemplate.update(DELETE_EVENT, savedUserId)
+    }
+
     def "should show my locations"() {
 
         given:
@@ -173,7 +230,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         expect:
             def mvcResult = mockMvc.perform(get("/location")
-                .cookie(new Cookie("user", savedUserId.toString())))
+                .cookie(sessionCookie(savedUserId)))
                 .andExpect(request().asyncStarted())
                 .andReturn()
 
@@ -199,6 +256,75 @@ class LocationControllerIntegrationTest extends Specification {
             jdbcTemplate.update(DELETE_EVENT, savedAccess.getId())
     }
 
+    def "should page my locations with cursor"() {
+
+        given:
+            def savedUserId = userService.saveUser(user).join()
+            def savedLocation = locationService.saveLocation(new Location(name: "name", address: "address"), savedUserId).join()
+            def savedLocation2 = locationService.saveLocation(new Location(name: "name2", address: "address"), savedUserId).join()
+
+        when:
+            def firstPage = mockMvc.perform(get("/location")
+                .param("limit", "1")
+                .cookie(sessionCookie(savedUserId)))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+            mockMvc.perform(asyncDispatch(firstPage))
+                .andExpect(status().isOk())
+                .andExpect(header().string(LocationController.NEXT_CURSOR_HEADER, savedLocation.getId().toString()))
+
+            def secondPage = mockMvc.perform(get("/location")
+                .param("limit", "1")
+                .param("afterId", savedLocation.getId().toString())
+                .cookie(sessionCookie(savedUserId)))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+            mockMvc.perform(asyncDispatch(secondPage))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(LocationController.NEXT_CURSOR_HEADER))
+
+        then:
+            new JsonSlurper().parseText(firstPage.response.contentAsString)*.name == ["name"]
+            new JsonSlurper().parseText(secondPage.response.contentAsString)*.name == ["name2"]
+
+        cleanup:
+            jdbcTemplate.execute(DELETE_LOCATION_BY_NAME)
+            jdbcTemplate.execute(DELETE_LOCATION_BY_NAME_2)
+            jdbcTemplate.execute(DELETE_USER_BY_EMAIL)
+            jdbcTemplate.update(DELETE_EVENT, savedUserId)
+            jdbcTemplate.update(DELETE_EVENT, savedLocation.getId())
+            jdbcTemplate.update(DELETE_EVENT, savedLocation2.getId())
+    }
+
+    def "should export my locations as ndjson"() {
+
+        given:
+            def savedUserId = userService.saveUser(user).join()
+            def savedLocation = locationService.saveLocation(new Location(name: "name", address: "address"), savedUserId).join()
+            def savedLocation2 = locationService.saveLocation(new Location(name: "name2", address: "address"), savedUserId).join()
+
+        when:
+            def mvcResult = mockMvc.perform(get("/location/export")
+                .cookie(sessionCookie(savedUserId)))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+            mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+
+        then:
+            def lines = mvcResult.response.contentAsString.readLines()
+            lines.collect { new JsonSlurper().parseText(it).name } as Set == ["name", "name2"] as Set
+
+        cleanup:
+            jdbcTemplate.execute(DELETE_LOCATION_BY_NAME)
+            jdbcTemplate.execute(DELETE_LOCATION_BY_NAME_2)
+            jdbcTemplate.execute(DELETE_USER_BY_EMAIL)
+            jdbcTemplate.update(DELETE_EVENT, savedUserId)
+            jdbcTemplate.update(DELETE_EVENT, savedLocation.getId())
+            jdbcTemplate.update(DELETE_EVENT, savedLocation2.getId())
+    }
+
     def "should share location successfully"() {
 
         given:
@@ -212,7 +338,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def mvcResult = mockMvc.perform(post("/location/share")
-                .cookie(new Cookie("user", savedUserId.toString()))
+                .cookie(sessionCookie(savedUserId))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(userAccess)))
                 .andExpect(request().asyncStarted())
@@ -253,7 +379,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def result = mockMvc.perform(post("/location/share")
-                .cookie(new Cookie("user", savedUserId.toString()))
+                .cookie(sessionCookie(savedUserId))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(userAccess)))
                 .andExpect(request().asyncStarted())
@@ -287,7 +413,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         expect:
             def mvcResult = mockMvc.perform(get("/location/{locationId}/", savedLocation.getId())
-                .cookie(new Cookie("user", savedOwnerId.toString())))
+                .cookie(sessionCookie(savedOwnerId)))
                 .andExpect(request().asyncStarted())
                 .andReturn()
 
@@ -322,7 +448,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def result = mockMvc.perform(get("/location/{locationId}/", savedLocation.getId())
-                .cookie(new Cookie("user", savedUser2Id.toString())))
+                .cookie(sessionCookie(savedUser2Id)))
                 .andExpect(request().asyncStarted())
                 .andReturn()
 
@@ -331,8 +457,14 @@ class LocationControllerIntegrationTest extends Specification {
                 .andExpect(header().string("errorMessage", "Location not found"))
 
         then:
-            List<Long> usersOnLoc = userService.findAllUsersOnLocation(savedLocation.getId(), savedUser2Id).join()
-            usersOnLoc.isEmpty()
+            noExceptionThrown()
+
+        when:
+            userService.findUsersOnLocation(savedLocation.getId(), savedUser2Id, null, 100).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationNotFoundException
 
         cleanup:
             jdbcTemplate.execute(DELETE_LOCATION_BY_NAME)
@@ -357,7 +489,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def mvcResult = mockMvc.perform(put("/location/change")
-                .cookie(new Cookie("user", savedOwnerId.toString()))
+                .cookie(sessionCookie(savedOwnerId))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(userAccess)))
                 .andExpect(request().asyncStarted())
@@ -393,7 +525,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def result = mockMvc.perform(put("/location/change")
-                .cookie(new Cookie("user", savedOwnerId.toString()))
+                .cookie(sessionCookie(savedOwnerId))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(new ObjectMapper().writeValueAsString(userAccess)))
                 .andExpect(request().asyncStarted())
@@ -425,7 +557,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def result = mockMvc.perform(delete("/location/delete/{name}/", savedLocation.getName())
-                .cookie(new Cookie("user", savedUserId.toString())))
+                .cookie(sessionCookie(savedUserId)))
                 .andExpect(request().asyncStarted())
                 .andReturn()
 
@@ -451,7 +583,7 @@ class LocationControllerIntegrationTest extends Specification {
 
         when:
             def result = mockMvc.perform(delete("/location/delete/{name}/", location.getName())
-                .cookie(new Cookie("user", savedOwnerId.toString())))
+                .cookie(sessionCookie(savedOwnerId)))
                 .andExpect(request().asyncStarted())
                 .andReturn()
 
@@ -466,6 +598,20 @@ class LocationControllerIntegrationTest extends Specification {
             jdbcTemplate.execute(DELETE_USER_BY_EMAIL)
             jdbcTemplate.update(DELETE_EVENT, savedOwnerId)
     }
+
+    def "should throw NotLoggedInException when session is unknown"() {
+
+        expect:
+            mockMvc.perform(get("/location")
+                .cookie(new Cookie(SessionStore.COOKIE_NAME, "unknown")))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string("errorMessage", "Not logged in"))
+    }
+
+    private Cookie sessionCookie(Long userId) {
+
+        new Cookie(SessionStore.COOKIE_NAME, sessionStore.createSession(userId))
+    }
 }
 
 
@@ -1,5 +1,6 @@
 package com.example.locationsystem.location
 
+import com.example.locationsystem.exception.ControllerExceptions
 import com.example.locationsystem.userAccess.UserAccess
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
@@ -7,6 +8,10 @@ import org.springframework.jdbc.core.BeanPropertyRowMapper
 import org.springframework.jdbc.core.JdbcTemplate
 import spock.lang.Specification
 
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.Executors
+
 @SpringBootTest
 class LocationDaoTest extends Specification {
 
@@ -35,16 +40,48 @@ class LocationDaoTest extends Specification {
         jdbcTemplate.execute("DELETE FROM users WHERE id = 300")
     }
 
-    def "should find all user locations"() {
+    def "should find owned and shared user locations ordered by id"() {
+
+        when:
+            def locations = locationDao.findUserLocations(100L, 0L, 10).join()
+
+        then:
+            locations*.getName() == ['home', 'gym', 'swimming pool']
+    }
+
+    def "should find page of user locations after id"() {
+
+        when:
+            def locations = locationDao.findUserLocations(100L, 100L, 1).join()
+
+        then:
+            locations*.getName() == ['gym']
+    }
+
+    def "should stream owned and shared user locations"() {
+
+        given:
+            def streamed = []
+
+        when:
+            def rows = locationDao.streamUserLocations(100L) { streamed << it }.join()
+
+        then:
+            rows == 3
+            streamed*.getName() as Set == ['home', 'gym', 'swimming pool'] as Set
+    }
+
+    def "should abort stream and release connection when consumer fails"() {
 
         when:
-            def locations = locationDao.findAllUserLocations(100L).join()
+            locationDao.streamUserLocations(100L) { throw new UncheckedIOException(new IOException("Broken pipe")) }.join()
 
         then:
-            locations.size() == 3
-            locations[0].getName() == 'swimming pool'
-            locations[1].getName() == 'home'
-            locations[2].getName() == 'gym'
+            def e = thrown(CompletionException)
+            e.getCause() instanceof UncheckedIOException
+
+        and:
+            locationDao.findLocationById(100L).join().getName() == 'home'
     }
 
     def "should find location in user locations"() {
@@ -84,6 +121,52 @@ class LocationDaoTest extends Specification {
             jdbcTemplate.execute("DELETE FROM locations WHERE name = 'title1'")
     }
 
+    def "should save locations in one batch"() {
+
+        given:
+            def locations = [new Location(name: "batch1", address: "add1", userId: 100L),
+                             new Location(name: "batch2", address: "add2", userId: 100L)]
+
+        when:
+            def saved = locationDao.saveLocations(locations).join()
+
+        then:
+            saved*.id.every { it != null }
+            saved[1].id > saved[0].id
+            locationDao.findLocationById(saved[0].id).join().getName() == 'batch1'
+
+        cleanup:
+            jdbcTemplate.execute("DELETE FROM locations WHERE name IN ('batch1', 'batch2')")
+    }
+
+    def "should leave out locations whose name is taken and save the rest"() {
+
+        given:
+            def locations = [new Location(name: "batch1", address: "add1", userId: 100L),
+                             new Location(name: "home", address: "add2", userId: 100L),
+                             new Location(name: "batch2", address: "add3", userId: 100L)]
+
+        when:
+            def saved = locationDao.saveLocations(locations).join()
+
+        then:
+            saved*.name == ["batch1", "batch2"]
+            saved*.id.every { it != null }
+            locationDao.findLocationById(saved[1].id).join().getName() == 'batch2'
+
+        cleanup:
+            jdbcTemplate.execute("DELETE FROM locations WHERE name IN ('batch1', 'batch2')")
+    }
+
+    def "should find only the names user already has"() {
+
+        when:
+            def names = locationDao.findLocationNamesByUserId(100L, ["home", "swimming pool", "new"]).join()
+
+        then:
+            names == ["home"] as Set
+    }
+
     def "should delete location"() {
 
         given:
@@ -91,15 +174,63 @@ class LocationDaoTest extends Specification {
             jdbcTemplate.execute("INSERT INTO accesses(id,title,location_id,user_id) VALUES(500,'ADMIN',500,200)")
 
         when:
-            locationDao.deleteLocation('name1', 100L).join()
+            def deletedId = locationDao.deleteLocation('name1', 100L).join()
 
         then:
+            deletedId == 500L
             def deletedAccess = jdbcTemplate.query("SELECT * FROM accesses WHERE location_id = ?", BeanPropertyRowMapper.newInstance(UserAccess.class), 500L)
             deletedAccess.isEmpty()
             def deletedLocation = jdbcTemplate.query("SELECT * FROM locations WHERE id = ? AND user_id = ?", BeanPropertyRowMapper.newInstance(Location.class), 500L, 100L)
             deletedLocation.isEmpty()
     }
 
+    def "should throw LocationNotFoundException when deleting a missing location"() {
+
+        when:
+            locationDao.deleteLocation('missing', 100L).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationNotFoundException
+    }
+
+    def "should throw LocationNotFoundException when deleting a location already deleted"() {
+
+        given:
+            jdbcTemplate.execute("INSERT INTO locations(id,name,address,user_id) VALUES(500,'name1','add1',100)")
+            locationDao.deleteLocation('name1', 100L).join()
+
+        when:
+            locationDao.deleteLocation('name1', 100L).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationNotFoundException
+    }
+
+    def "should let exactly one of concurrent saves with the same name succeed"() {
+
+        given:
+            def pool = Executors.newFixedThreadPool(8)
+
+        when:
+            def futures = (1..8).collect {
+                CompletableFuture.supplyAsync({
+                    def location = new Location(name: 'race', address: 'add', userId: 100L)
+                    locationDao.saveLocation(location).handle({ saved, e -> e == null ? saved : e instanceof CompletionException ? e.getCause() : e }).join()
+                }, pool)
+            }
+            def results = futures*.join()
+
+        then:
+            results.count { it instanceof Location } == 1
+            results.count { it instanceof ControllerExceptions.AlreadyExistsException } == 7
+
+        cleanup:
+            pool.shutdown()
+            jdbcTemplate.execute("DELETE FROM locations WHERE name = 'race'")
+    }
+
     def "should find locations not shared to user"() {
 
         when:
@@ -0,0 +1,36 @@
+package com.example.locationsystem.location
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.util.unit.DataSize
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CompletableFuture
+import java.util.function.Consumer
+
+class LocationExporterTest extends Specification {
+
+    LocationService locationService = Mock(LocationService)
+    ObjectMapper objectMapper = new ObjectMapper()
+    LocationExporter exporter = new LocationExporter(locationService, objectMapper, DataSize.ofKilobytes(1))
+
+    def "should write one object per line with nothing between lines"() {
+
+        given:
+            def home = new Location(id: 1L, name: "home", address: "a1", userId: 7L)
+            def gym = new Location(id: 2L, name: "gym", address: "a2", userId: 7L, latitude: 50.1, longitude: 19.9)
+            locationService.exportUserLocations(7L, _) >> { Long userId, Consumer<Location> consumer ->
+                consumer.accept(home)
+                consumer.accept(gym)
+                CompletableFuture.completedFuture(2L)
+            }
+            def out = new ByteArrayOutputStream()
+
+        when:
+            exporter.export(7L, out)
+
+        then:
+            out.toByteArray() == (objectMapper.writeValueAsString(home) + "\n"
+                + objectMapper.writeValueAsString(gym) + "\n").getBytes(StandardCharsets.UTF_8)
+    }
+}
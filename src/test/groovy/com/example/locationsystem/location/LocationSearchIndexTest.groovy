@@ -0,0 +1,112 @@
+package com.example.locationsystem.location
+
+import com.example.locationsystem.event.ObjectChangeEvent
+import spock.lang.Specification
+
+import java.sql.Timestamp
+
+class LocationSearchIndexTest extends Specification {
+
+    LocationSearchIndex index = new LocationSearchIndex()
+
+    def setup() {
+
+        index.rebuild {
+            index.put(1L, "Home", "Khreshchatyk St, 22")
+            index.put(2L, "Coffee  House", "Podil")
+            index.put(3L, "Office", "Prorizna St, 2")
+            index.put(4L, "Lviv opera", "Svobody Ave, 28")
+        }
+    }
+
+    def "should not be ready before first rebuild"() {
+
+        expect:
+            !new LocationSearchIndex().isReady()
+            index.isReady()
+    }
+
+    def "should find substrings of names and addresses ignoring case and spacing"() {
+
+        expect:
+            index.search(query, { true }, 10) == expected
+
+        where:
+            query           | expected
+            "hom"           | [1L]
+            "OFFICE"        | [3L]
+            "st, 2"         | [1L, 3L]
+            "coffee house"  | [2L]
+            "ee h"          | [2L]
+            "house podil"   | []
+            "hreshchatyk s" | [1L]
+            "missing"       | []
+    }
+
+    def "should find short queries only at the start of a word"() {
+
+        expect:
+            index.search(query, { true }, 10) == expected
+
+        where:
+            query | expected
+            "h"   | [1L, 2L]
+            "op"  | [4L]
+            "st"  | [1L, 3L]
+            "ff"  | []
+    }
+
+    def "should not match trigrams found apart"() {
+
+        given:
+            index.put(5L, "abcxbcd", "")
+
+        expect:
+            index.search("abcd", { true }, 10) == []
+            index.estimateMatches("abcd") == 1
+    }
+
+    def "should apply filter and limit"() {
+
+        expect:
+            index.search("st", { it != 1L }, 10) == [3L]
+            index.search("o", { true }, 1) == [3L]
+    }
+
+    def "should check only the given locations"() {
+
+        expect:
+            index.searchAmong("st", [3L, 4L, 3L, 1L] as long[], 10) == [1L, 3L]
+            index.searchAmong("st", [3L, 1L] as long[], 1) == [1L]
+            index.searchAmong("st", [99L] as long[], 10) == []
+    }
+
+    def "should add, replace and remove locations on location events"() {
+
+        when:
+            index.put(1L, "Gym", "Khreshchatyk St, 22")
+            index.onObjectChange(event(ObjectChangeEvent.ActionType.CREATED, 20L,
+                new Location(name: "Second home", address: "Obolon", userId: 1L)))
+            index.onObjectChange(event(ObjectChangeEvent.ActionType.DELETED, 2L, null))
+
+        then:
+            index.search("hom", { true }, 10) == [20L]
+            index.search("house", { true }, 10) == []
+            index.size() == 4
+    }
+
+    def "should match streamed locations by the same rules"() {
+
+        expect:
+            LocationSearchIndex.matches("st, 2", "Home", "Khreshchatyk St, 22")
+            LocationSearchIndex.matches("h", "Coffee House", null)
+            !LocationSearchIndex.matches("ff", "Coffee House", null)
+            !LocationSearchIndex.matches("house podil", "Coffee House", "Podil")
+    }
+
+    private ObjectChangeEvent event(ObjectChangeEvent.ActionType actionType, Long id, Location location) {
+
+        new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.LOCATION, actionType,
+            new Timestamp(System.currentTimeMillis()), id, location)
+    }
+}
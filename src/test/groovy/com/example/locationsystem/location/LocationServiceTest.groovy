@@ -1,20 +1,31 @@
 package com.example.locationsystem.location
 
+import com.example.locationsystem.acl.AccessControlIndex
 import com.example.locationsystem.exception.ControllerExceptions
+import com.example.locationsystem.replica.ReplicaRouter
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.context.ApplicationEventPublisher
 import spock.lang.Shared
 import spock.lang.Specification
 
+import java.time.Duration
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
+import java.util.function.Consumer
+
+import static com.example.locationsystem.location.BulkLocationResult.Status.*
 
 class LocationServiceTest extends Specification {
 
     @Shared
-    def loc = new Location(name: "name1", address: "add1", userId: 1L)
+    def loc = new Location(id: 1L, name: "name1", address: "add1", userId: 1L)
 
     LocationDao locationDao
     LocationService locationService
     ApplicationEventPublisher eventPublisher
+    AccessControlIndex accessControlIndex
+    NearbyLocationIndex nearbyLocationIndex
+    LocationSearchIndex locationSearchIndex
 
     List<Location> locs
 
@@ -22,8 +33,15 @@ class LocationServiceTest extends Specification {
 
         locationDao = Mock(LocationDao)
         eventPublisher = Mock(ApplicationEventPublisher)
+        accessControlIndex = new AccessControlIndex()
+        nearbyLocationIndex = new NearbyLocationIndex(5)
+        locationSearchIndex = new LocationSearchIndex()
 
-        locationService = new LocationServiceImpl(locationDao, eventPublisher)
+        locationService = new LocationServiceImpl(locationDao, eventPublisher,
+            new VisibleLocationsCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry(),
+                new ReplicaRouter(Duration.ofSeconds(5), 1000)),
+            accessControlIndex, nearbyLocationIndex, locationSearchIndex, { Runnable task -> task.run() } as Executor,
+            2, 3, 50_000)
 
         locs = new ArrayList()
         locs << loc
@@ -48,6 +66,62 @@ class LocationServiceTest extends Specification {
             1 * eventPublisher.publishEvent(_) >> null
     }
 
+    def "saveLocations should insert new names in batches and report every row"() {
+
+        given:
+            def rows = [
+                new Location(name: "home", address: "a1"),
+                new Location(name: "gym", address: "a2"),
+                new Location(name: "HOME", address: "a3"),
+                null,
+                new Location(name: "park", address: ""),
+                new Location(name: "work", address: "a4"),
+                new Location(name: "shop", address: "a5")
+            ]
+
+        when:
+            def results = locationService.saveLocations(rows.iterator(), 1L).join()
+
+        then:
+            1 * locationDao.findLocationNamesByUserId(1L, ["home", "gym"]) >> CompletableFuture.completedFuture(["gym"] as Set)
+            1 * locationDao.saveLocations({ it*.name == ["home"] }) >> { List<Location> locations ->
+                locations[0].id = 10L
+                CompletableFuture.completedFuture(locations)
+            }
+            1 * locationDao.findLocationNamesByUserId(1L, ["work", "shop"]) >> CompletableFuture.completedFuture([] as Set)
+            1 * locationDao.saveLocations({ it*.name == ["work", "shop"] && it*.userId == [1L, 1L] }) >> { List<Location> locations ->
+                locations[0].id = 11L
+                locations[1].id = 12L
+                CompletableFuture.completedFuture(locations)
+            }
+            3 * eventPublisher.publishEvent(_) >> null
+
+        and:
+            results*.row == [1, 2, 3, 4, 5, 6, 7]
+            results*.status == [CREATED, DUPLICATE, DUPLICATE, INVALID, INVALID, CREATED, CREATED]
+            results*.id == [10L, null, null, null, null, 11L, 12L]
+    }
+
+    def "saveLocations should report names taken meanwhile as duplicates"() {
+
+        given:
+            def rows = [new Location(name: "home", address: "a1"), new Location(name: "gym", address: "a2")]
+
+        when:
+            def results = locationService.saveLocations(rows.iterator(), 1L).join()
+
+        then:
+            1 * locationDao.findLocationNamesByUserId(1L, ["home", "gym"]) >> CompletableFuture.completedFuture([] as Set)
+            1 * locationDao.saveLocations({ it*.name == ["home", "gym"] }) >> { List<Location> locations ->
+                locations[1].id = 11L
+                CompletableFuture.completedFuture([locations[1]])
+            }
+
+        and:
+            results*.status == [DUPLICATE, CREATED]
+            results*.id == [null, 11L]
+    }
+
     def "findLocationByNameAndUserId should return location"() {
 
         given:
@@ -61,16 +135,46 @@ class LocationServiceTest extends Specification {
             result.get().getName() == loc.getName()
     }
 
-    def "findAllUserLocations should return locations"() {
+    def "findUserLocations should return first page"() {
 
         given:
-            locationDao.findAllUserLocations(1) >> CompletableFuture.completedFuture(locs)
+            locationDao.findUserLocations(1, 0L, 4) >> CompletableFuture.completedFuture(locs)
 
         when:
-            def result = locationService.findAllUserLocations(1).join()
+            def result = locationService.findUserLocations(1, null, 10).join()
 
         then:
-            result == locs
+            result.getItems() == locs
+            result.getNextCursor() == null
+    }
+
+    def "findUserLocations should query database once for repeated first pages of any size"() {
+
+        given:
+            def rows = (1..4).collect { new Location(id: it, name: "name" + it, address: "add", userId: 1L) }
+
+        when:
+            locationService.findUserLocations(1, null, 3).join()
+            def result = locationService.findUserLocations(1, null, 2).join()
+
+        then:
+            1 * locationDao.findUserLocations(1, 0L, 4) >> CompletableFuture.completedFuture(rows)
+            result.getItems()*.id == [1L, 2L]
+            result.getNextCursor() == 2L
+    }
+
+    def "findUserLocations should read later pages from database"() {
+
+        given:
+            def rows = (3..5).collect { new Location(id: it, name: "name" + it, address: "add", userId: 1L) }
+
+        when:
+            def result = locationService.findUserLocations(1, 2L, 2).join()
+
+        then:
+            1 * locationDao.findUserLocations(1, 2L, 3) >> CompletableFuture.completedFuture(rows)
+            result.getItems()*.id == [3L, 4L]
+            result.getNextCursor() == 4L
     }
 
     def "findLocationInUserLocations should return location"() {
@@ -91,9 +195,9 @@ class LocationServiceTest extends Specification {
             locationService.deleteLocation("name1", 1).join()
 
         then:
-            1 * locationDao.findLocationByNameAndUserId("name1", 1) >> CompletableFuture.completedFuture(Optional.of(loc))
-            1 * locationDao.deleteLocation("name1", 1) >> CompletableFuture.completedFuture(null)
-            1 * eventPublisher.publishEvent(_) >> null
+            0 * locationDao.findLocationByNameAndUserId(_, _)
+            1 * locationDao.deleteLocation("name1", 1) >> CompletableFuture.completedFuture(loc.getId())
+            1 * eventPublisher.publishEvent({ it.objectId == loc.getId() && it.entity.location.userId == 1L }) >> null
     }
 
     def "should throw LocationNotFoundException when location not found"() {
@@ -102,8 +206,11 @@ class LocationServiceTest extends Specification {
             CompletableFuture<Void> result = locationService.deleteLocation("name", 100)
 
         then:
-            1 * locationDao.findLocationByNameAndUserId("name", 100) >> CompletableFuture.completedFuture(Optional.empty())
-            0 * locationDao.deleteLocation("name", 100)
+            1 * locationDao.deleteLocation("name", 100) >> {
+                CompletableFuture<Long> future = new CompletableFuture<>()
+                future.completeExceptionally(new ControllerExceptions.LocationNotFoundException("Location not found"))
+                future
+            }
             0 * eventPublisher.publishEvent(_)
 
         and:
@@ -138,4 +245,122 @@ class LocationServiceTest extends Specification {
         then:
             result == loc
     }
+
+    def "findNearbyLocations should read only visible locations in radius from indexes"() {
+
+        given:
+            def near = new Location(id: 10L, name: "near", address: "a", userId: 1L, latitude: 50.45, longitude: 30.52)
+            accessControlIndex.rebuild {
+                [1L, 2L].each { accessControlIndex.addUser(it) }
+                accessControlIndex.addLocation(10L, 1L)
+                accessControlIndex.addLocation(11L, 2L)
+                accessControlIndex.addLocation(12L, 1L)
+            }
+            nearbyLocationIndex.rebuild {
+                nearbyLocationIndex.put(10L, 50.45, 30.52)
+                nearbyLocationIndex.put(11L, 50.45, 30.52)
+                nearbyLocationIndex.put(12L, 49.84, 24.03)
+            }
+
+        when:
+            def result = locationService.findNearbyLocations(1L, 50.4501, 30.5234, 5_000, 10).join()
+
+        then:
+            result == [near]
+            1 * locationDao.findLocationsByIds([10L]) >> CompletableFuture.completedFuture([near])
+            0 * locationDao.streamUserLocations(_, _)
+    }
+
+    def "findNearbyLocations should measure streamed locations until indexes are loaded"() {
+
+        given:
+            def near = new Location(id: 10L, name: "near", address: "a", userId: 1L, latitude: 50.45, longitude: 30.52)
+            def far = new Location(id: 12L, name: "far", address: "b", userId: 1L, latitude: 49.84, longitude: 24.03)
+            def unplaced = new Location(id: 13L, name: "unplaced", address: "c", userId: 1L)
+
+        when:
+            def result = locationService.findNearbyLocations(1L, 50.4501, 30.5234, 5_000, 10).join()
+
+        then:
+            result == [near]
+            1 * locationDao.streamUserLocations(1L, _) >> { Long userId, Consumer<Location> consumer ->
+                [far, near, unplaced].each { consumer.accept(it) }
+                CompletableFuture.completedFuture(3L)
+            }
+            0 * locationDao.findLocationsByIds(_)
+    }
+
+    def "findNearbyLocations should reject radius above the limit and invalid coordinates"() {
+
+        when:
+            locationService.findNearbyLocations(1L, latitude, longitude, radius, 10)
+
+        then:
+            thrown(ControllerExceptions.InvalidNearbyQueryException)
+
+        where:
+            latitude | longitude  | radius
+            50.0     | 30.0       | 50_001
+            50.0     | 30.0       | 0
+            91.0     | 30.0       | 1_000
+            50.0     | Double.NaN | 1_000
+    }
+
+    def "searchLocations should read only visible matching locations from indexes"() {
+
+        given:
+            def home = new Location(id: 10L, name: "Home", address: "Khreshchatyk 1", userId: 1L)
+            def shared = new Location(id: 12L, name: "Office", address: "Homenka 5", userId: 2L)
+            accessControlIndex.rebuild {
+                [1L, 2L].each { accessControlIndex.addUser(it) }
+                accessControlIndex.addLocation(10L, 1L)
+                accessControlIndex.addLocation(11L, 2L)
+                accessControlIndex.addLocation(12L, 2L)
+                accessControlIndex.putAccess(100L, 1L, 12L, "READ")
+            }
+            locationSearchIndex.rebuild {
+                locationSearchIndex.put(10L, home.name, home.address)
+                locationSearchIndex.put(11L, "Home of user 2", "Lviv")
+                locationSearchIndex.put(12L, shared.name, shared.address)
+            }
+
+        when:
+            def result = locationService.searchLocations(1L, query, 10).join()
+
+        then:
+            result == [home, shared]
+            1 * locationDao.findLocationsByIds([10L, 12L]) >> CompletableFuture.completedFuture([shared, home])
+            0 * locationDao.streamUserLocations(_, _)
+
+        where:
+            query << ["hom", "  HOM "]
+    }
+
+    def "searchLocations should match streamed locations until indexes are loaded"() {
+
+        given:
+            def office = new Location(id: 12L, name: "Office", address: "Main street", userId: 1L)
+            def home = new Location(id: 10L, name: "Home", address: "Second street", userId: 1L)
+            def park = new Location(id: 13L, name: "Park", address: "Lake road", userId: 1L)
+
+        when:
+            def result = locationService.searchLocations(1L, "street", 10).join()
+
+        then:
+            result == [home, office]
+            1 * locationDao.streamUserLocations(1L, _) >> { Long userId, Consumer<Location> consumer ->
+                [office, home, park].each { consumer.accept(it) }
+                CompletableFuture.completedFuture(3L)
+            }
+            0 * locationDao.findLocationsByIds(_)
+    }
+
+    def "searchLocations should reject blank query"() {
+
+        when:
+            locationService.searchLocations(1L, " ", 10)
+
+        then:
+            thrown(ControllerExceptions.InvalidSearchQueryException)
+    }
 }
@@ -0,0 +1,129 @@
+package com.example.locationsystem.location
+
+import com.example.locationsystem.event.ObjectChangeEvent
+import spock.lang.Specification
+
+import java.sql.Timestamp
+
+class NearbyLocationIndexTest extends Specification {
+
+    NearbyLocationIndex index = new NearbyLocationIndex(5)
+
+    def setup() {
+
+        index.rebuild {
+            index.put(1L, 50.4501, 30.5234)
+            index.put(2L, 50.4547, 30.5238)
+            index.put(3L, 50.4400, 30.5600)
+            index.put(4L, 49.8397, 24.0297)
+        }
+    }
+
+    def "should not be ready before first rebuild"() {
+
+        expect:
+            !new NearbyLocationIndex(5).isReady()
+            index.isReady()
+    }
+
+    def "should bucket points by their geohash"() {
+
+        expect:
+            new NearbyLocationIndex(precision).geohash(57.64911, 10.40744) == geohash
+
+        where:
+            precision | geohash
+            1         | "u"
+            5         | "u4pru"
+            11        | "u4pruydqqvj"
+    }
+
+    def "should find points within radius nearest first"() {
+
+        expect:
+            index.findWithin(50.4501, 30.5234, radius, { true }, 10) == expected
+
+        where:
+            radius  | expected
+            100     | [1L]
+            1_000   | [1L, 2L]
+            5_000   | [1L, 2L, 3L]
+            500_000 | [1L, 2L, 3L, 4L]
+    }
+
+    def "should apply filter and limit"() {
+
+        expect:
+            index.findWithin(50.4501, 30.5234, 5_000, { it != 2L }, 10) == [1L, 3L]
+            index.findWithin(50.4501, 30.5234, 5_000, { true }, 2) == [1L, 2L]
+    }
+
+    def "should find points across the antimeridian and near the poles"() {
+
+        given:
+            index.put(10L, 0.0, 179.99)
+            index.put(11L, 0.0, -179.99)
+            index.put(12L, 89.99, 0.0)
+            index.put(13L, 89.99, 180.0)
+
+        expect:
+            index.findWithin(0.0, 179.995, 5_000, { true }, 10) as Set == [10L, 11L] as Set
+            index.findWithin(90.0, 0.0, 5_000, { true }, 10) as Set == [12L, 13L] as Set
+    }
+
+    def "should move, add and remove points on location events"() {
+
+        when:
+            index.put(1L, 49.8397, 24.0297)
+            index.onObjectChange(event(ObjectChangeEvent.ActionType.CREATED, 20L,
+                new Location(name: "new", address: "a", userId: 1L, latitude: 50.4502, longitude: 30.5235)))
+            index.onObjectChange(event(ObjectChangeEvent.ActionType.CREATED, 21L,
+                new Location(name: "unplaced", address: "b", userId: 1L)))
+            index.onObjectChange(event(ObjectChangeEvent.ActionType.DELETED, 2L, null))
+
+        then:
+            index.findWithin(50.4501, 30.5234, 5_000, { true }, 10) == [20L, 3L]
+            index.size() == 4
+    }
+
+    def "should apply changes made during a rebuild on top of it without waiting for it"() {
+
+        given:
+            def rebuild = index.startRebuild()
+            rebuild.add(new Location(id: 1L, latitude: 50.4501, longitude: 30.5234))
+            rebuild.add(new Location(id: 2L, latitude: 50.4547, longitude: 30.5238))
+            rebuild.add(new Location(id: 5L, name: "unplaced"))
+
+        when:
+            def listener = Thread.start {
+                index.put(3L, 50.4400, 30.5600)
+                index.remove(2L)
+            }
+            listener.join(1_000)
+
+        then:
+            !listener.alive
+            !index.isReady()
+
+        when:
+            rebuild.finish()
+
+        then:
+            index.isReady()
+            index.findWithin(50.4501, 30.5234, 5_000, { true }, 10) == [1L, 3L]
+            index.size() == 2
+    }
+
+    def "should measure great-circle distance"() {
+
+        expect:
+            Math.abs(NearbyLocationIndex.distanceMeters(50.4501, 30.5234, 49.8397, 24.0297) - 467_500) < 1_000
+            NearbyLocationIndex.distanceMeters(10.0, 20.0, 10.0, 20.0) == 0
+    }
+
+    private ObjectChangeEvent event(ObjectChangeEvent.ActionType actionType, Long id, Location location) {
+
+        new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.LOCATION, actionType,
+            new Timestamp(System.currentTimeMillis()), id, location)
+    }
+}
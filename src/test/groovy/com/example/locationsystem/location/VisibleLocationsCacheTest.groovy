@@ -0,0 +1,133 @@
+package com.example.locationsystem.location
+
+import com.example.locationsystem.event.ChangedEntity
+import com.example.locationsystem.event.ObjectChangeEvent
+import com.example.locationsystem.replica.ReplicaRouter
+import com.example.locationsystem.userAccess.UserAccess
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.sql.Timestamp
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+
+import static com.example.locationsystem.event.ObjectChangeEvent.ActionType.*
+import static com.example.locationsystem.event.ObjectChangeEvent.ObjectType.*
+
+class VisibleLocationsCacheTest extends Specification {
+
+    def meterRegistry = new SimpleMeterRegistry()
+    def cache = new VisibleLocationsCache(100, Duration.ofMinutes(5), meterRegistry,
+        new ReplicaRouter(Duration.ofSeconds(5), 1000))
+
+    def ownerLocation = new Location(id: 1L, name: "name1", address: "add1", userId: 1L)
+
+    def loads = 0
+
+    def "should load once and count hits and misses"() {
+
+        when:
+            cache.get(1L, this.&load).join()
+            cache.get(1L, this.&load).join()
+
+        then:
+            loads == 1
+            meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count() == 1
+            meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count() == 1
+    }
+
+    def "should invalidate owner when location is created"() {
+
+        given:
+            cache.get(1L, this.&load).join()
+
+        when:
+            cache.onObjectChange(event(LOCATION, CREATED, 5L, new Location(id: 5L, userId: 1L)))
+            cache.get(1L, this.&load).join()
+
+        then:
+            loads == 2
+    }
+
+    def "should invalidate only the users that saw deleted location"() {
+
+        given:
+            cache.get(1L, this.&load).join()
+            cache.get(2L, this.&load).join()
+            cache.get(3L, this.&load).join()
+
+        when:
+            cache.onObjectChange(event(LOCATION, DELETED, ownerLocation.getId(),
+                new DeletedLocation(ownerLocation, [2L, 1L] as long[])))
+            cache.get(1L, this.&load).join()
+            cache.get(2L, this.&load).join()
+            cache.get(3L, this.&load).join()
+
+        then:
+            loads == 5
+    }
+
+    def "should invalidate every user when deleted location does not say who saw it"() {
+
+        given:
+            cache.get(1L, this.&load).join()
+            cache.get(3L, this.&load).join()
+
+        when:
+            cache.onObjectChange(event(LOCATION, DELETED, ownerLocation.getId(),
+                new DeletedLocation(ownerLocation, null)))
+            cache.get(1L, this.&load).join()
+            cache.get(3L, this.&load).join()
+
+        then:
+            loads == 4
+    }
+
+    def "should invalidate user when access is granted or changed"() {
+
+        given:
+            cache.get(2L, this.&load).join()
+
+        when:
+            cache.onObjectChange(event(USER_ACCESS, action, 10L,
+                new UserAccess(id: 10L, title: "READ", locationId: 1L, userId: 2L)))
+            cache.get(2L, this.&load).join()
+
+        then:
+            loads == 2
+
+        where:
+            action << [CREATED, UPDATED]
+    }
+
+    def "should keep entries of unrelated users"() {
+
+        given:
+            cache.get(1L, this.&load).join()
+
+        when:
+            cache.onObjectChange(event(USER_ACCESS, CREATED, 10L,
+                new UserAccess(id: 10L, title: "READ", locationId: 2L, userId: 4L)))
+            cache.get(1L, this.&load).join()
+
+        then:
+            loads == 1
+    }
+
+    private CompletableFuture<List<Location>> load(Long userId) {
+
+        loads++
+        CompletableFuture.completedFuture([ownerLocation])
+    }
+
+    private static ObjectChangeEvent event(
+        ObjectChangeEvent.ObjectType objectType,
+        ObjectChangeEvent.ActionType actionType,
+        Long objectId,
+        ChangedEntity entity
+    ) {
+
+        new ObjectChangeEvent(new Object(), objectType, actionType, new Timestamp(System.currentTimeMillis()),
+            objectId, entity)
+    }
+}
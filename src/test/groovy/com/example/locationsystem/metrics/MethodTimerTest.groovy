@@ -0,0 +1,72 @@
+package com.example.locationsystem.metrics
+
+import com.example.locationsystem.exception.ControllerExceptions
+import com.example.locationsystem.location.Location
+import com.example.locationsystem.location.LocationDao
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+
+class MethodTimerTest extends Specification {
+
+    LocationDao locationDao = Mock(LocationDao)
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    LocationDao timed = MethodTimer.timed(LocationDao, locationDao, "dao.calls", meterRegistry)
+
+    def location = new Location(id: 10L, name: "name", address: "address", userId: 1L)
+
+    def "should time async call until its future completes"() {
+
+        given:
+            def future = new CompletableFuture<Location>()
+            locationDao.findLocationById(10L) >> future
+
+        when:
+            def result = timed.findLocationById(10L)
+
+        then:
+            result.is(future)
+            meterRegistry.find("dao.calls").timer() == null
+
+        when:
+            future.complete(location)
+
+        then:
+            def timer = meterRegistry.get("dao.calls")
+                .tags("class", "LocationDao", "method", "findLocationById", "exception", "none")
+                .timer()
+            timer.count() == 1
+    }
+
+    def "should tag failed future with the cause of the failure"() {
+
+        given:
+            locationDao.findLocationById(10L) >> CompletableFuture.supplyAsync {
+                throw new ControllerExceptions.LocationNotFoundException("Location not found")
+            }
+
+        when:
+            timed.findLocationById(10L).join()
+
+        then:
+            thrown(CompletionException)
+            meterRegistry.get("dao.calls").tags("method", "findLocationById", "exception", "LocationNotFoundException")
+                .timer().count() == 1
+    }
+
+    def "should time call that throws and rethrow its exception"() {
+
+        given:
+            locationDao.findLocationsByIds(_) >> { throw new IllegalStateException("closed") }
+
+        when:
+            timed.findLocationsByIds([10L])
+
+        then:
+            thrown(IllegalStateException)
+            meterRegistry.get("dao.calls").tags("method", "findLocationsByIds", "exception", "IllegalStateException")
+                .timer().count() == 1
+    }
+}
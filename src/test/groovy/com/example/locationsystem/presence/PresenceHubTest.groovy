@@ -0,0 +1,168 @@
+package com.example.locationsystem.presence
+
+import com.example.locationsystem.acl.AccessControlIndex
+import com.example.locationsystem.event.ObjectChangeEvent
+import com.example.locationsystem.exception.ControllerExceptions
+import com.example.locationsystem.userAccess.UserAccess
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.MvcResult
+import org.springframework.test.web.servlet.setup.MockMvcBuilders
+import org.springframework.web.bind.annotation.GetMapping
+import org.springframework.web.bind.annotation.PathVariable
+import org.springframework.web.bind.annotation.RestController
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.sql.Timestamp
+import java.time.Duration
+import java.util.concurrent.RejectedExecutionException
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request
+
+class PresenceHubTest extends Specification {
+
+    AccessControlIndex accessControlIndex = new AccessControlIndex()
+    PresenceHub hub = new PresenceHub(accessControlIndex, new SimpleMeterRegistry(), Duration.ofMillis(50),
+        Duration.ofMinutes(1), Duration.ofMinutes(1), 10, 1000, 2, 8, Duration.ofSeconds(10))
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new PresenceEndpoint(hub: hub)).build()
+    PollingConditions conditions = new PollingConditions(timeout: 2)
+
+    def setup() {
+
+        accessControlIndex.rebuild {
+            (1L..5L).each { accessControlIndex.addUser(it) }
+            accessControlIndex.addLocation(10L, 1L)
+            accessControlIndex.putAccess(100L, 2L, 10L, "READ")
+        }
+    }
+
+    def cleanup() {
+
+        hub.shutdown()
+    }
+
+    def "should send snapshot and then one delta for a burst of shares"() {
+
+        when:
+            def result = subscribe(1L, 10L)
+
+        then:
+            conditions.eventually {
+                assert events(result) == ["snapshot:{\"userIds\":[2]}"]
+            }
+
+        when:
+            share(3L, 10L)
+            share(4L, 10L)
+
+        then:
+            conditions.eventually {
+                assert events(result).size() == 2
+            }
+            events(result)[1] == "delta:{\"joined\":[3,4],\"left\":[]}" ||
+                events(result)[1] == "delta:{\"joined\":[4,3],\"left\":[]}"
+    }
+
+    def "should tell shared users that a deleted user left and leave out themselves"() {
+
+        given:
+            def result = subscribe(2L, 10L)
+            share(3L, 10L)
+            conditions.eventually {
+                assert events(result).size() == 2
+            }
+
+        when:
+            accessControlIndex.removeUser(3L)
+            hub.onObjectChange(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER,
+                ObjectChangeEvent.ActionType.DELETED, new Timestamp(System.currentTimeMillis()), 3L))
+
+        then:
+            conditions.eventually {
+                assert events(result) == ["snapshot:{\"userIds\":[]}", "delta:{\"joined\":[3],\"left\":[]}",
+                                          "delta:{\"joined\":[],\"left\":[3]}"]
+            }
+    }
+
+    def "should close subscriptions of a deleted location"() {
+
+        given:
+            def result = subscribe(1L, 10L)
+
+        when:
+            hub.onObjectChange(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.LOCATION,
+                ObjectChangeEvent.ActionType.DELETED, new Timestamp(System.currentTimeMillis()), 10L))
+
+        then:
+            conditions.eventually {
+                assert events(result).last() == "deleted:10"
+            }
+    }
+
+    def "should refuse users who can not see the location"() {
+
+        when:
+            hub.subscribe(5L, 10L)
+
+        then:
+            thrown(ControllerExceptions.LocationNotFoundException)
+    }
+
+    def "should refuse subscriptions until the access control index is loaded"() {
+
+        given:
+            def notLoaded = new PresenceHub(new AccessControlIndex(), new SimpleMeterRegistry(), Duration.ofMillis(50),
+                Duration.ofMinutes(1), Duration.ofMinutes(1), 10, 1000, 2, 8, Duration.ofSeconds(10))
+
+        when:
+            notLoaded.subscribe(1L, 10L)
+
+        then:
+            thrown(RejectedExecutionException)
+
+        cleanup:
+            notLoaded.shutdown()
+    }
+
+    private MvcResult subscribe(long userId, long locationId) {
+
+        mockMvc.perform(get("/presence/{userId}/{locationId}", userId, locationId))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+    }
+
+    private void share(long userId, long locationId) {
+
+        def userAccess = new UserAccess("READ", userId, locationId)
+        userAccess.id = userId * 100
+        accessControlIndex.putAccess(userAccess.id, userId, locationId, "READ")
+        hub.onObjectChange(new ObjectChangeEvent(this, ObjectChangeEvent.ObjectType.USER_ACCESS,
+            ObjectChangeEvent.ActionType.CREATED, new Timestamp(System.currentTimeMillis()), userAccess.id, userAccess))
+    }
+
+    /**
+     * The events received so far as {@code name:data}.
+     */
+    private static List<String> events(MvcResult result) {
+
+        result.response.contentAsString.split("\n\n").findAll { it.startsWith("event:") }.collect { event ->
+            def lines = event.readLines()
+            lines[0].substring("event:".length()) + ":" + lines[1].substring("data:".length())
+        }
+    }
+
+    @RestController
+    static class PresenceEndpoint {
+
+        PresenceHub hub
+
+        @GetMapping("/presence/{userId}/{locationId}")
+        SseEmitter events(@PathVariable Long userId, @PathVariable Long locationId) {
+
+            hub.subscribe(userId, locationId)
+        }
+    }
+}
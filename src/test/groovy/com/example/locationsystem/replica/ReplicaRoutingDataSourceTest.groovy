@@ -0,0 +1,98 @@
+package com.example.locationsystem.replica
+
+import org.h2.jdbcx.JdbcDataSource
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.sql.SQLException
+import java.time.Duration
+
+class ReplicaRoutingDataSourceTest extends Specification {
+
+    def primary = database("primary")
+    def replica = database("replica")
+    def router = new ReplicaRouter(Duration.ofMinutes(1), 100)
+
+    def "should read from replica and write to primary"() {
+
+        given:
+            def jdbcTemplate = new JdbcTemplate(new ReplicaRoutingDataSource(primary, [replica], Duration.ZERO))
+
+        expect:
+            router.read(1L) { whoAmI(jdbcTemplate) } == "replica"
+            whoAmI(jdbcTemplate) == "primary"
+    }
+
+    def "should read from primary after the user wrote"() {
+
+        given:
+            def jdbcTemplate = new JdbcTemplate(new ReplicaRoutingDataSource(primary, [replica], Duration.ZERO))
+
+        when:
+            router.stickToPrimary(1L)
+
+        then:
+            router.read(1L) { whoAmI(jdbcTemplate) } == "primary"
+            router.read(2L) { whoAmI(jdbcTemplate) } == "replica"
+    }
+
+    def "should skip replica while it is down"() {
+
+        given:
+            def down = true
+            def flaky = Stub(DataSource) {
+                getConnection() >> {
+                    if (down) {
+                        throw new SQLException("Connection refused")
+                    }
+                    database("flaky").getConnection()
+                }
+            }
+            def dataSource = new ReplicaRoutingDataSource(primary, [flaky, replica], Duration.ZERO)
+            def jdbcTemplate = new JdbcTemplate(dataSource)
+
+        when:
+            def reads = (1..4).collect { router.read { whoAmI(jdbcTemplate) } }
+
+        then:
+            reads.every { it == "replica" }
+            dataSource.healthyReplicas() == 1
+
+        when:
+            down = false
+            dataSource.checkReplicas()
+
+        then:
+            dataSource.healthyReplicas() == 2
+            (1..4).collect { router.read { whoAmI(jdbcTemplate) } }.toSet() == ["flaky", "replica"] as Set
+    }
+
+    def "should read from primary when no replica is healthy"() {
+
+        given:
+            def failing = Stub(DataSource) {
+                getConnection() >> { throw new SQLException("Connection refused") }
+            }
+            def jdbcTemplate = new JdbcTemplate(new ReplicaRoutingDataSource(primary, [failing], Duration.ZERO))
+
+        expect:
+            router.read { whoAmI(jdbcTemplate) } == "primary"
+    }
+
+    private static DataSource database(String name) {
+
+        def dataSource = new JdbcDataSource()
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1")
+        def jdbcTemplate = new JdbcTemplate(dataSource)
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS whoami(name VARCHAR(16))")
+        jdbcTemplate.execute("DELETE FROM whoami")
+        jdbcTemplate.update("INSERT INTO whoami(name) VALUES(?)", name)
+        dataSource
+    }
+
+    private static String whoAmI(JdbcTemplate jdbcTemplate) {
+
+        jdbcTemplate.queryForObject("SELECT name FROM whoami", String)
+    }
+}
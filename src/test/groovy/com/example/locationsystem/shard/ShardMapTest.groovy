@@ -0,0 +1,65 @@
+package com.example.locationsystem.shard
+
+import spock.lang.Specification
+
+class ShardMapTest extends Specification {
+
+    private static final int KEYS = 100_000
+
+    def "should spread users evenly over shards"() {
+
+        given:
+            def shardMap = new ShardMap(4, 256)
+
+        when:
+            def counts = (1..KEYS).countBy { shardMap.shardOf(it as long) }
+
+        then:
+            counts.keySet() == [0, 1, 2, 3] as Set
+            counts.values().every { it > KEYS / 4 * 0.75 && it < KEYS / 4 * 1.25 }
+    }
+
+    def "should only move keys to the added shard"() {
+
+        given:
+            def before = new ShardMap(3, 256)
+            def after = new ShardMap(4, 256)
+
+        when:
+            def moved = (1..KEYS).findAll { before.shardOf(it as long) != after.shardOf(it as long) }
+
+        then:
+            moved.every { after.shardOf(it as long) == 3 }
+            moved.size() > KEYS / 4 * 0.75 && moved.size() < KEYS / 4 * 1.25
+    }
+
+    def "should place emails on shards"() {
+
+        given:
+            def shardMap = new ShardMap(4, 256)
+
+        expect:
+            shardMap.shardOf("user@example.com") == shardMap.shardOf("user@example.com")
+            (1..1000).collect { shardMap.shardOf("user" + it + "@example.com") }.toSet() == [0, 1, 2, 3] as Set
+    }
+
+    def "should place emails differing only in case on the same shard"() {
+
+        given:
+            def shardMap = new ShardMap(4, 256)
+
+        expect:
+            (1..1000).every {
+                shardMap.shardOf("User" + it + "@Example.com") == shardMap.shardOf("user" + it + "@example.com")
+            }
+    }
+
+    def "should reject more shards than ids can tell apart"() {
+
+        when:
+            new ShardMap(ShardMap.MAX_SHARDS + 1, 64)
+
+        then:
+            thrown(IllegalArgumentException)
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.locationsystem.shard
+
+import com.example.locationsystem.config.ShardConfig
+import com.example.locationsystem.exception.ControllerExceptions
+import com.example.locationsystem.location.Location
+import com.example.locationsystem.replica.ReplicaRouter
+import com.example.locationsystem.user.User
+import com.example.locationsystem.userAccess.UserAccess
+import com.example.locationsystem.util.EmailUtil
+import com.zaxxer.hikari.HikariDataSource
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.sql.DriverManager
+import java.time.Duration
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Runs the sharded DAOs against three databases on the local MySQL server, starting with two shards and adding the
+ * third one for the rebalancing test.
+ */
+class ShardedDaoIntegrationTest extends Specification {
+
+    private static final String SERVER = "jdbc:mysql://localhost:3306/"
+    private static final List<String> DATABASES = ["shard_test_0", "shard_test_1", "shard_test_2"]
+
+    @Shared
+    ExecutorService executor = Executors.newFixedThreadPool(8)
+
+    @Shared
+    HikariDataSource primary = new HikariDataSource()
+
+    @Shared
+    Shards shards
+
+    @Shared
+    ShardedUserDao userDao
+
+    @Shared
+    ShardedLocationDao locationDao
+
+    @Shared
+    ShardedUserAccessDao userAccessDao
+
+    def setupSpec() {
+
+        DriverManager.getConnection(SERVER, "root", "").withCloseable { connection ->
+            DATABASES.each { connection.createStatement().execute("DROP DATABASE IF EXISTS " + it) }
+        }
+        primary.username = "root"
+        primary.password = ""
+        primary.maximumPoolSize = 4
+        open(2)
+    }
+
+    def cleanupSpec() {
+
+        shards.close()
+        primary.close()
+        executor.shutdown()
+    }
+
+    def "should keep users on the shard of their id and find them by email"() {
+
+        when:
+            def users = (1..20).collect { register("spread" + it) }
+
+        then:
+            users.every { userDao.findUserByEmail(it.username).join().get().id == it.id }
+            users.every { user -> shards.all().count { userCount(it, user.id) == 1 } == 1 }
+            users.every { userCount(shards.home(it.id), it.id) == 1 }
+            users.collect { shards.home(it.id) }.toSet().size() == 2
+    }
+
+    def "should not register an email twice"() {
+
+        given:
+            register("twice")
+
+        when:
+            userDao.saveUser(new User("twice@example.com", "twice", "pass")).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.AlreadyExistsException
+    }
+
+    def "should share locations across shards"() {
+
+        given:
+            def (owner, friend) = onDifferentShards("owner", "friend")
+            def home = locationDao.saveLocation(new Location(name: "home", address: "a", userId: owner.id)).join()
+            def gym = locationDao.saveLocation(new Location(name: "gym", address: "b", userId: friend.id)).join()
+
+        when:
+            userAccessDao.shareUserAccess(new UserAccess("READ", friend.id, home.id), owner.id).join()
+
+        then:
+            locationDao.findUserLocations(friend.id, 0L, 10).join()*.id == [home.id, gym.id].sort()
+            locationDao.findLocationInUserLocations(friend.id, home.id).join().name == "home"
+            userDao.findUsersOnLocation(home.id, owner.id, 0L, 10).join() == [friend.id]
+            locationDao.streamUserLocations(friend.id, {}).join() == 2
+            userAccessDao.findUsersToShareWith(home.id, [owner.id, friend.id, 999_999L]).join() == [owner.id]
+            home.id % ShardMap.MAX_SHARDS == shards.home(owner.id).index
+    }
+
+    def "should not share with a user that does not exist"() {
+
+        given:
+            def owner = register("lonely")
+            def location = locationDao.saveLocation(new Location(name: "home", address: "a", userId: owner.id)).join()
+
+        when:
+            userAccessDao.shareUserAccess(new UserAccess("READ", 999_999L, location.id), owner.id).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationOrUserNotFoundException
+    }
+
+    def "should move rows to an added shard"() {
+
+        given:
+            def users = (1..30).collect { register("moving" + it) }
+            def (owner, friend) = onDifferentShards("mover", "watcher")
+            def location = locationDao.saveLocation(new Location(name: "home", address: "a", userId: owner.id)).join()
+            userAccessDao.shareUserAccess(new UserAccess("READ", friend.id, location.id), owner.id).join()
+            shards.close()
+            open(3)
+
+        when:
+            def moved = new ShardRebalancer(shards).rebalance()
+
+        then:
+            moved > 0
+            (users + [owner, friend]).every { user -> shards.all().count { userCount(it, user.id) == 1 } == 1 }
+            (users + [owner, friend]).every { userDao.findUserByEmail(it.username).join().get().id == it.id }
+            locationDao.findUserLocations(friend.id, 0L, 10).join()*.id == [location.id]
+            userDao.findUsersOnLocation(location.id, owner.id, 0L, 10).join() == [friend.id]
+
+        when:
+            def movedAgain = new ShardRebalancer(shards).rebalance()
+
+        then:
+            movedAgain == 0
+    }
+
+    private void open(int count) {
+
+        shards = new ShardConfig().shards(primary,
+            DATABASES.take(count).collect { SERVER + it + "?createDatabaseIfNotExist=true" }, 64, 10,
+            new ReplicaRouter(Duration.ofSeconds(5), 1000), new EmailUtil(), executor, executor, executor,
+            new SimpleMeterRegistry())
+        userDao = new ShardedUserDao(shards, new EmailUtil(), executor)
+        locationDao = new ShardedLocationDao(shards, executor)
+        userAccessDao = new ShardedUserAccessDao(shards, executor)
+    }
+
+    private User register(String name) {
+
+        def user = new User(name + "@example.com", name, "pass")
+        userDao.saveUser(user).join()
+        user
+    }
+
+    private List<User> onDifferentShards(String first, String second) {
+
+        def a = register(first)
+        def b = (1..50).collect { register(second + it) }.find { shards.home(it.id) != shards.home(a.id) }
+        [a, b]
+    }
+
+    private static int userCount(Shard shard, Long id) {
+
+        shard.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer, id)
+    }
+}
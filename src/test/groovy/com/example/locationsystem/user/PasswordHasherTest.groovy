@@ -0,0 +1,48 @@
+package com.example.locationsystem.user
+
+import spock.lang.Specification
+
+class PasswordHasherTest extends Specification {
+
+    PasswordHasher passwordHasher = new PasswordHasher(4, { it.run() })
+
+    def "should hash password with bcrypt and match it"() {
+
+        when:
+            def hash = passwordHasher.hash("pass1").join()
+
+        then:
+            hash.startsWith('$2a$04$')
+            passwordHasher.matches("pass1", hash).join()
+            !passwordHasher.matches("pass2", hash).join()
+            !passwordHasher.needsRehash(hash)
+    }
+
+    def "should not match any password against dummy hash"() {
+
+        expect:
+            passwordHasher.dummyHash().startsWith('$2a$04$')
+            !passwordHasher.matches("pass1", passwordHasher.dummyHash()).join()
+    }
+
+    def "should match legacy sha-256 hash and require rehash"() {
+
+        given:
+            def legacyHash = "e6c3da5b206634d7f3f3586d747ffdb36b5c675757b380c6a5fe5c570c714349"
+
+        expect:
+            passwordHasher.matches("pass1", legacyHash).join()
+            !passwordHasher.matches("pass2", legacyHash).join()
+            passwordHasher.needsRehash(legacyHash)
+    }
+
+    def "should require rehash when strength is raised"() {
+
+        given:
+            def weakHash = passwordHasher.hash("pass1").join()
+            def strongerHasher = new PasswordHasher(5, { it.run() })
+
+        expect:
+            strongerHasher.needsRehash(weakHash)
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.locationsystem.user
+
+import org.springframework.boot.test.context.SpringBootTest
+
+@SpringBootTest(properties = "dao.mode=r2dbc")
+class R2dbcUserDaoTest extends UserDaoTest {
+}
@@ -1,5 +1,6 @@
 package com.example.locationsystem.user
 
+import com.example.locationsystem.auth.SessionStore
 import com.fasterxml.jackson.databind.ObjectMapper
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
@@ -131,7 +132,8 @@ class UserControllerIntegrationTest extends Specification {
 
             mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
-                .andExpect(cookie().exists("user"))
+                .andExpect(cookie().exists(SessionStore.COOKIE_NAME))
+                .andExpect(cookie().httpOnly(SessionStore.COOKIE_NAME, true))
                 .andDo { result ->
                     def expectedId = result.response.contentAsString
                     savedUserId == expectedId
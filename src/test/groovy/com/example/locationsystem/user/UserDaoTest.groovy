@@ -1,11 +1,14 @@
 package com.example.locationsystem.user
 
+import com.example.locationsystem.exception.ControllerExceptions
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.jdbc.core.BeanPropertyRowMapper
 import org.springframework.jdbc.core.JdbcTemplate
 import spock.lang.Specification
 
+import java.util.concurrent.CompletionException
+
 @SpringBootTest
 class UserDaoTest extends Specification {
 
@@ -37,13 +40,14 @@ class UserDaoTest extends Specification {
             user.get().getUsername() == 'user1'
     }
 
-    def "should find user by email and password"() {
+    def "should update user password"() {
 
         when:
-            def user = userDao.findUserByEmailAndPassword("user1", "pass1").join()
+            userDao.updateUserPassword(100L, "newHash").join()
 
         then:
-            user.getUsername() == 'user1'
+            def user = userDao.findUserById(100L).join()
+            user.getPassword() == 'newHash'
     }
 
     def "should save user"() {
@@ -70,7 +74,7 @@ class UserDaoTest extends Specification {
             jdbcTemplate.execute("INSERT INTO accesses(id,title,location_id,user_id) VALUES(100,'ADMIN',100,300),(200,'ADMIN',100,200)")
 
         when:
-            def userIds = userDao.findAllUsersOnLocation(100, 300).join()
+            def userIds = userDao.findUsersOnLocation(100, 300, 0L, 10).join()
 
         then:
             userIds.size() == 1
@@ -91,13 +95,50 @@ class UserDaoTest extends Specification {
             jdbcTemplate.execute("INSERT INTO users(id,name,username,password) VALUES(200,'name1','test@gmail.com',SHA2('pass1',256))")
 
         when:
-            userDao.deleteUserByEmail("test@gmail.com").join()
+            def deletedId = userDao.deleteUserByEmail("test@gmail.com").join()
 
         then:
+            deletedId == 200L
             def deletedUser = jdbcTemplate.query("SELECT * FROM users WHERE username = ?", BeanPropertyRowMapper.newInstance(User.class), "test@gmail.com")
             deletedUser.isEmpty()
     }
 
+    def "should throw UserNotFoundException when deleting a missing user after deleting another"() {
+
+        given:
+            jdbcTemplate.execute("INSERT INTO users(id,name,username,password) VALUES(200,'name1','test@gmail.com',SHA2('pass1',256))")
+            userDao.deleteUserByEmail("test@gmail.com").join()
+
+        when:
+            userDao.deleteUserByEmail("test@gmail.com").join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.UserNotFoundException
+    }
+
+    def "should tell a location shared with nobody from one the user cannot view"() {
+
+        given:
+            jdbcTemplate.execute("INSERT INTO users(id,name,username,password) VALUES(300,'name1','user3','pass3')")
+            jdbcTemplate.execute("INSERT INTO accesses(id,title,location_id,user_id) VALUES(300,'READ',100,300)")
+
+        when:
+            def ownerView = userDao.findUsersOnLocation(100L, 100L, 0L, 10).join()
+            def friendView = userDao.findUsersOnLocation(100L, 300L, 0L, 10).join()
+            jdbcTemplate.execute("DELETE FROM accesses WHERE id = 300")
+            userDao.findUsersOnLocation(100L, 300L, 0L, 10).join()
+
+        then:
+            ownerView == [300L]
+            friendView.isEmpty()
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationNotFoundException
+
+        cleanup:
+            jdbcTemplate.execute("DELETE FROM accesses WHERE id = 300")
+    }
+
     def "should find user by id"() {
 
         when:
@@ -1,12 +1,16 @@
 package com.example.locationsystem.user
 
+import com.example.locationsystem.acl.AccessControlIndex
+import com.example.locationsystem.auth.SessionStore
 import com.example.locationsystem.exception.ControllerExceptions
 import com.example.locationsystem.util.EmailUtil
 import org.springframework.context.ApplicationEventPublisher
 import spock.lang.Shared
 import spock.lang.Specification
 
+import java.time.Duration
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
 
 class UserServiceTest extends Specification {
 
@@ -17,13 +21,17 @@ class UserServiceTest extends Specification {
     UserService userService
     EmailUtil emailUtil
     ApplicationEventPublisher eventPublisher
+    PasswordHasher passwordHasher
+    SessionStore sessionStore = new SessionStore(Duration.ofMinutes(30), 100)
 
     def setup() {
 
         userDao = Mock(UserDao)
         emailUtil = Mock(EmailUtil)
         eventPublisher = Mock(ApplicationEventPublisher)
-        userService = new UserServiceImpl(userDao, emailUtil, eventPublisher)
+        passwordHasher = Mock(PasswordHasher)
+        userService = new UserServiceImpl(userDao, emailUtil, eventPublisher, passwordHasher,
+            new AccessControlIndex(), sessionStore, 1000)
     }
 
     def "saveUser should insert user into database"() {
@@ -41,7 +49,8 @@ class UserServiceTest extends Specification {
             savedUserId == expectedUser.getId()
 
         then:
-            1 * userDao.saveUser(userToSave) >> CompletableFuture.completedFuture(expectedUser.getId())
+            1 * passwordHasher.hash(userToSave.getPassword()) >> CompletableFuture.completedFuture("hash")
+            1 * userDao.saveUser({ it.password == "hash" }) >> CompletableFuture.completedFuture(expectedUser.getId())
             1 * eventPublisher.publishEvent(_) >> null
     }
 
@@ -61,37 +70,133 @@ class UserServiceTest extends Specification {
     def "findUserByEmailAndPassword should return User"() {
 
         given:
-            userDao.findUserByEmailAndPassword(user.getUsername(), user.getPassword()) >> CompletableFuture.completedFuture(user)
+            userDao.findUserByEmail(user.getUsername()) >> CompletableFuture.completedFuture(Optional.of(user))
+            passwordHasher.matches("pass1", user.getPassword()) >> CompletableFuture.completedFuture(true)
+            passwordHasher.needsRehash(user.getPassword()) >> false
+
+        when:
+            def result = userService.findUserByEmailAndPassword(user.getUsername(), "pass1").join()
+
+        then:
+            result == user
+            0 * userDao.updateUserPassword(_, _)
+    }
+
+    def "findUserByEmailAndPassword should rehash legacy password"() {
+
+        given:
+            userDao.findUserByEmail(user.getUsername()) >> CompletableFuture.completedFuture(Optional.of(user))
+            passwordHasher.matches("pass1", user.getPassword()) >> CompletableFuture.completedFuture(true)
+            passwordHasher.needsRehash(user.getPassword()) >> true
+            passwordHasher.hash("pass1") >> CompletableFuture.completedFuture("newHash")
 
         when:
-            def result = userService.findUserByEmailAndPassword(user.getUsername(), user.getPassword()).join()
+            def result = userService.findUserByEmailAndPassword(user.getUsername(), "pass1").join()
 
         then:
             result == user
+            1 * userDao.updateUserPassword(user.getId(), "newHash") >> CompletableFuture.completedFuture(null)
+    }
+
+    def "findUserByEmailAndPassword should return user when rehash fails"() {
+
+        given:
+            userDao.findUserByEmail(user.getUsername()) >> CompletableFuture.completedFuture(Optional.of(user))
+            passwordHasher.matches("pass1", user.getPassword()) >> CompletableFuture.completedFuture(true)
+            passwordHasher.needsRehash(user.getPassword()) >> true
+            passwordHasher.hash("pass1") >> CompletableFuture.completedFuture("newHash")
+            userDao.updateUserPassword(user.getId(), "newHash") >> CompletableFuture.supplyAsync {
+                throw new IllegalStateException("Connection lost")
+            }
+
+        when:
+            def result = userService.findUserByEmailAndPassword(user.getUsername(), "pass1").join()
+
+        then:
+            result == user
+    }
+
+    def "should check password against dummy hash when user not found"() {
+
+        given:
+            userDao.findUserByEmail("unknown@gmail.com") >> CompletableFuture.completedFuture(Optional.empty())
+            passwordHasher.dummyHash() >> "dummyHash"
+
+        when:
+            userService.findUserByEmailAndPassword("unknown@gmail.com", "pass1").join()
+
+        then:
+            1 * passwordHasher.matches("pass1", "dummyHash") >> CompletableFuture.completedFuture(false)
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.InvalidLoginOrPasswordException
+    }
+
+    def "should throw InvalidLoginOrPasswordException when password does not match"() {
+
+        given:
+            userDao.findUserByEmail(user.getUsername()) >> CompletableFuture.completedFuture(Optional.of(user))
+            passwordHasher.matches("wrongPass", user.getPassword()) >> CompletableFuture.completedFuture(false)
+
+        when:
+            userService.findUserByEmailAndPassword(user.getUsername(), "wrongPass").join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.InvalidLoginOrPasswordException
+            0 * userDao.updateUserPassword(_, _)
     }
 
     def "findAllUsersWithAccessOnLocation should return Users"() {
 
         given:
             def accessUsers = [100L]
-            userDao.findAllUsersOnLocation(1L, user.getId()) >> CompletableFuture.completedFuture(accessUsers)
+            userDao.findUsersOnLocation(1L, user.getId(), 0L, 11) >> CompletableFuture.completedFuture(accessUsers)
 
         when:
-            def userIds = userService.findAllUsersOnLocation(1L, user.getId()).join()
+            def userIds = userService.findUsersOnLocation(1L, user.getId(), null, 10).join()
 
         then:
-            userIds == accessUsers
+            userIds.getItems() == accessUsers
+            userIds.getNextCursor() == null
+    }
+
+    def "findUsersOnLocation should be rejected from index without database"() {
+
+        given:
+            def index = new AccessControlIndex()
+            index.rebuild {
+                index.addUser(user.getId())
+                index.addLocation(1L, 2L)
+            }
+            def service = new UserServiceImpl(userDao, emailUtil, eventPublisher, passwordHasher, index, sessionStore,
+                1000)
+
+        when:
+            service.findUsersOnLocation(1L, user.getId(), null, 10).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationNotFoundException
+            0 * userDao._
     }
 
     def "deleteUserByEmail should delete user and publish an event if the user exists"() {
 
+        given:
+            def token = sessionStore.createSession(user.getId())
+            def otherToken = sessionStore.createSession(200L)
+
         when:
             userService.deleteUserByEmail(user.getUsername()).join()
 
         then:
-            1 * userDao.findUserByEmail(user.getUsername()) >> CompletableFuture.completedFuture(Optional.of(user))
-            1 * userDao.deleteUserByEmail(user.getUsername()) >> CompletableFuture.completedFuture(null)
-            1 * eventPublisher.publishEvent(_) >> null
+            0 * userDao.findUserByEmail(_)
+            1 * userDao.deleteUserByEmail(user.getUsername()) >> CompletableFuture.completedFuture(user.getId())
+            1 * eventPublisher.publishEvent({ it.objectId == user.getId() }) >> null
+
+        and:
+            sessionStore.findUserId(token) == null
+            sessionStore.findUserId(otherToken) == 200L
     }
 
     def "should throw UserNotFoundException when user not found"() {
@@ -100,8 +205,11 @@ class UserServiceTest extends Specification {
             def result = userService.deleteUserByEmail("test")
 
         then:
-            1 * userDao.findUserByEmail("test") >> CompletableFuture.completedFuture(Optional.empty())
-            0 * userDao.deleteUserByEmail("test")
+            1 * userDao.deleteUserByEmail("test") >> {
+                CompletableFuture<Long> future = new CompletableFuture<>()
+                future.completeExceptionally(new ControllerExceptions.UserNotFoundException("User not found"))
+                future
+            }
             0 * eventPublisher.publishEvent(_)
 
         and:
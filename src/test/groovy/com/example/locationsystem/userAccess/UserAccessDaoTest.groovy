@@ -1,11 +1,14 @@
 package com.example.locationsystem.userAccess
 
+import com.example.locationsystem.exception.ControllerExceptions
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.jdbc.core.JdbcTemplate
 import spock.lang.Shared
 import spock.lang.Specification
 
+import java.util.concurrent.CompletionException
+
 @SpringBootTest
 class UserAccessDaoTest extends Specification {
 
@@ -56,6 +59,34 @@ class UserAccessDaoTest extends Specification {
             jdbcTemplate.execute("DELETE FROM users WHERE id = 600")
     }
 
+    def "should find only existing users without access"() {
+
+        when:
+            def userIds = userAccessDao.findUsersToShareWith(100L, [100L, 200L, 999L]).join()
+
+        then:
+            userIds == [200L]
+    }
+
+    def "should save user accesses in one batch"() {
+
+        given:
+            jdbcTemplate.execute("INSERT INTO users(id,username,password,name) VALUES(700,'user70','pass70','name70')")
+            def accesses = [new UserAccess(title: "READ", userId: 200L, locationId: 100L),
+                            new UserAccess(title: "READ", userId: 700L, locationId: 100L)]
+
+        when:
+            def saved = userAccessDao.saveUserAccesses(accesses).join()
+
+        then:
+            saved*.id.every { it != null }
+            userAccessDao.findUsersToShareWith(100L, [200L, 700L]).join().isEmpty()
+
+        cleanup:
+            jdbcTemplate.execute("DELETE FROM accesses WHERE location_id = 100 AND user_id IN (200, 700)")
+            jdbcTemplate.execute("DELETE FROM users WHERE id = 700")
+    }
+
     def "should find user access"() {
 
         when:
@@ -67,13 +98,58 @@ class UserAccessDaoTest extends Specification {
             userAccess.getUserId() == 100
     }
 
-    def "should change user access"() {
+    def "should share location when sharer owns it"() {
+
+        given:
+            jdbcTemplate.execute("INSERT INTO users(id,username,password,name) VALUES(700,'user70','pass70','name70')")
 
         when:
-            userAccessDao.changeUserAccess(access).join()
+            def shared = userAccessDao.shareUserAccess(new UserAccess(title: "READ", userId: 700L, locationId: 100L), 200L).join()
 
         then:
+            shared.getId() != null
+            userAccessDao.findUserAccess(shared, 200L).join().getTitle() == "READ"
+
+        cleanup:
+            jdbcTemplate.execute("DELETE FROM accesses WHERE location_id = 100 AND user_id = 700")
+            jdbcTemplate.execute("DELETE FROM users WHERE id = 700")
+    }
+
+    def "should not share location when sharer cannot or user already has access"() {
+
+        when:
+            userAccessDao.shareUserAccess(new UserAccess(title: "READ", userId: userId, locationId: 100L), sharerId).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationOrUserNotFoundException
+
+        where:
+            sharerId | userId
+            100L     | 999L
+            200L     | 100L
+            999L     | 200L
+    }
+
+    def "should change user access of owned location"() {
+
+        when:
+            def accessId = userAccessDao.changeUserAccess(access, 200L).join()
+
+        then:
+            accessId == 100L
             def userAccess = userAccessDao.findUserAccess(access, 200).join()
             userAccess.getTitle() == "READ"
     }
+
+    def "should not change user access of location owned by someone else"() {
+
+        when:
+            userAccessDao.changeUserAccess(access, 100L).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.UserAccessNotFoundException
+            userAccessDao.findUserAccess(access, 200).join().getTitle() == "ADMIN"
+    }
 }
@@ -1,10 +1,15 @@
 package com.example.locationsystem.userAccess
 
+import com.example.locationsystem.acl.AccessControlConsistencyCheck
+import com.example.locationsystem.acl.AccessControlIndex
+import com.example.locationsystem.exception.ControllerExceptions
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.context.ApplicationEventPublisher
 import spock.lang.Shared
 import spock.lang.Specification
 
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
 
 class UserAccessServiceTest extends Specification {
 
@@ -14,12 +19,13 @@ class UserAccessServiceTest extends Specification {
     UserAccessDao userAccessDao
     UserAccessService userAccessService
     ApplicationEventPublisher eventPublisher
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
 
     def setup() {
 
         userAccessDao = Mock(UserAccessDao)
         eventPublisher = Mock(ApplicationEventPublisher)
-        userAccessService = new UserAccessServiceImpl(userAccessDao, eventPublisher)
+        userAccessService = newService(new AccessControlIndex(), false)
     }
 
     def "should insert user access into database"() {
@@ -41,6 +47,37 @@ class UserAccessServiceTest extends Specification {
             1 * eventPublisher.publishEvent(_) >> null
     }
 
+    def "should share location with new users in one batch"() {
+
+        when:
+            def result = userAccessService.shareLocation(2L, "READ", [3L, 4L, 3L, 5L]).join()
+
+        then:
+            1 * userAccessDao.findUsersToShareWith(2L, [3L, 4L, 5L] as LinkedHashSet) >> CompletableFuture.completedFuture([3L, 5L])
+            1 * userAccessDao.saveUserAccesses({ it*.userId == [3L, 5L] && it.every { it.title == "READ" && it.locationId == 2L } }) >> { List<UserAccess> accesses ->
+                accesses.eachWithIndex { access, i -> access.id = 10L + i }
+                CompletableFuture.completedFuture(accesses)
+            }
+            2 * eventPublisher.publishEvent(_) >> null
+
+        and:
+            result*.id == [10L, 11L]
+    }
+
+    def "should not insert when nobody is left to share with"() {
+
+        when:
+            def result = userAccessService.shareLocation(2L, "READ", [3L]).join()
+
+        then:
+            1 * userAccessDao.findUsersToShareWith(2L, _) >> CompletableFuture.completedFuture([])
+            0 * userAccessDao.saveUserAccesses(_)
+            0 * eventPublisher.publishEvent(_)
+
+        and:
+            result.isEmpty()
+    }
+
     def "should find user access"() {
 
         given:
@@ -53,12 +90,90 @@ class UserAccessServiceTest extends Specification {
             result == userAccess
     }
 
+    def "should share user access in one statement"() {
+
+        when:
+            def result = userAccessService.shareUserAccess(userAccess, 3L).join()
+
+        then:
+            1 * userAccessDao.shareUserAccess(userAccess, 3L) >> CompletableFuture.completedFuture(userAccess)
+            1 * eventPublisher.publishEvent(_) >> null
+            result == userAccess
+    }
+
+    def "should reject sharing from index without database"() {
+
+        given:
+            def index = new AccessControlIndex()
+            index.rebuild {
+                index.addUser(1L)
+                index.addUser(3L)
+                index.addLocation(2L, 1L)
+            }
+            def service = newService(index, false)
+
+        when:
+            service.shareUserAccess(new UserAccess("READ", 1L, 2L), 3L).join()
+
+        then:
+            def e = thrown(CompletionException)
+            e.getCause() instanceof ControllerExceptions.LocationOrUserNotFoundException
+            0 * userAccessDao._
+    }
+
     def "should change user access"() {
 
         when:
-            userAccessService.changeUserAccess(userAccess)
+            userAccessService.changeUserAccess(userAccess, 3L).join()
 
         then:
-            1 * userAccessDao.changeUserAccess(userAccess) >> CompletableFuture.completedFuture(userAccess)
+            1 * userAccessDao.changeUserAccess(userAccess, 3L) >> CompletableFuture.completedFuture(100L)
+            1 * eventPublisher.publishEvent({ it.objectId == 100L }) >> null
+    }
+
+    def "should still share in one statement when index allows it"() {
+
+        given:
+            def index = new AccessControlIndex()
+            index.rebuild {
+                index.addUser(1L)
+                index.addUser(3L)
+                index.addLocation(2L, 1L)
+            }
+            def service = newService(index, false)
+            def access = new UserAccess("READ", 3L, 2L)
+
+        when:
+            service.shareUserAccess(access, 1L).join()
+
+        then:
+            1 * userAccessDao.shareUserAccess(access, 1L) >> CompletableFuture.completedFuture(access)
+            0 * userAccessDao.saveUserAccess(_)
+    }
+
+    def "should go by the statement and count mismatch in consistency check mode"() {
+
+        given:
+            def index = new AccessControlIndex()
+            index.rebuild {
+                index.addUser(1L)
+                index.addUser(3L)
+                index.addLocation(2L, 1L)
+            }
+            def access = new UserAccess("READ", 1L, 2L)
+            userAccessDao.shareUserAccess(access, 3L) >> CompletableFuture.completedFuture(access)
+
+        when:
+            def result = newService(index, true).shareUserAccess(access, 3L).join()
+
+        then:
+            result == access
+            meterRegistry.get("acl.consistency.mismatch").tag("check", "share").counter().count() == 1
+    }
+
+    private UserAccessService newService(AccessControlIndex index, boolean consistencyCheck) {
+
+        new UserAccessServiceImpl(userAccessDao, eventPublisher, index,
+            new AccessControlConsistencyCheck(meterRegistry, consistencyCheck))
     }
 }